@@ -24,6 +24,7 @@ import fr.andross.banitem.utils.debug.Debug;
 import fr.andross.banitem.utils.debug.DebugMessage;
 import fr.andross.banitem.utils.list.ListType;
 import fr.andross.banitem.utils.list.Listable;
+import fr.andross.banitem.utils.text.MessageTemplate;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.InvalidConfigurationException;
@@ -42,13 +43,15 @@ import java.util.logging.Level;
 
 /**
  * A cached ban configuration from a FileConfiguration
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public final class BanConfig {
     private final File configFile;
     private final FileConfiguration config;
+    private final BanSettings settings;
     private final String prefix;
+    private final MessageTemplate logTemplate;
     private final Set<BanAction> priority = EnumSet.noneOf(BanAction.class);
     private final BanAnimation animation;
     private final Set<String> ignoredInventoryTitles = new HashSet<>();
@@ -76,9 +79,13 @@ public final class BanConfig {
             }
         }
 
+        // Resolving settings
+        this.settings = new BanSettings(this.config);
+
         // Loading prefix
         final String prefix = this.config.getString("prefix");
         this.prefix = prefix == null ? "" : Chat.color(prefix);
+        this.logTemplate = MessageTemplate.compile(this.prefix + "{player} ({world}) [{itemname}]: {action}");
 
         // Loading priority
         final List<String> priority = Listable.getSplittedStringList(this.config.get("priority"));
@@ -120,6 +127,15 @@ public final class BanConfig {
         return config;
     }
 
+    /**
+     * Get the settings resolved from the config when loaded
+     * @return the settings of this config
+     */
+    @NotNull
+    public BanSettings getSettings() {
+        return settings;
+    }
+
     /**
      * Save the current config into the file
      * @return true if successfully saved, otherwise false
@@ -143,6 +159,15 @@ public final class BanConfig {
         return prefix;
     }
 
+    /**
+     * Gives the template of the log messages, sent to the players in log mode
+     * @return the template of the log messages (already colored)
+     */
+    @NotNull
+    public MessageTemplate getLogTemplate() {
+        return logTemplate;
+    }
+
     /**
      * Get the ban actions which requires the highest priority
      * @return the ban actions which requires the highest priority
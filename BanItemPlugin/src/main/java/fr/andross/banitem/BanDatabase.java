@@ -18,26 +18,34 @@
 package fr.andross.banitem;
 
 import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.actions.BanActionData;
+import fr.andross.banitem.actions.BanContext;
 import fr.andross.banitem.database.Blacklist;
+import fr.andross.banitem.database.DatabaseSnapshot;
 import fr.andross.banitem.database.Whitelist;
+import fr.andross.banitem.database.WhitelistedWorld;
 import fr.andross.banitem.database.items.CustomItems;
 import fr.andross.banitem.database.items.Items;
 import fr.andross.banitem.database.items.MetaItems;
+import fr.andross.banitem.database.storage.MetaItemStorage;
 import fr.andross.banitem.items.BannedItem;
 import fr.andross.banitem.items.CustomBannedItem;
+import fr.andross.banitem.items.MaterialSet;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class that contains all the maps
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public final class BanDatabase {
@@ -45,6 +53,10 @@ public final class BanDatabase {
     private final MetaItems metaItems;
     private final Blacklist blacklist;
     private final Whitelist whitelist;
+    private final Map<UUID, Map<BanAction, BitSet>> candidates = new ConcurrentHashMap<>(); // world uid -> action -> materials ordinals
+    private final Map<UUID, Map<BanAction, BitSet>> verdicts = new ConcurrentHashMap<>(); // world uid -> action -> always blacklisted materials ordinals
+    private final Map<UUID, Map<BanAction, MaterialSet>> bannedMaterials = new ConcurrentHashMap<>(); // world uid -> action -> always banned materials
+    private volatile long modifications = -1; // of the ban actions data, when the above were computed
 
     /**
      * Loading the plugin database.
@@ -52,10 +64,12 @@ public final class BanDatabase {
      * Use {@link fr.andross.banitem.BanItemAPI#load(CommandSender, File)} instead.
      */
     BanDatabase(@NotNull final BanItem pl, @NotNull final CommandSender sender, @NotNull final FileConfiguration config) {
+        final DatabaseSnapshot snapshot = new DatabaseSnapshot(new File(pl.getDataFolder(), "database.snapshot"));
         this.customItems = new CustomItems(pl, sender);
-        this.metaItems = new MetaItems(pl, sender);
+        this.metaItems = new MetaItems(pl, sender, MetaItemStorage.create(pl, config.getConfigurationSection("storage"), snapshot));
         this.blacklist = new Blacklist(pl, this, sender, config.getConfigurationSection("blacklist"));
         this.whitelist = new Whitelist(pl, this, sender, config.getConfigurationSection("whitelist"));
+        snapshot.save();
     }
 
     /**
@@ -71,7 +85,180 @@ public final class BanDatabase {
     }
 
     /**
-     * Try to add a meta item <i>({@link BannedItem})</i> into the map and the config file
+     * Check if an item of this material can ever be banned for this action in this world,
+     * by the blacklist or the whitelist. If not, the item does not need to be checked.
+     * The candidates are computed once per world and action, and forgotten when a ban is added.
+     * @param world the world
+     * @param material the material
+     * @param action the action
+     * @return false if no item of this material can be banned for this action in this world
+     */
+    public boolean isCandidate(@NotNull final World world, @NotNull final Material material, @NotNull final BanAction action) {
+        return getCandidates(world, action).get(material.ordinal());
+    }
+
+    /**
+     * Check if at least one item can be banned for this action in this world
+     * @param world the world
+     * @param action the action
+     * @return false if nothing can be banned for this action in this world
+     */
+    public boolean hasCandidates(@NotNull final World world, @NotNull final BanAction action) {
+        return !getCandidates(world, action).isEmpty();
+    }
+
+    @NotNull
+    private BitSet getCandidates(@NotNull final World world, @NotNull final BanAction action) {
+        checkModifications();
+        return candidates.computeIfAbsent(world.getUID(), k -> new ConcurrentHashMap<>()).computeIfAbsent(action, k -> {
+            final BitSet materials = new BitSet(Material.values().length);
+
+            // Whitelisted world: everything not allowed is banned
+            final WhitelistedWorld ww = whitelist.get(world);
+            if (ww != null && !ww.getIgnored().contains(action)) {
+                materials.set(0, Material.values().length);
+                return materials;
+            }
+
+            // Blacklisted items
+            final Items items = blacklist.get(world);
+            if (items == null) return materials;
+            for (final Map.Entry<BannedItem, Map<BanAction, BanActionData>> e : items.getItems().entrySet())
+                if (e.getValue().containsKey(action)) materials.set(e.getKey().getType().ordinal());
+            for (final Map.Entry<CustomBannedItem, Map<BanAction, BanActionData>> e : items.getCustomItems().entrySet())
+                if (e.getValue().containsKey(action))
+                    for (final Material m : e.getKey().getMaterials()) materials.set(m.ordinal());
+            return materials;
+        });
+    }
+
+    /**
+     * Check if any item of this material is blacklisted for this action in this world, when no player is involved,
+     * whatever its meta and the data of the action. This is the case of the materials banned by a rule which does not
+     * depend on the {@link BanContext#DATA} context, when no meta item nor custom item of this material is banned in the world.
+     * The verdicts are computed once per world and action, and forgotten when the blacklist or an action data changes.
+     * @param world the world
+     * @param material the material
+     * @param action the action
+     * @return true if the item is blacklisted, false if it has to be checked
+     */
+    public boolean isAlwaysBlacklisted(@NotNull final World world, @NotNull final Material material, @NotNull final BanAction action) {
+        return getVerdicts(world, action).get(material.ordinal());
+    }
+
+    @NotNull
+    private BitSet getVerdicts(@NotNull final World world, @NotNull final BanAction action) {
+        checkModifications();
+        return verdicts.computeIfAbsent(world.getUID(), k -> new ConcurrentHashMap<>()).computeIfAbsent(action, k -> {
+            final BitSet materials = new BitSet(Material.values().length);
+            final Items items = blacklist.get(world);
+            if (items == null) return materials;
+
+            // Materials with meta, data or custom items are looked up
+            final BitSet lookedUp = new BitSet(Material.values().length);
+            for (final Map.Entry<BannedItem, Map<BanAction, BanActionData>> e : items.getItems().entrySet()) {
+                final BannedItem item = e.getKey();
+                if (item.getItemMeta() != null || item.getData() != 0) {
+                    lookedUp.set(item.getType().ordinal());
+                    continue;
+                }
+                final BanActionData data = e.getValue().get(action);
+                if (data != null && !data.getContexts().contains(BanContext.DATA)) materials.set(item.getType().ordinal());
+            }
+            for (final CustomBannedItem customItem : items.getCustomItems().keySet())
+                for (final Material m : customItem.getMaterials()) lookedUp.set(m.ordinal());
+            materials.andNot(lookedUp);
+            return materials;
+        });
+    }
+
+    /**
+     * Get the materials always banned for this action in this world, when no player is involved,
+     * whatever their meta and the data of the action: the materials always blacklisted
+     * (see {@link #isAlwaysBlacklisted(World, Material, BanAction)}), and in a whitelisted world,
+     * the materials without any whitelisted item for this action.
+     * The set is computed once per world and action, and a new one is computed when the bans change.
+     * @param world the world
+     * @param action the action
+     * @return the immutable set of materials always banned
+     */
+    @NotNull
+    public MaterialSet getBannedMaterials(@NotNull final World world, @NotNull final BanAction action) {
+        checkModifications();
+        return bannedMaterials.computeIfAbsent(world.getUID(), k -> new ConcurrentHashMap<>()).computeIfAbsent(action, k -> {
+            final BitSet materials = (BitSet) getVerdicts(world, action).clone();
+
+            // Whitelisted world: materials without any allowed item are banned
+            final WhitelistedWorld ww = whitelist.get(world);
+            if (ww != null && !ww.getIgnored().contains(action)) {
+                final BitSet allowed = new BitSet(Material.values().length);
+                for (final Map.Entry<BannedItem, Map<BanAction, BanActionData>> e : ww.getItems().entrySet())
+                    if (e.getValue().containsKey(action)) allowed.set(e.getKey().getType().ordinal());
+                for (final Map.Entry<CustomBannedItem, Map<BanAction, BanActionData>> e : ww.getCustomItems().entrySet())
+                    if (e.getValue().containsKey(action))
+                        for (final Material m : e.getKey().getMaterials()) allowed.set(m.ordinal());
+                final BitSet notAllowed = new BitSet(Material.values().length);
+                notAllowed.set(0, Material.values().length);
+                notAllowed.andNot(allowed);
+                materials.or(notAllowed);
+            }
+            return new MaterialSet(materials);
+        });
+    }
+
+    /**
+     * Forget the computed candidates, verdicts & banned materials, to call when the blacklist or the whitelist changes.
+     * Removing a ban does not require it for the candidates, staying a superset of the banned materials, but does for the verdicts.
+     */
+    public void invalidateCandidates() {
+        candidates.clear();
+        verdicts.clear();
+        bannedMaterials.clear();
+    }
+
+    /**
+     * Forget the computed candidates, verdicts & banned materials if a ban action data was modified since,
+     * through the API <i>(see {@link BanActionData#getMap()})</i>.
+     */
+    private void checkModifications() {
+        final long modifications = BanActionData.getModifications();
+        if (modifications != this.modifications) {
+            this.modifications = modifications;
+            invalidateCandidates();
+        }
+    }
+
+    /**
+     * Bind the blacklist & whitelist rules matching a world loaded after this database.
+     * @param world the loaded world
+     * @return true if the actions to listen have changed, the listeners should then be reloaded
+     */
+    public boolean bindWorld(@NotNull final World world) {
+        final Set<BanAction> actions = getBlacklistActions();
+        final boolean wasWhitelistEmpty = whitelist.isEmpty();
+        final CommandSender console = Bukkit.getConsoleSender();
+        blacklist.bind(world, console);
+        whitelist.bind(world, console);
+        // The whitelist listeners are only registered while the whitelist is not empty
+        return !actions.equals(getBlacklistActions()) || wasWhitelistEmpty != whitelist.isEmpty();
+    }
+
+    /**
+     * Release the blacklist & whitelist rules of an unloaded world.
+     * The world is bound again if it is loaded later.
+     * @param world the unloaded world
+     */
+    public void releaseWorld(@NotNull final World world) {
+        final UUID uuid = world.getUID();
+        blacklist.remove(uuid);
+        whitelist.remove(uuid);
+        candidates.remove(uuid);
+        verdicts.remove(uuid);
+        bannedMaterials.remove(uuid);
+    }
+
+    /**
+     * Try to add a meta item <i>({@link BannedItem})</i> into the map and the storage
      * @param metaName name of the meta item
      * @param metaItem ItemStack
      */
@@ -79,14 +266,8 @@ public final class BanDatabase {
         // Adding in map
         metaItems.put(metaName, new BannedItem(metaItem));
 
-        // Adding in file
-        final FileConfiguration config = metaItems.getConfig();
-        config.set(metaName, metaItem);
-        try {
-            config.save(metaItems.getFile());
-        } catch (final Exception e) {
-            e.printStackTrace();
-        }
+        // Adding in storage
+        metaItems.getStorage().save(metaName, metaItem);
     }
 
     /**
@@ -98,14 +279,16 @@ public final class BanDatabase {
         // Removing from map
         metaItems.remove(metaItem);
 
-        // Removing from file
-        final FileConfiguration config = metaItems.getConfig();
-        config.set(metaItem, null);
-        try {
-            config.save(metaItems.getFile());
-        } catch (final Exception e) {
-            e.printStackTrace();
-        }
+        // Removing from storage
+        metaItems.getStorage().remove(metaItem);
+    }
+
+    /**
+     * Release the resources of this database <i>(meta items storage)</i>.
+     * This should not be used externally, the database is closed when the plugin is reloaded or disabled.
+     */
+    void close() {
+        metaItems.getStorage().close();
     }
 
     @NotNull
@@ -27,7 +27,7 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * Hooks manager
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public final class BanHooks {
@@ -42,7 +42,7 @@ public final class BanHooks {
      */
     BanHooks(@NotNull final BanItem pl, @NotNull final CommandSender sender) {
         // WorldGuard?
-        if (pl.getBanConfig().getConfig().getBoolean("hooks.worldguard"))
+        if (pl.getBanConfig().getSettings().isWorldGuardHook())
             try {
                 final WorldGuardPlugin worldGuardPlugin = WorldGuardPlugin.inst();
                 if (worldGuardPlugin == null || !worldGuardPlugin.isEnabled()) throw new Exception();
@@ -57,7 +57,7 @@ public final class BanHooks {
             }
 
         // AdvancedEnchantments?
-        if (pl.getBanConfig().getConfig().getBoolean("hooks.advancedenchantments") && pl.getServer().getPluginManager().isPluginEnabled("AdvancedEnchantments")) {
+        if (pl.getBanConfig().getSettings().isAdvancedEnchantmentsHook() && pl.getServer().getPluginManager().isPluginEnabled("AdvancedEnchantments")) {
             try {
                 if (n3kas.ae.api.AEAPI.getAllEnchantments() == null) throw new Exception();
                 isAdvancedEnchantmentsEnabled = true;
@@ -18,6 +18,7 @@
 package fr.andross.banitem;
 
 import fr.andross.banitem.commands.BanCommand;
+import fr.andross.banitem.items.meta.LookupCache;
 import fr.andross.banitem.utils.Chat;
 import fr.andross.banitem.utils.metrics.Metrics;
 import org.bukkit.Bukkit;
@@ -37,7 +38,7 @@ import java.util.List;
 
 /**
  * BanItemPlugin
- * @version 3.3
+ * @version 3.4
  * @author Andross
  */
 public final class BanItem extends JavaPlugin {
@@ -53,21 +54,32 @@ public final class BanItem extends JavaPlugin {
     public void onEnable() {
         instance = this;
         api = new BanItemAPI(this);
-        Bukkit.getScheduler().runTaskLater(this, () -> {
+        utils.getExecutor().runLater(() -> {
             if (!isEnabled()) return;
 
-            // Metrics
-            new Metrics(this, 7822);
+            // Metrics (bStats relies on the Bukkit scheduler)
+            if (!utils.getExecutor().isRegionized()) new Metrics(this, 7822);
 
             // Loading plugin on next tick after worlds
             load(Bukkit.getConsoleSender(), null);
 
             // Update checker
-            if (banConfig.getConfig().getBoolean("check-update"))
-                Bukkit.getScheduler().runTaskAsynchronously(this, utils::checkForUpdate);
+            if (banConfig.getSettings().isCheckUpdate())
+                utils.getExecutor().runAsync(utils::checkForUpdate);
         }, 20L);
     }
 
+    @Override
+    public void onDisable() {
+        utils.getMetrics().stop();
+        utils.getAuditLog().stop();
+        utils.getDenialsNotifier().stop();
+        utils.getCommandQueue().flush();
+        utils.getEnforcement().clear();
+        utils.getChunkScanner().stop();
+        if (banDatabase != null) banDatabase.close();
+    }
+
     /**
      * (re)Loading the plugin with this configuration file.
      * If no config file set, using the default config.yml one.
@@ -79,15 +91,47 @@ public final class BanItem extends JavaPlugin {
 
         // Removing all tasks
         utils.getWearScanner().setEnabled(false);
-        getServer().getScheduler().cancelTasks(this);
+        utils.getExecutor().cancelAll();
 
         // (re)Loading config
         banConfig = new BanConfig(this, sender, configFile);
+        LookupCache.clearAll();
+        utils.getStats().setEnabled(banConfig.getSettings().isStatsEnabled());
+
+        // (re)Starting metrics exporter
+        utils.getMetrics().stop();
+        if (banConfig.getSettings().isMetricsEnabled()) {
+            final String host = banConfig.getSettings().getMetricsHost();
+            final int port = banConfig.getSettings().getMetricsPort();
+            try {
+                utils.getMetrics().start(host, port);
+            } catch (final Exception e) {
+                utils.sendMessage(sender, "&cCan not start the metrics exporter on &e" + host + ":" + port + "&c: " + e.getMessage());
+            }
+        }
+
+        // (re)Loading enforcement scheduler & delete sweeps
+        utils.getEnforcement().load(banConfig.getConfig().getConfigurationSection("enforcement"));
+        utils.getDeleteSweeper().clear();
+        utils.getChunkScanner().load(banConfig.getSettings().isChunkScanner(), banConfig.getSettings().getChunkScannerMaxPending(), banConfig.getSettings().getChunkScannerThreads());
+
+        // (re)Loading commands queue
+        utils.getCommandQueue().load(banConfig.getConfig().getConfigurationSection("commands-queue"));
+
+        // (re)Loading messages limiter
+        utils.getMessageLimiter().load(banConfig.getConfig().getConfigurationSection("messages-limit"));
+
+        // (re)Loading audit log
+        utils.getAuditLog().load(banConfig.getConfig().getConfigurationSection("audit"));
+
+        // (re)Starting denials notifier
+        utils.getDenialsNotifier().start();
 
         // (re)Loading hooks
         hooks = new BanHooks(this, sender);
 
         // (re)Loading database
+        if (banDatabase != null) banDatabase.close();
         banDatabase = new BanDatabase(this, sender, banConfig.getConfig());
 
         // (re)Loading listeners
@@ -95,7 +139,7 @@ public final class BanItem extends JavaPlugin {
 
         // Result
         final long end = System.currentTimeMillis();
-        final boolean moredebug = banConfig.getConfig().getBoolean("debug.reload");
+        final boolean moredebug = banConfig.getSettings().isDebugReload();
         if (moredebug) {
             utils.sendMessage(sender, "&2Successfully loaded &e" + banDatabase.getBlacklist().getTotal() + "&2 blacklisted & &e" + banDatabase.getWhitelist().getTotal() + "&2 whitelisted item(s) &7&o[" + (end - start) + "ms]&2.");
             utils.sendMessage(sender, "&2Listeners activated: &e" + listener.getActivated());
@@ -128,7 +172,7 @@ public final class BanItem extends JavaPlugin {
 
         // Trying to show help?
         if (!sender.hasPermission("banitem.command.help")) {
-            final String message = getConfig().getString("no-permission");
+            final String message = banConfig.getSettings().getNoPermission();
             if (message != null) utils.sendMessage(sender, message);
             return true;
         }
@@ -141,19 +185,22 @@ public final class BanItem extends JavaPlugin {
             utils.sendMessage(sender, " &7- /bi &3help&7: gives additional informations.");
             utils.sendMessage(sender, " &7- /bi &3info&7: get info about your item in hand.");
             utils.sendMessage(sender, " &7- /bi &3load&7: load a specific config file.");
-            utils.sendMessage(sender, " &7- /bi &3log&7: activate the log mode.");
+            utils.sendMessage(sender, " &7- /bi &3log&7: activate the log mode, or search the audit log.");
             utils.sendMessage(sender, " &7- /bi &3metaitem&7: add/remove/list meta items.");
             utils.sendMessage(sender, " &7- /bi &3reload&7: reload the config.");
             utils.sendMessage(sender, " &7- /bi &3remove&7: remove and unban the item if banned.");
+            utils.sendMessage(sender, " &7- /bi &3stats&7: display the ban checks statistics.");
         } else {
             utils.sendMessage(sender, "&7&m     &r &l[&7&lConsole Usage - &e&lv" + getDescription().getVersion() + "&r&l] &7&m     ");
             utils.sendMessage(sender, " &7- /bi &3add&7: add an item in blacklist for current world.");
             utils.sendMessage(sender, " &7- /bi &3check&7: check if any player has a blacklisted item.");
             utils.sendMessage(sender, " &7- /bi &3help&7: gives additional informations.");
             utils.sendMessage(sender, " &7- /bi &3load&7: load a specific config file.");
+            utils.sendMessage(sender, " &7- /bi &3log search&7: search the audit log.");
             utils.sendMessage(sender, " &7- /bi &3metaitem&7: add/remove/list meta items.");
             utils.sendMessage(sender, " &7- /bi &3reload&7: reload the config.");
             utils.sendMessage(sender, " &7- /bi &3remove&7: remove and unban the item if banned.");
+            utils.sendMessage(sender, " &7- /bi &3stats&7: display the ban checks statistics.");
         }
         return true;
     }
@@ -165,7 +212,7 @@ public final class BanItem extends JavaPlugin {
         if (!sender.hasPermission("banitem.command.help")) return Collections.emptyList();
 
         // Sub command
-        if (args.length == 1) return StringUtil.copyPartialMatches(args[0], Arrays.asList("add", "check", "help", "info", "load", "log", "metaitem", "reload", "remove"), new ArrayList<>());
+        if (args.length == 1) return StringUtil.copyPartialMatches(args[0], Arrays.asList("add", "check", "help", "info", "load", "log", "metaitem", "reload", "remove", "stats"), new ArrayList<>());
 
         // Running subcommand
         try {
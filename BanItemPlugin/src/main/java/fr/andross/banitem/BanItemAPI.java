@@ -26,7 +26,9 @@ import fr.andross.banitem.database.WhitelistedWorld;
 import fr.andross.banitem.database.items.CustomItems;
 import fr.andross.banitem.database.items.Items;
 import fr.andross.banitem.items.BannedItem;
+import fr.andross.banitem.items.MaterialSet;
 import fr.andross.banitem.utils.Utils;
+import fr.andross.banitem.utils.stats.BanStats;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -50,7 +52,7 @@ import java.util.stream.Collectors;
  * <p>If you add/remove any action from a map <i>(blacklist/whitelist)</i>, you have to reload the plugin listeners
  * so it can handle correctly the actions, using {@link BanListener#load(CommandSender)} ()}</p>
  * @author Andross
- * @version 3.3
+ * @version 3.4
  */
 public final class BanItemAPI {
     private static BanItemAPI instance;
@@ -99,6 +101,15 @@ public final class BanItemAPI {
         pl.load(sender, configFile);
     }
 
+    /**
+     * Get the statistics of the ban checks, recorded if enabled in the config
+     * @return the statistics of the ban checks
+     */
+    @NotNull
+    public BanStats getStats() {
+        return pl.getUtils().getStats();
+    }
+
     /*------------------------------
      * **********************
      *     MATERIAL CHECK
@@ -284,8 +295,26 @@ public final class BanItemAPI {
      * @return true if this item is banned, otherwise false
      */
     public boolean isBanned(@NotNull final Player player, @Nullable final Location loc, @NotNull final BannedItem item, final boolean sendMessage, @NotNull final BanAction action, @Nullable final BanData... data) {
-        if (pl.getBanDatabase().getBlacklist().isBlacklisted(player, loc, item, sendMessage, action, data)) return true;
-        return !pl.getBanDatabase().getWhitelist().isWhitelisted(player, loc, item, sendMessage, action, data);
+        final BanStats stats = pl.getUtils().getStats();
+        if (!stats.isEnabled()) {
+            if (pl.getBanDatabase().getBlacklist().isBlacklisted(player, loc, item, sendMessage, action, data)) return true;
+            return !pl.getBanDatabase().getWhitelist().isWhitelisted(player, loc, item, sendMessage, action, data);
+        }
+
+        // Recording statistics
+        final long start = System.nanoTime();
+        boolean banned = pl.getBanDatabase().getBlacklist().isBlacklisted(player, loc, item, sendMessage, action, data);
+        long end = System.nanoTime();
+        stats.getBlacklist().record(banned, end - start);
+        if (!banned) {
+            final long whitelistStart = end;
+            banned = !pl.getBanDatabase().getWhitelist().isWhitelisted(player, loc, item, sendMessage, action, data);
+            end = System.nanoTime();
+            stats.getWhitelist().record(banned, end - whitelistStart);
+        }
+        final World world = loc == null ? player.getWorld() : loc.getWorld();
+        stats.record(world == null ? player.getWorld() : world, action, banned, end - start);
+        return banned;
     }
 
     /**
@@ -324,8 +353,87 @@ public final class BanItemAPI {
      * @return true if the item is banned, otherwise false
      */
     public boolean isBanned(@NotNull final World world, @NotNull final BannedItem item, @NotNull final BanAction action, @Nullable final BanData... data) {
-        if (pl.getBanDatabase().getBlacklist().isBlacklisted(world, item, action, data)) return true;
-        return !pl.getBanDatabase().getWhitelist().isWhitelisted(world, item, action, data);
+        final BanStats stats = pl.getUtils().getStats();
+        if (!stats.isEnabled()) {
+            if (pl.getBanDatabase().getBlacklist().isBlacklisted(world, item, action, data)) return true;
+            return !pl.getBanDatabase().getWhitelist().isWhitelisted(world, item, action, data);
+        }
+
+        // Recording statistics
+        final long start = System.nanoTime();
+        boolean banned = pl.getBanDatabase().getBlacklist().isBlacklisted(world, item, action, data);
+        long end = System.nanoTime();
+        stats.getBlacklist().record(banned, end - start);
+        if (!banned) {
+            final long whitelistStart = end;
+            banned = !pl.getBanDatabase().getWhitelist().isWhitelisted(world, item, action, data);
+            end = System.nanoTime();
+            stats.getWhitelist().record(banned, end - whitelistStart);
+        }
+        stats.record(world, action, banned, end - start);
+        return banned;
+    }
+
+    /**
+     * Check a list of items at once, in both blacklist and whitelist.
+     * The world and location of the player are resolved once, and the items which can not be banned
+     * for this action in this world are skipped without any lookup. The others are checked like
+     * {@link #isBanned(Player, Location, BannedItem, boolean, BanAction, BanData...)}, without message.
+     * This is useful to check the content of a menu.
+     * @param player the {@link Player} involved into this action
+     * @param items the items to check, null elements being skipped
+     * @param action the {@link BanAction} to check
+     * @return the indexes of the banned items
+     */
+    @NotNull
+    public BitSet isBannedBatch(@NotNull final Player player, @NotNull final List<ItemStack> items, @NotNull final BanAction action) {
+        final BitSet banned = new BitSet(items.size());
+        final World world = player.getWorld();
+        final BanDatabase database = getDatabase();
+        if (!database.hasCandidates(world, action)) return banned;
+        final Location location = player.getLocation();
+        for (int i = 0; i < items.size(); i++) {
+            final ItemStack item = items.get(i);
+            if (item == null || !database.isCandidate(world, item.getType(), action)) continue;
+            if (isBanned(player, location, new BannedItem(item), false, action)) banned.set(i);
+        }
+        return banned;
+    }
+
+    /**
+     * Check a list of items at once, in both blacklist and whitelist, not involving a player.
+     * The items which can not be banned for this action in this world are skipped without any lookup,
+     * and the others are checked like {@link #isBanned(World, BannedItem, BanAction, BanData...)}.
+     * @param world bukkit world <i>({@link World})</i>
+     * @param items the items to check, null elements being skipped
+     * @param action the ban action to check
+     * @return the indexes of the banned items
+     */
+    @NotNull
+    public BitSet isBannedBatch(@NotNull final World world, @NotNull final List<ItemStack> items, @NotNull final BanAction action) {
+        final BitSet banned = new BitSet(items.size());
+        final BanDatabase database = getDatabase();
+        if (!database.hasCandidates(world, action)) return banned;
+        for (int i = 0; i < items.size(); i++) {
+            final ItemStack item = items.get(i);
+            if (item == null || !database.isCandidate(world, item.getType(), action)) continue;
+            if (isBanned(world, new BannedItem(item), action)) banned.set(i);
+        }
+        return banned;
+    }
+
+    /**
+     * Get the materials always banned for this action in this world, whatever the item meta,
+     * when no player is involved. See {@link BanDatabase#getBannedMaterials(World, BanAction)}.
+     * The returned set is immutable and can be kept: a new set is computed when the bans change.
+     * The materials not in this set can still be banned depending on their meta, the player or the action data.
+     * @param world bukkit world <i>({@link World})</i>
+     * @param action the ban action
+     * @return the immutable set of materials always banned
+     */
+    @NotNull
+    public MaterialSet getBannedMaterials(@NotNull final World world, @NotNull final BanAction action) {
+        return getDatabase().getBannedMaterials(world, action);
     }
 
     /**
@@ -497,7 +605,10 @@ public final class BanItemAPI {
             }
         }
 
-        if (removed) pl.getBanConfig().saveConfig();
+        if (removed) {
+            getDatabase().invalidateCandidates();
+            pl.getBanConfig().saveConfig();
+        }
         return removed;
     }
 
@@ -530,11 +641,11 @@ public final class BanItemAPI {
         // Getting the name of the item
         final String name = pl.getBanDatabase().getName(item);
 
-        final ConfigurationSection section = pl.getBanConfig().getConfig().createSection("whitelist." + ww.getWorld().getName() + "." + name);
+        final ConfigurationSection section = pl.getBanConfig().getConfig().createSection("whitelist." + ww.getWorldName() + "." + name);
         for (Map.Entry<BanAction, BanActionData> entry : actions.entrySet()) {
             section.set(entry.getKey().getName(), entry.getValue().serialize());
         }
-        pl.getBanConfig().getConfig().set("whitelist." + ww.getWorld().getName() + "." + name, section);
+        pl.getBanConfig().getConfig().set("whitelist." + ww.getWorldName() + "." + name, section);
         return pl.getBanConfig().saveConfig();
     }
 
@@ -547,11 +658,12 @@ public final class BanItemAPI {
     public boolean removeFromWhitelist(@NotNull final WhitelistedWorld ww, @NotNull final BannedItem item) {
         // Removing from map
         if (ww.getItems().remove(item) == null) return true; // Nothing to remove
+        getDatabase().invalidateCandidates();
 
         // Removing from config
         // Getting the name of the item
         final String name = pl.getBanDatabase().getName(item);
-        pl.getBanConfig().getConfig().set("whitelist." + ww.getWorld().getName() + "." + name, null);
+        pl.getBanConfig().getConfig().set("whitelist." + ww.getWorldName() + "." + name, null);
         return pl.getBanConfig().saveConfig();
     }
 
@@ -25,11 +25,14 @@ import fr.andross.banitem.utils.BanVersion;
 import fr.andross.banitem.utils.Chat;
 import fr.andross.banitem.utils.ItemStackBuilder;
 import fr.andross.banitem.utils.Utils;
-import fr.andross.banitem.utils.enchantments.EnchantmentWrapper;
 import fr.andross.banitem.utils.hooks.IWorldGuardHook;
+import fr.andross.banitem.utils.scanners.EnforcementScheduler;
+import fr.andross.banitem.utils.stats.LatencyHistogram;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.command.CommandSender;
 import org.bukkit.enchantments.Enchantment;
@@ -45,14 +48,14 @@ import org.bukkit.event.entity.EntityDeathEvent;
 import org.bukkit.event.hanging.HangingPlaceEvent;
 import org.bukkit.event.inventory.*;
 import org.bukkit.event.player.*;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.inventory.*;
 import org.bukkit.plugin.EventExecutor;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * <p>This class is used to register only the needed listeners.
@@ -61,13 +64,16 @@ import java.util.Set;
  * We are ignoring the deprecation warning, as these methods are used across multiple Bukkit version.
  *
  * @author Andross
- * @version 3.3.2
+ * @version 3.4
  */
 @SuppressWarnings("deprecation")
 public final class BanListener {
+    private static final Material[] BREW_OUTPUTS = Arrays.stream(new String[] { "SPLASH_POTION", "LINGERING_POTION" })
+            .map(Material::getMaterial).filter(Objects::nonNull).toArray(Material[]::new); // materials a bottle can turn into
     private final BanItem pl;
     private final Listener listener = new Listener() {};
     private int activated = 0;
+    private boolean timed = false;
 
     BanListener(@NotNull final BanItem pl) {
         this.pl = pl;
@@ -88,6 +94,17 @@ public final class BanListener {
         final boolean all = blacklist.size() == BanAction.values().length; // check if a '*' is used, if so, do not notify for version uncompatibility
         HandlerList.unregisterAll(pl);
         activated = 0;
+        timed = pl.getUtils().getStats().isEnabled() || pl.getUtils().getMetrics().isRunning();
+
+        // Worlds lifecycle: binding the rules of the worlds loaded later, releasing the unloaded ones
+        registerEvent(WorldLoadEvent.class, (li, event) -> {
+            if (db.bindWorld(((WorldLoadEvent) event).getWorld())) load(Bukkit.getConsoleSender());
+        }, false);
+        Bukkit.getPluginManager().registerEvent(WorldUnloadEvent.class, listener, EventPriority.MONITOR, (li, event) -> db.releaseWorld(((WorldUnloadEvent) event).getWorld()), pl, true);
+
+        // Messages limiter clearing
+        if (!blacklist.isEmpty() || whitelist)
+            registerEvent(PlayerQuitEvent.class, (li, event) -> pl.getUtils().getMessageLimiter().remove(((PlayerQuitEvent) event).getPlayer().getUniqueId()), false);
 
         // Registering listeners, only if action is used
         if (blacklist.contains(BanAction.ARMORSTANDPLACE) || whitelist) {
@@ -166,22 +183,38 @@ public final class BanListener {
         if (blacklist.contains(BanAction.BREW) || whitelist) {
             registerEvent(BrewEvent.class, (li, event) -> {
                 final BrewEvent e = (BrewEvent) event;
-                final ItemStack ingridient = e.getContents().getIngredient() == null ? null : e.getContents().getIngredient().clone();
-                final List<ItemStack> items = new ArrayList<>();
-                for (final ItemStack item : e.getContents().getContents()) {
-                    if (Utils.isNullOrAir(item)) items.add(null);
-                    else items.add(item.clone());
+                final World world = e.getBlock().getWorld();
+                final BanDatabase database = pl.getBanDatabase();
+                if (!database.hasCandidates(world, BanAction.BREW)) return;
+
+                // Only the bottles which may be banned once brewed are saved
+                boolean outputCandidate = false;
+                for (final Material output : BREW_OUTPUTS)
+                    if (database.isCandidate(world, output, BanAction.BREW)) outputCandidate = true;
+                final BrewerInventory inv = e.getContents();
+                final ItemStack[] bottles = new ItemStack[3];
+                boolean candidate = false;
+                for (int i = 0; i < 3; i++) {
+                    final ItemStack item = inv.getItem(i);
+                    if (Utils.isNullOrAir(item)) continue;
+                    if (!outputCandidate && !database.isCandidate(world, item.getType(), BanAction.BREW)) continue;
+                    bottles[i] = item.clone();
+                    candidate = true;
                 }
-                Bukkit.getScheduler().runTask(pl, () -> {
-                    final BrewerInventory inv = e.getContents();
+                if (!candidate) return;
+
+                final ItemStack ingridient = inv.getIngredient() == null ? null : inv.getIngredient().clone();
+                final Location location = e.getBlock().getLocation();
+                pl.getUtils().getEnforcement().submit(EnforcementScheduler.Priority.HIGH, location, () -> {
                     for (int i = 0; i < 3; i++) {
+                        if (bottles[i] == null) continue; // can not be banned
                         final ItemStack item = inv.getItem(i);
                         if (Utils.isNullOrAir(item)) continue;
-                        if (api.isBanned(e.getBlock().getWorld(), item, BanAction.BREW)) {
+                        if (api.isBanned(world, item, BanAction.BREW)) {
                             if (!inv.getViewers().isEmpty())
-                                if (!api.isBanned((Player) inv.getViewers().get(0), e.getBlock().getLocation(), item, true, BanAction.BREW))
+                                if (!api.isBanned((Player) inv.getViewers().get(0), location, item, true, BanAction.BREW))
                                     continue;
-                            inv.setItem(i, items.get(i));
+                            inv.setItem(i, bottles[i]);
                             inv.setIngredient(ingridient);
                         }
                     }
@@ -238,14 +271,53 @@ public final class BanListener {
         }
 
         if (blacklist.contains(BanAction.DELETE)) {
+            // Only marking the slots, swept on the next tick
             registerEvent(InventoryOpenEvent.class, (ll, event) -> {
                 final InventoryOpenEvent e = (InventoryOpenEvent) event;
-                pl.getUtils().deleteItemFromInventoryView((Player) e.getPlayer());
+                if (e.getPlayer() instanceof Player) pl.getUtils().getDeleteSweeper().markView((Player) e.getPlayer(), e.getView());
             }, priority.contains(BanAction.DELETE));
+            registerEvent(InventoryClickEvent.class, (ll, event) -> {
+                final InventoryClickEvent e = (InventoryClickEvent) event;
+                if (e.getWhoClicked() instanceof Player) pl.getUtils().getDeleteSweeper().markClick((Player) e.getWhoClicked(), e);
+            }, priority.contains(BanAction.DELETE));
+            registerEvent(InventoryDragEvent.class, (ll, event) -> {
+                final InventoryDragEvent e = (InventoryDragEvent) event;
+                if (e.getWhoClicked() instanceof Player) pl.getUtils().getDeleteSweeper().markRawSlots((Player) e.getWhoClicked(), e.getView(), e.getRawSlots());
+            }, priority.contains(BanAction.DELETE));
+            // Closing an inventory, including the player own inventory which does not fire any open event
             registerEvent(InventoryCloseEvent.class, (ll, event) -> {
                 final InventoryCloseEvent e = (InventoryCloseEvent) event;
-                pl.getUtils().deleteItemFromInventoryView((Player) e.getPlayer());
+                if (e.getPlayer() instanceof Player) pl.getUtils().getDeleteSweeper().markView((Player) e.getPlayer(), e.getView());
             }, priority.contains(BanAction.DELETE));
+            // Picked up items
+            if (BanVersion.v12OrMore)
+                registerEvent(org.bukkit.event.entity.EntityPickupItemEvent.class, (ll, event) -> {
+                    final org.bukkit.event.entity.EntityPickupItemEvent e = (org.bukkit.event.entity.EntityPickupItemEvent) event;
+                    if (e.getEntity() instanceof Player) pl.getUtils().getDeleteSweeper().markPlayerInventory((Player) e.getEntity());
+                }, priority.contains(BanAction.DELETE));
+            else
+                registerEvent(org.bukkit.event.player.PlayerPickupItemEvent.class, (ll, event) -> {
+                    final org.bukkit.event.player.PlayerPickupItemEvent e = (org.bukkit.event.player.PlayerPickupItemEvent) event;
+                    pl.getUtils().getDeleteSweeper().markPlayerInventory(e.getPlayer());
+                }, priority.contains(BanAction.DELETE));
+            // Joining players, for the items added while offline
+            registerEvent(PlayerJoinEvent.class, (ll, event) -> {
+                final PlayerJoinEvent e = (PlayerJoinEvent) event;
+                pl.getUtils().getDeleteSweeper().markPlayerInventory(e.getPlayer());
+            }, priority.contains(BanAction.DELETE));
+
+            // Scanning the containers & entities of the loaded chunks?
+            if (pl.getUtils().getChunkScanner().isEnabled())
+                registerEvent(ChunkLoadEvent.class, (ll, event) -> {
+                    final ChunkLoadEvent e = (ChunkLoadEvent) event;
+                    if (!e.isNewChunk()) pl.getUtils().getChunkScanner().scan(e.getChunk());
+                }, priority.contains(BanAction.DELETE));
+            // >=1.17: entities are loaded separately
+            if (pl.getUtils().getChunkScanner().isEnabled() && BanVersion.v17OrMore)
+                registerEvent(org.bukkit.event.world.EntitiesLoadEvent.class, (ll, event) -> {
+                    final org.bukkit.event.world.EntitiesLoadEvent e = (org.bukkit.event.world.EntitiesLoadEvent) event;
+                    pl.getUtils().getChunkScanner().scan(e.getWorld(), e.getEntities());
+                }, priority.contains(BanAction.DELETE));
         }
 
         if (blacklist.contains(BanAction.DISPENSE) || whitelist) {
@@ -285,7 +357,7 @@ public final class BanListener {
             registerEvent(EnchantItemEvent.class, (li, event) -> {
                 if (!(event instanceof EnchantItemEvent)) return;
                 final EnchantItemEvent e = (EnchantItemEvent) event;
-                if (api.isBanned(e.getEnchanter(), e.getEnchantBlock().getLocation(), e.getItem(), true, BanAction.ENCHANT, new BanData(BanDataType.ENCHANTMENT, EnchantmentWrapper.from(e.getEnchantsToAdd()))))
+                if (api.isBanned(e.getEnchanter(), e.getEnchantBlock().getLocation(), e.getItem(), true, BanAction.ENCHANT, new BanData(BanDataType.ENCHANTMENT, e.getEnchantsToAdd())))
                     e.setCancelled(true);
             }, priority.contains(BanAction.ENCHANT));
 
@@ -312,7 +384,7 @@ public final class BanListener {
                     // Getting the player
                     if (e.getViewers().size() == 0) return;
                     final Player p = (Player) e.getViewers().get(0);
-                    if (api.isBanned(p, item, true, BanAction.ENCHANT, new BanData(BanDataType.ENCHANTMENT, EnchantmentWrapper.from(enchants)))) {
+                    if (api.isBanned(p, item, true, BanAction.ENCHANT, new BanData(BanDataType.ENCHANTMENT, enchants))) {
                         e.setResult(finalDenied);
                         e.getInventory().setRepairCost(0);
                     }
@@ -329,7 +401,7 @@ public final class BanListener {
                     final Map<Enchantment, Integer> enchants = Utils.getAllEnchants(addedItem);
                     if (enchants.isEmpty()) return;
                     final Player p = (Player) e.getWhoClicked();
-                    if (api.isBanned(p, item, true, BanAction.ENCHANT, new BanData(BanDataType.ENCHANTMENT, EnchantmentWrapper.from(enchants)))) {
+                    if (api.isBanned(p, item, true, BanAction.ENCHANT, new BanData(BanDataType.ENCHANTMENT, enchants))) {
                         e.getInventory().setItem(2, null);
                         p.updateInventory();
                         if (e.getRawSlot() == 2) e.setCancelled(true);
@@ -337,14 +409,14 @@ public final class BanListener {
                     }
 
                     // Checking also on next tick
-                    Bukkit.getScheduler().runTask(pl, () -> {
+                    pl.getUtils().getExecutor().run(p, () -> {
                         final ItemStack item2 = e.getInventory().getItem(0);
                         if (item2 == null) return;
                         final ItemStack addedItem2 = e.getInventory().getItem(1);
                         if (addedItem2 == null) return;
                         final Map<Enchantment, Integer> enchants2 = Utils.getAllEnchants(addedItem);
                         if (enchants2.isEmpty()) return;
-                        if (api.isBanned(p, item, true, BanAction.ENCHANT, new BanData(BanDataType.ENCHANTMENT, EnchantmentWrapper.from(enchants)))) {
+                        if (api.isBanned(p, item, true, BanAction.ENCHANT, new BanData(BanDataType.ENCHANTMENT, enchants))) {
                             e.getInventory().setItem(2, null);
                             p.updateInventory();
                             if (e.getRawSlot() == 2) e.setCancelled(true);
@@ -406,8 +478,7 @@ public final class BanListener {
                         p.setSneaking(true);
 
                         // Removing the elytra from player Inventory, to prevent any glitch
-                        Bukkit.getScheduler().runTask(pl, () -> {
-                            if (!p.isOnline()) return;
+                        pl.getUtils().getExecutor().run(p, () -> {
                             p.setGliding(false);
                             p.setSneaking(true);
 
@@ -563,9 +634,6 @@ public final class BanListener {
         }
 
         if (blacklist.contains(BanAction.PICKUP) || whitelist) {
-            // Pickup cooldown map clearing
-            registerEvent(PlayerQuitEvent.class, (li, event) -> pl.getUtils().getMessagesCooldown().remove(((PlayerQuitEvent) event).getPlayer().getUniqueId()), priority.contains(BanAction.PICKUP));
-
             // >=1.12: EntityPickupItemEvent
             // <1.12: PlayerPickupItemEvent
             final EventExecutor ee;
@@ -645,12 +713,13 @@ public final class BanListener {
 
             }, priority.contains(BanAction.RENAME));
 
-            final List<String> renameCommands = pl.getBanConfig().getConfig().getStringList("actions.rename");
+            final List<String> renameCommands = pl.getBanConfig().getSettings().getRenameCommands();
             if (renameCommands.size() > 0)
                 registerEvent(PlayerCommandPreprocessEvent.class, (li, event) -> {
                     final PlayerCommandPreprocessEvent e = (PlayerCommandPreprocessEvent) event;
+                    final String message = e.getMessage().toLowerCase();
                     for (final String command : renameCommands)
-                        if (e.getMessage().toLowerCase().startsWith(command.toLowerCase()))
+                        if (message.startsWith(command))
                             if (api.isBanned(e.getPlayer(), Utils.getItemInHand(e.getPlayer()), true, BanAction.RENAME)) {
                                 e.setCancelled(true);
                                 return;
@@ -663,15 +732,19 @@ public final class BanListener {
                 if (!(event instanceof FurnaceSmeltEvent)) return;
                 final FurnaceSmeltEvent e = (FurnaceSmeltEvent) event;
                 final ItemStack item = e.getSource();
-                final BlockState blockState = e.getBlock().getState();
+                final Block block = e.getBlock();
+                final World world = block.getWorld();
+                if (!pl.getBanDatabase().isCandidate(world, item.getType(), BanAction.SMELT)) return;
+                if (!api.isBanned(world, item, BanAction.SMELT)) return;
+
+                // Banned: the block state is only needed to get the viewers
+                final BlockState blockState = block.getState();
                 if (blockState instanceof InventoryHolder) {
                     final InventoryHolder holder = (InventoryHolder) blockState;
-                    if (api.isBanned(blockState.getWorld(), item, BanAction.SMELT)) {
-                        if (!holder.getInventory().getViewers().isEmpty())
-                            if (!api.isBanned((Player) holder.getInventory().getViewers().get(0), blockState.getLocation(), item, true, BanAction.SMELT))
-                                return;
-                        e.setCancelled(true);
-                    }
+                    if (!holder.getInventory().getViewers().isEmpty())
+                        if (!api.isBanned((Player) holder.getInventory().getViewers().get(0), block.getLocation(), item, true, BanAction.SMELT))
+                            return;
+                    e.setCancelled(true);
                 }
             }, priority.contains(BanAction.SMELT));
         }
@@ -845,7 +918,7 @@ public final class BanListener {
             }, priority.contains(BanAction.TRANSFER));
 
             // Hoppers block?
-            if (pl.getBanConfig().getConfig().getBoolean("actions.transfer.hoppers-block"))
+            if (pl.getBanConfig().getSettings().isHoppersBlock())
                 registerEvent(InventoryMoveItemEvent.class, (li, event) -> {
                     final InventoryMoveItemEvent e = (InventoryMoveItemEvent) event;
                     if (e.getSource().getHolder() instanceof BlockState) {
@@ -877,14 +950,14 @@ public final class BanListener {
 
                 // Armor interaction?
                 if (e.getRawSlot() >= 5 && e.getRawSlot() <= 8) {
-                    Bukkit.getScheduler().runTask(pl, () -> pl.getUtils().checkPlayerArmors((Player) e.getWhoClicked()));
+                    pl.getUtils().checkPlayerArmorsLater((Player) e.getWhoClicked(), EnforcementScheduler.Priority.HIGH);
                     return;
                 }
 
                 // Trying to shift click item to armor?
                 final ItemStack currentItem = e.getCurrentItem();
                 if (e.isShiftClick() && !Utils.isNullOrAir(currentItem)) {
-                    Bukkit.getScheduler().runTask(pl, () -> pl.getUtils().checkPlayerArmors((Player) e.getWhoClicked()));
+                    pl.getUtils().checkPlayerArmorsLater((Player) e.getWhoClicked(), EnforcementScheduler.Priority.HIGH);
                     return;
                 }
 
@@ -892,16 +965,16 @@ public final class BanListener {
                 if (e.getRawSlot() >= 5 && e.getRawSlot() <= 8 && e.getHotbarButton() > -1) {
                     final ItemStack item = e.getView().getBottomInventory().getItem(e.getHotbarButton());
                     if (!Utils.isNullOrAir(item))
-                        Bukkit.getScheduler().runTask(pl, () -> pl.getUtils().checkPlayerArmors((Player) e.getWhoClicked()));
+                        pl.getUtils().checkPlayerArmorsLater((Player) e.getWhoClicked(), EnforcementScheduler.Priority.HIGH);
                 }
             }, priority.contains(BanAction.WEAR));
 
             registerEvent(PlayerChangedWorldEvent.class, (li, event) -> {
                 final PlayerChangedWorldEvent e = (PlayerChangedWorldEvent) event;
-                Bukkit.getScheduler().runTask(pl, () -> pl.getUtils().checkPlayerArmors(e.getPlayer()));
+                pl.getUtils().checkPlayerArmorsLater(e.getPlayer(), EnforcementScheduler.Priority.HIGH);
             }, priority.contains(BanAction.WEAR));
 
-            if (pl.getBanConfig().getConfig().getBoolean("actions.wear.region-check") && pl.getHooks().isWorldGuardEnabled()) {
+            if (pl.getBanConfig().getSettings().isWearRegionCheck() && pl.getHooks().isWorldGuardEnabled()) {
                 final IWorldGuardHook hook = pl.getHooks().getWorldGuardHook();
                 if (hook == null)
                     sender.sendMessage(Chat.color("&cCan not use the region checker for wear action, as worldguard is not reachable."));
@@ -920,25 +993,38 @@ public final class BanListener {
 
                     registerEvent(PlayerRegionChangeEvent.class, (li, event) -> {
                         final PlayerRegionChangeEvent e = (PlayerRegionChangeEvent) event;
-                        Bukkit.getScheduler().runTask(pl, () -> pl.getUtils().checkPlayerArmors(e.getPlayer()));
+                        pl.getUtils().checkPlayerArmorsLater(e.getPlayer(), EnforcementScheduler.Priority.HIGH);
                     }, priority.contains(BanAction.WEAR));
                 }
             }
 
             // Scanner?
-            pl.getUtils().getWearScanner().setEnabled(pl.getBanConfig().getConfig().getBoolean("actions.wear.scanner"));
+            pl.getUtils().getWearScanner().setEnabled(pl.getBanConfig().getSettings().isWearScanner());
         }
     }
 
     /**
-     * Registering a needed event
+     * Registering a needed event.
+     * If the statistics or the metrics exporter are enabled, the execution time of the executor is recorded.
      *
      * @param c        the event class
      * @param ee       the event executor
      * @param priority if the event should have maximum priority
      */
     private void registerEvent(@NotNull final Class<? extends Event> c, @NotNull final EventExecutor ee, final boolean priority) {
-        Bukkit.getPluginManager().registerEvent(c, listener, (priority ? EventPriority.LOWEST : EventPriority.NORMAL), ee, pl, !priority);
+        EventExecutor executor = ee;
+        if (timed) {
+            final LatencyHistogram histogram = pl.getUtils().getStats().getListener(c.getSimpleName());
+            executor = (li, event) -> {
+                final long start = System.nanoTime();
+                try {
+                    ee.execute(li, event);
+                } finally {
+                    histogram.record(System.nanoTime() - start);
+                }
+            };
+        }
+        Bukkit.getPluginManager().registerEvent(c, listener, (priority ? EventPriority.LOWEST : EventPriority.NORMAL), executor, pl, !priority);
         activated++;
     }
 
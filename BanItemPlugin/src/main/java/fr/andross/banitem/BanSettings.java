@@ -0,0 +1,229 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The settings of a ban configuration, resolved once when the configuration is loaded.
+ * The checks read these values instead of looking them up in the FileConfiguration.
+ * The settings are immutable: a new instance is created on each reload.
+ * @version 3.4
+ * @author Andross
+ */
+public final class BanSettings {
+    private final boolean playerBanItemEvent;
+    private final boolean deleteBannedItemEvent;
+    private final boolean colorsConsole;
+    private final boolean debugErrors;
+    private final boolean debugReload;
+    private final boolean checkUpdate;
+    private final boolean statsEnabled;
+    private final boolean metricsEnabled;
+    private final String metricsHost;
+    private final int metricsPort;
+    private final String noPermission;
+    private final List<String> renameCommands;
+    private final boolean hoppersBlock;
+    private final boolean wearRegionCheck;
+    private final boolean wearScanner;
+    private final boolean chunkScanner;
+    private final int chunkScannerMaxPending;
+    private final int chunkScannerThreads;
+    private final boolean worldGuardHook;
+    private final boolean advancedEnchantmentsHook;
+
+    /**
+     * Resolving the settings of the configuration.
+     * This should not be used externally, the settings are available with {@link BanConfig#getSettings()}.
+     * @param config the loaded configuration
+     */
+    BanSettings(@NotNull final FileConfiguration config) {
+        playerBanItemEvent = config.getBoolean("api.playerbanitemevent");
+        deleteBannedItemEvent = config.getBoolean("api.deletebanneditemevent");
+        colorsConsole = config.getBoolean("debug.colors-console");
+        debugErrors = config.getBoolean("debug.errors");
+        debugReload = config.getBoolean("debug.reload");
+        checkUpdate = config.getBoolean("check-update");
+        statsEnabled = config.getBoolean("stats.enabled");
+        metricsEnabled = config.getBoolean("metrics.enabled");
+        metricsHost = config.getString("metrics.host", "127.0.0.1");
+        metricsPort = config.getInt("metrics.port", 9464);
+        noPermission = config.getString("no-permission");
+        renameCommands = Collections.unmodifiableList(config.getStringList("actions.rename").stream()
+                .map(String::toLowerCase)
+                .collect(Collectors.toList()));
+        hoppersBlock = config.getBoolean("actions.transfer.hoppers-block");
+        wearRegionCheck = config.getBoolean("actions.wear.region-check");
+        wearScanner = config.getBoolean("actions.wear.scanner");
+        chunkScanner = config.getBoolean("actions.delete.chunk-scanner.enabled");
+        chunkScannerMaxPending = config.getInt("actions.delete.chunk-scanner.max-pending", 64);
+        chunkScannerThreads = config.getInt("actions.delete.chunk-scanner.threads", 2);
+        worldGuardHook = config.getBoolean("hooks.worldguard");
+        advancedEnchantmentsHook = config.getBoolean("hooks.advancedenchantments");
+    }
+
+    /**
+     * @return if the {@link fr.andross.banitem.events.PlayerBanItemEvent} should be called <i>(api.playerbanitemevent)</i>
+     */
+    public boolean isPlayerBanItemEvent() {
+        return playerBanItemEvent;
+    }
+
+    /**
+     * @return if the {@link fr.andross.banitem.events.DeleteBannedItemEvent} should be called <i>(api.deletebanneditemevent)</i>
+     */
+    public boolean isDeleteBannedItemEvent() {
+        return deleteBannedItemEvent;
+    }
+
+    /**
+     * @return if the messages sent to the console keep their colors <i>(debug.colors-console)</i>
+     */
+    public boolean isColorsConsole() {
+        return colorsConsole;
+    }
+
+    /**
+     * @return if the detailed configuration errors are shown <i>(debug.errors)</i>
+     */
+    public boolean isDebugErrors() {
+        return debugErrors;
+    }
+
+    /**
+     * @return if more information is shown on reload <i>(debug.reload)</i>
+     */
+    public boolean isDebugReload() {
+        return debugReload;
+    }
+
+    /**
+     * @return if the plugin should check for updates <i>(check-update)</i>
+     */
+    public boolean isCheckUpdate() {
+        return checkUpdate;
+    }
+
+    /**
+     * @return if the check statistics are collected <i>(stats.enabled)</i>
+     */
+    public boolean isStatsEnabled() {
+        return statsEnabled;
+    }
+
+    /**
+     * @return if the metrics exporter is enabled <i>(metrics.enabled)</i>
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * @return the host of the metrics exporter <i>(metrics.host)</i>
+     */
+    @NotNull
+    public String getMetricsHost() {
+        return metricsHost;
+    }
+
+    /**
+     * @return the port of the metrics exporter <i>(metrics.port)</i>
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    /**
+     * @return the message sent without permission, null if none <i>(no-permission)</i>
+     */
+    @Nullable
+    public String getNoPermission() {
+        return noPermission;
+    }
+
+    /**
+     * @return the commands checked for the rename action, in lower case <i>(actions.rename)</i>
+     */
+    @NotNull
+    public List<String> getRenameCommands() {
+        return renameCommands;
+    }
+
+    /**
+     * @return if the hoppers transfers are checked <i>(actions.transfer.hoppers-block)</i>
+     */
+    public boolean isHoppersBlock() {
+        return hoppersBlock;
+    }
+
+    /**
+     * @return if the armors are checked when the player changes of region <i>(actions.wear.region-check)</i>
+     */
+    public boolean isWearRegionCheck() {
+        return wearRegionCheck;
+    }
+
+    /**
+     * @return if the wear scanner is enabled <i>(actions.wear.scanner)</i>
+     */
+    public boolean isWearScanner() {
+        return wearScanner;
+    }
+
+    /**
+     * @return if the containers & entities of the loaded chunks are scanned <i>(actions.delete.chunk-scanner.enabled)</i>
+     */
+    public boolean isChunkScanner() {
+        return chunkScanner;
+    }
+
+    /**
+     * @return the maximum amount of chunks waiting to be checked by the chunk scanner <i>(actions.delete.chunk-scanner.max-pending)</i>
+     */
+    public int getChunkScannerMaxPending() {
+        return chunkScannerMaxPending;
+    }
+
+    /**
+     * @return the amount of worker threads checking the chunks scanned <i>(actions.delete.chunk-scanner.threads)</i>
+     */
+    public int getChunkScannerThreads() {
+        return chunkScannerThreads;
+    }
+
+    /**
+     * @return if the plugin should hook into WorldGuard <i>(hooks.worldguard)</i>
+     */
+    public boolean isWorldGuardHook() {
+        return worldGuardHook;
+    }
+
+    /**
+     * @return if the plugin should hook into AdvancedEnchantments <i>(hooks.advancedenchantments)</i>
+     */
+    public boolean isAdvancedEnchantmentsHook() {
+        return advancedEnchantmentsHook;
+    }
+}
@@ -22,15 +22,25 @@ import fr.andross.banitem.actions.BanActionData;
 import fr.andross.banitem.actions.BanData;
 import fr.andross.banitem.actions.BanDataType;
 import fr.andross.banitem.database.Blacklist;
-import fr.andross.banitem.events.DeleteBannedItemEvent;
 import fr.andross.banitem.items.BannedItem;
 import fr.andross.banitem.utils.Chat;
+import fr.andross.banitem.utils.CommandQueue;
+import fr.andross.banitem.utils.MessageLimiter;
 import fr.andross.banitem.utils.Utils;
+import fr.andross.banitem.utils.audit.AuditLog;
+import fr.andross.banitem.utils.audit.DenialsNotifier;
 import fr.andross.banitem.utils.debug.Debug;
 import fr.andross.banitem.utils.enchantments.EnchantmentWrapper;
 import fr.andross.banitem.utils.list.ListType;
 import fr.andross.banitem.utils.list.Listable;
+import fr.andross.banitem.utils.scanners.ChunkScanner;
+import fr.andross.banitem.utils.scanners.DeleteSweeper;
+import fr.andross.banitem.utils.scanners.EnforcementScheduler;
 import fr.andross.banitem.utils.scanners.WearScanner;
+import fr.andross.banitem.utils.scheduler.TaskExecutor;
+import fr.andross.banitem.utils.text.MessageTemplate;
+import fr.andross.banitem.utils.stats.BanStats;
+import fr.andross.banitem.utils.stats.PrometheusExporter;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.World;
@@ -40,36 +50,56 @@ import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.EntityEquipment;
-import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.net.ssl.HttpsURLConnection;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * An utility class for the plugin
- * @version 3.3
+ * @version 3.4
  * @author Andross
  */
 public final class BanUtils {
     private final BanItem pl;
+    private final TaskExecutor executor;
+    private final EnforcementScheduler enforcement;
     private final WearScanner wearScanner;
+    private final DeleteSweeper deleteSweeper;
+    private final ChunkScanner chunkScanner;
     private final Map<String, String> commandsAliases = new HashMap<>();
-    private final Map<UUID, Long> messagesCooldown = new HashMap<>();
-    private final Set<UUID> logging = new HashSet<>();
+    private final Map<UUID, Long> messagesCooldown = new ConcurrentHashMap<>(); // not used anymore, see getMessagesCooldown()
+    private final MessageLimiter messageLimiter;
+    private final CommandQueue commandQueue;
+    private final Set<UUID> logging = ConcurrentHashMap.newKeySet(); // read by the threads owning the players
+    private final BanStats stats = new BanStats();
+    private final PrometheusExporter metrics;
+    private final AuditLog auditLog;
+    private final DenialsNotifier denialsNotifier;
+    private volatile List<MessageTemplate> lastMessages; // templates of the last messages list sent
 
     BanUtils(final BanItem pl) {
         this.pl = pl;
+        this.executor = TaskExecutor.create(pl);
+        this.enforcement = new EnforcementScheduler(executor);
         this.wearScanner = new WearScanner(pl, this);
+        this.deleteSweeper = new DeleteSweeper(pl, executor, enforcement);
+        this.chunkScanner = new ChunkScanner(pl, enforcement);
+        this.auditLog = new AuditLog(new File(pl.getDataFolder(), "audit"));
+        this.denialsNotifier = new DenialsNotifier(executor);
+        this.messageLimiter = new MessageLimiter(pl, executor);
+        this.commandQueue = new CommandQueue(executor);
+        this.metrics = new PrometheusExporter(stats, commandQueue, enforcement);
         commandsAliases.put("mi", "metaitem");
         commandsAliases.put("rl", "reload");
     }
@@ -224,47 +254,12 @@ public final class BanUtils {
     }
 
     /**
-     * Method to check and delete banned item from the player opened inventories
+     * Method to check and delete banned item from the player opened inventories, now.
+     * The listeners use the {@link DeleteSweeper} instead, checking only the touched slots on the next tick.
      * @param player any player
      */
     public void deleteItemFromInventoryView(@NotNull final Player player) {
-        // Op or all permissions?
-        if (player.isOp() || player.hasPermission("banitem.bypass.*")) return;
-
-        // Getting blacklist
-        final Blacklist blacklist = pl.getBanDatabase().getBlacklist();
-        if (!blacklist.containsKey(player.getWorld())) return; // nothing banned in this world
-
-        // Checking!
-        final Inventory[] invs;
-        final InventoryView iv = player.getOpenInventory();
-        final Inventory top = iv.getTopInventory();
-        final Inventory bottom = iv.getBottomInventory();
-        if (top.equals(bottom))
-            invs = new Inventory[] { top };
-        else
-            invs = new Inventory[] { top, bottom };
-
-        for (final Inventory inv : invs) {
-            // Ignored inventory?
-            final String name = Chat.uncolor(iv.getTitle());
-            if (pl.getBanConfig().getIgnoredInventoryTitles().contains(name)) continue;
-
-            for (int i = 0; i < inv.getSize(); i++) {
-                final ItemStack item = inv.getItem(i);
-                if (Utils.isNullOrAir(item)) continue;
-                final BannedItem bannedItem = new BannedItem(item);
-                if (pl.getApi().isBanned(player, player.getLocation(), bannedItem, BanAction.DELETE)) {
-                    if (pl.getConfig().getBoolean("api.deletebanneditemevent")) {
-                        final DeleteBannedItemEvent event = new DeleteBannedItemEvent(player, bannedItem);
-                        Bukkit.getPluginManager().callEvent(event);
-                        if (event.isCancelled()) continue;
-                    }
-
-                    inv.clear(i);
-                }
-            }
-        }
+        deleteSweeper.sweepNow(player);
     }
 
     /**
@@ -276,43 +271,37 @@ public final class BanUtils {
      * @param data the ban data <i>(containing the messages)</i>
      */
     public void sendMessage(@NotNull final Player player, @NotNull final String itemName, @NotNull final BanAction action, @Nullable final BanActionData data) {
-        if (data == null) return; // no message neither log
+        sendMessage(player, itemName, action, data, null);
+    }
 
-        // Checking action cooldown, to prevent spam
-        if (action == BanAction.PICKUP || action == BanAction.HOLD || action == BanAction.SMITH) {
-            // Adding in cooldown
-            if (!messagesCooldown.containsKey(player.getUniqueId()))
-                messagesCooldown.put(player.getUniqueId(), System.currentTimeMillis());
-            else {
-                final long lastTime = messagesCooldown.get(player.getUniqueId());
-                if (lastTime + 1000L > System.currentTimeMillis()) return; // not sending message again
-                messagesCooldown.put(player.getUniqueId(), System.currentTimeMillis());
-            }
-        }
+    /**
+     * This method is used to send a ban message to player, if exists.
+     * Mainly used for blacklist
+     * @param player player involved in the action
+     * @param itemName the item name involved
+     * @param action the ban action <i>(used for log)</i>
+     * @param data the ban data <i>(containing the messages)</i>
+     * @param time the cooldown time remaining, replacing the {time} placeholder, null if not in cooldown
+     */
+    public void sendMessage(@NotNull final Player player, @NotNull final String itemName, @NotNull final BanAction action, @Nullable final BanActionData data, @Nullable final String time) {
+        if (data == null) return; // no message neither log
 
         // Getting datas
-        final List<String> message = data.getData(BanDataType.MESSAGE);
-        final boolean log = data.getLog();
+        final List<MessageTemplate> messages = data.getMessageTemplates();
+        final boolean log = data.getLog() && !logging.isEmpty();
+        if (!log && messages.isEmpty()) return;
+        final MessageTemplate.Context context = new MessageTemplate.Context(player.getName(), player.getWorld().getName(), itemName)
+                .set(MessageTemplate.Placeholder.ACTION, action.name())
+                .set(MessageTemplate.Placeholder.TIME, time);
 
         // Logging?
-        if (log && !logging.isEmpty()) {
-            // Preparing message
-            final String m = Chat.color(pl.getBanConfig().getPrefix() + // prefix
-                        player.getName() + " " + // player name
-                        "(" + player.getWorld().getName() + ") " + // world
-                        "[" + itemName + "]: " + // item name
-                        action.name()); // action
-
-            // Sending log message
+        if (log) {
+            final String m = pl.getBanConfig().getLogTemplate().render(context);
             logging.stream().map(Bukkit::getPlayer).filter(Objects::nonNull).forEach(t -> t.sendMessage(m));
         }
 
-        // No message set
-        if (message == null) return;
-
-        // Sending message & animation
-        message.forEach(player::sendMessage);
-        pl.getBanConfig().getAnimation().runAnimation(player);
+        // Sending message & animation, limited to prevent spam
+        messageLimiter.send(player, itemName, action, messages, context, true);
     }
 
     /**
@@ -321,25 +310,47 @@ public final class BanUtils {
      * @param player send the message to
      * @param action the ban action <i>(used for log)</i>
      * @param messages list of messages
+     * @deprecated the messages are compiled again when a different list is sent, use {@link #sendMessageTemplates(Player, BanAction, List)}
+     * with templates compiled once by {@link MessageTemplate#compile(java.util.Collection)} instead
      */
+    @Deprecated
     public void sendMessage(@NotNull final Player player, @NotNull final BanAction action, @NotNull final List<String> messages) {
         if (messages.isEmpty()) return; // no message
+        List<MessageTemplate> templates = lastMessages;
+        if (!MessageTemplate.isCompiledFrom(templates, messages)) lastMessages = templates = MessageTemplate.compile(messages);
+        sendMessageTemplates(player, action, templates);
+    }
 
-        // Checking pick up cooldown, to prevent spam
-        if (action == BanAction.PICKUP || action == BanAction.HOLD) {
-            // Adding in cooldown
-            if (!messagesCooldown.containsKey(player.getUniqueId()))
-                messagesCooldown.put(player.getUniqueId(), System.currentTimeMillis());
-            else {
-                final long lastTime = messagesCooldown.get(player.getUniqueId());
-                if (lastTime + 1000L > System.currentTimeMillis()) return; // not sending message again
-                messagesCooldown.put(player.getUniqueId(), System.currentTimeMillis());
-            }
-        }
+    /**
+     * This method is used to send a ban message to player, if exists.
+     * Mainly used for whitelist
+     * @param player send the message to
+     * @param action the ban action
+     * @param messages list of messages templates
+     */
+    public void sendMessageTemplates(@NotNull final Player player, @NotNull final BanAction action, @NotNull final List<MessageTemplate> messages) {
+        if (messages.isEmpty()) return; // no message
+
+        // Sending message & animation, limited to prevent spam
+        final MessageTemplate.Context context = new MessageTemplate.Context(player.getName(), player.getWorld().getName(), null)
+                .set(MessageTemplate.Placeholder.ACTION, action.name());
+        messageLimiter.send(player, "", action, messages, context, true);
+    }
 
-        // Sending message & animation
-        messages.forEach(player::sendMessage);
-        pl.getBanConfig().getAnimation().runAnimation(player);
+    /**
+     * Queue the commands of the ban data, run as console on the next ticks
+     * @param player player involved in the action
+     * @param itemName the item name involved
+     * @param action the ban action
+     * @param data the ban data <i>(containing the commands)</i>
+     */
+    public void runCommands(@NotNull final Player player, @NotNull final String itemName, @NotNull final BanAction action, @NotNull final BanActionData data) {
+        final List<MessageTemplate> commands = data.getRunTemplates();
+        if (commands.isEmpty()) return;
+        final MessageTemplate.Context context = new MessageTemplate.Context(player.getName(), player.getWorld().getName(), itemName)
+                .set(MessageTemplate.Placeholder.ACTION, action.name());
+        for (final MessageTemplate command : commands)
+            commandQueue.add(command.render(context));
     }
 
     /**
@@ -415,11 +426,11 @@ public final class BanUtils {
         final EntityEquipment ee = p.getEquipment();
         if (ee == null) return;
 
-        final boolean primaryThread = Bukkit.isPrimaryThread();
+        final boolean primaryThread = executor.isOwnedByCurrentThread(p);
         final ItemStack helmet = ee.getHelmet();
         if (!Utils.isNullOrAir(helmet) && pl.getApi().isBanned(p, p.getLocation(), helmet, primaryThread, BanAction.WEAR)) {
             if (!primaryThread) {
-                Bukkit.getScheduler().runTask(pl, () -> checkPlayerArmors(p));
+                checkPlayerArmorsLater(p, EnforcementScheduler.Priority.HIGH);
                 return;
             }
 
@@ -430,7 +441,7 @@ public final class BanUtils {
         final ItemStack chestplate = ee.getChestplate();
         if (!Utils.isNullOrAir(chestplate) && pl.getApi().isBanned(p, p.getLocation(), chestplate, primaryThread, BanAction.WEAR)) {
             if (!primaryThread) {
-                Bukkit.getScheduler().runTask(pl, () -> checkPlayerArmors(p));
+                checkPlayerArmorsLater(p, EnforcementScheduler.Priority.HIGH);
                 return;
             }
             removeItemFromArmor(p, chestplate);
@@ -440,7 +451,7 @@ public final class BanUtils {
         final ItemStack leggings = ee.getLeggings();
         if (!Utils.isNullOrAir(leggings) && pl.getApi().isBanned(p, p.getLocation(), leggings, primaryThread, BanAction.WEAR)) {
             if (!primaryThread) {
-                Bukkit.getScheduler().runTask(pl, () -> checkPlayerArmors(p));
+                checkPlayerArmorsLater(p, EnforcementScheduler.Priority.HIGH);
                 return;
             }
             removeItemFromArmor(p, leggings);
@@ -450,7 +461,7 @@ public final class BanUtils {
         final ItemStack boots = ee.getBoots();
         if (!Utils.isNullOrAir(boots) && pl.getApi().isBanned(p, p.getLocation(), boots, primaryThread, BanAction.WEAR)) {
             if (!primaryThread) {
-                Bukkit.getScheduler().runTask(pl, () -> checkPlayerArmors(p));
+                checkPlayerArmorsLater(p, EnforcementScheduler.Priority.HIGH);
                 return;
             }
             removeItemFromArmor(p, boots);
@@ -458,6 +469,16 @@ public final class BanUtils {
         }
     }
 
+    /**
+     * Schedule a check of the player armor inventory, through the enforcement scheduler.
+     * Nothing is scheduled if a check is already waiting for this player.
+     * @param p player
+     * @param priority priority of the check
+     */
+    public void checkPlayerArmorsLater(@NotNull final Player p, @NotNull final EnforcementScheduler.Priority priority) {
+        enforcement.submit(priority, new AbstractMap.SimpleImmutableEntry<>(BanAction.WEAR, p.getUniqueId()), p, () -> checkPlayerArmors(p));
+    }
+
     private void removeItemFromArmor(final Player p, final ItemStack item) {
         final int freeSlot = p.getInventory().firstEmpty();
         // No empty space, dropping it, else adding it into inventory
@@ -473,7 +494,7 @@ public final class BanUtils {
     public void sendMessage(@NotNull final CommandSender sender, @Nullable final String message) {
         if (message == null) return;
         final String finalMessage = pl.getBanConfig().getPrefix() + Chat.color(message);
-        final boolean colorInConsole = pl.getBanConfig().getConfig().getBoolean("debug.colors-console");
+        final boolean colorInConsole = pl.getBanConfig().getSettings().isColorsConsole();
         sender.sendMessage((colorInConsole || sender instanceof Player ? finalMessage : Chat.uncolor(finalMessage)));
     }
 
@@ -493,6 +514,24 @@ public final class BanUtils {
         }
     }
 
+    /**
+     * Get the executor of the tasks, routing them to the thread owning their entity or location on regionized servers
+     * @return the executor of the tasks
+     */
+    @NotNull
+    public TaskExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Get the scheduler of the enforcement jobs
+     * @return the enforcement scheduler
+     */
+    @NotNull
+    public EnforcementScheduler getEnforcement() {
+        return enforcement;
+    }
+
     /**
      * Get the WearScanner handler
      * @return the wear scanner handler
@@ -502,6 +541,24 @@ public final class BanUtils {
         return wearScanner;
     }
 
+    /**
+     * Get the deferred sweeps of the items with the delete action
+     * @return the delete sweeper
+     */
+    @NotNull
+    public DeleteSweeper getDeleteSweeper() {
+        return deleteSweeper;
+    }
+
+    /**
+     * Get the scanner of the loaded chunks, for the delete action
+     * @return the scanner of the loaded chunks
+     */
+    @NotNull
+    public ChunkScanner getChunkScanner() {
+        return chunkScanner;
+    }
+
     /**
      * Get the sub commands aliases
      * @return the sub commands aliases
@@ -514,12 +571,32 @@ public final class BanUtils {
     /**
      * Get the messages cooldown map
      * @return map containing the cooldowns for messages
+     * @deprecated the messages are now rate limited per player, item and action by {@link #getMessageLimiter()}, this map is not filled anymore
      */
+    @Deprecated
     @NotNull
     public Map<UUID, Long> getMessagesCooldown() {
         return messagesCooldown;
     }
 
+    /**
+     * Get the ban messages limiter
+     * @return the ban messages limiter
+     */
+    @NotNull
+    public MessageLimiter getMessageLimiter() {
+        return messageLimiter;
+    }
+
+    /**
+     * Get the queue of the commands run by the bans
+     * @return the queue of the commands run by the bans
+     */
+    @NotNull
+    public CommandQueue getCommandQueue() {
+        return commandQueue;
+    }
+
     /**
      * This map contains the players who activated the log in game with <i>/banitem log</i>
      * Players which log mode is activated will receive the logs messages for the banned items, if set in config
@@ -529,4 +606,60 @@ public final class BanUtils {
     public Set<UUID> getLogging() {
         return logging;
     }
+
+    /**
+     * Get the statistics of the ban checks
+     * @return the statistics of the ban checks
+     */
+    @NotNull
+    public BanStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Get the Prometheus metrics exporter
+     * @return the Prometheus metrics exporter
+     */
+    @NotNull
+    public PrometheusExporter getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the audit log of the denied actions
+     * @return the audit log of the denied actions
+     */
+    @NotNull
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    /**
+     * Get the notifier of the denied actions, delivering them with {@link fr.andross.banitem.events.BanItemDenialsEvent}
+     * @return the notifier of the denied actions
+     */
+    @NotNull
+    public DenialsNotifier getDenialsNotifier() {
+        return denialsNotifier;
+    }
+
+    /**
+     * Record a denied action into the audit log and the denials notifier, if enabled
+     * @param player the player
+     * @param itemName the item name
+     * @param action the denied action
+     * @param data the action data, if any
+     * @param banData the ban data of the check, if any
+     */
+    public void recordDenial(@NotNull final Player player, @NotNull final String itemName, @NotNull final BanAction action, @Nullable final BanActionData data, @Nullable final BanData[] banData) {
+        auditLog.record(player, itemName, action, data, banData);
+        denialsNotifier.record(player, itemName, action, banData);
+    }
+
+    /**
+     * @return if the denied actions are recorded by the audit log or the denials notifier
+     */
+    public boolean isRecordingDenials() {
+        return auditLog.isEnabled() || denialsNotifier.isEnabled();
+    }
 }
@@ -19,15 +19,21 @@ package fr.andross.banitem.actions;
 
 import fr.andross.banitem.utils.BanVersion;
 import fr.andross.banitem.utils.Chat;
+import fr.andross.banitem.utils.enchantments.EnchantmentHelper;
+import fr.andross.banitem.utils.enchantments.EnchantmentLevels;
 import fr.andross.banitem.utils.enchantments.EnchantmentWrapper;
+import fr.andross.banitem.utils.text.MessageTemplate;
 import org.bukkit.GameMode;
 import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.EntityType;
 import org.bukkit.event.inventory.InventoryType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -35,12 +41,17 @@ import java.util.stream.Collectors;
  * Example: the messages, if the action should be logged, any item...
  * The data type is written as description in {@link BanDataType} description.
  * I've also included some clear api methods to get them, at the bottom.
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public final class BanActionData {
-    private final Map<BanDataType, Object> map = new EnumMap<>(BanDataType.class);
-    private final Map<UUID, Long> cooldowns = new HashMap<>();
+    private static final AtomicLong modifications = new AtomicLong(); // of all the action data, to forget the verdicts computed from them
+    private final Map<BanDataType, Object> map = new DataMap();
+    private final Map<UUID, Long> cooldowns = new ConcurrentHashMap<>(); // checked by the threads owning the players
+    private volatile EnchantmentLevels enchantmentLevels; // cleared when the data are modified
+    private List<MessageTemplate> messageTemplates;
+    private List<MessageTemplate> runTemplates;
+    private volatile Set<BanContext> contexts; // cleared when the data are modified
 
     /**
      * Trying to get the data from this map
@@ -72,13 +83,51 @@ public final class BanActionData {
 
         // Enchantment?
         if (s != null && data.getType() == BanDataType.ENCHANTMENT) {
-            final Set<EnchantmentWrapper> enchants = (Set<EnchantmentWrapper>) data.getObject();
-            return !Collections.disjoint(s, enchants);
+            final EnchantmentLevels levels = getEnchantmentLevels();
+            if (data.getObject() instanceof Map)
+                return levels.containsAny((Map<Enchantment, Integer>) data.getObject());
+            for (final EnchantmentWrapper e : (Set<EnchantmentWrapper>) data.getObject())
+                if (levels.contains(EnchantmentHelper.getIndex(e.getEnchantment()), e.getLevel())) return true;
+            return false;
         }
 
         return s == null || s.contains(data.getObject());
     }
 
+    /**
+     * Get the contexts used by this data, to only check these ones.
+     * The contexts are computed once, and again if the data were modified.
+     * @return an unmodifiable set of the contexts this data depends on
+     */
+    @NotNull
+    public Set<BanContext> getContexts() {
+        Set<BanContext> contexts = this.contexts;
+        if (contexts == null) {
+            final Set<BanContext> set = EnumSet.noneOf(BanContext.class);
+            for (final BanDataType type : map.keySet())
+                if (type.getContext() != null) set.add(type.getContext());
+            contexts = Collections.unmodifiableSet(set);
+            this.contexts = contexts;
+        }
+        return contexts;
+    }
+
+    /**
+     * Get the enchantments data compiled as enchantment levels, compiled again once the data were modified.
+     * The enchantments set must be put again in the data if modified directly.
+     * @return the compiled enchantments data
+     */
+    @NotNull
+    private EnchantmentLevels getEnchantmentLevels() {
+        EnchantmentLevels levels = enchantmentLevels;
+        if (levels == null) {
+            final Set<EnchantmentWrapper> source = getEnchantments();
+            levels = EnchantmentLevels.from(source == null ? Collections.emptySet() : source);
+            enchantmentLevels = levels;
+        }
+        return levels;
+    }
+
     /**
      * Serializing the data (to save them into config files)
      * @return a non null serialized map
@@ -214,6 +263,30 @@ public final class BanActionData {
         return getData(BanDataType.RUN);
     }
 
+    /**
+     * Get the messages compiled as templates, recompiled if the messages have changed
+     * @return the message templates, empty if there is no messages added
+     */
+    @NotNull
+    public List<MessageTemplate> getMessageTemplates() {
+        final List<String> source = getMessages();
+        if (source == null) return Collections.emptyList();
+        if (!MessageTemplate.isCompiledFrom(messageTemplates, source)) messageTemplates = MessageTemplate.compile(source);
+        return messageTemplates;
+    }
+
+    /**
+     * Get the commands run compiled as templates, recompiled if the commands have changed
+     * @return the commands templates, empty if there is no commands added
+     */
+    @NotNull
+    public List<MessageTemplate> getRunTemplates() {
+        final List<String> source = getRun();
+        if (source == null) return Collections.emptyList();
+        if (!MessageTemplate.isCompiledFrom(runTemplates, source)) runTemplates = MessageTemplate.compile(source);
+        return runTemplates;
+    }
+
     /**
      * @return map containing players cooldowns time
      */
@@ -223,7 +296,37 @@ public final class BanActionData {
     }
 
     /**
-     * Get the map
+     * Atomically check the cooldown of a player.
+     * If the player is not in cooldown, the cooldown starts; if it is over, it is removed.
+     * @param uuid the player uuid
+     * @param cooldown the cooldown duration, in milliseconds
+     * @return the end of the running cooldown, or -1 if the player was not in cooldown
+     */
+    public long checkCooldown(@NotNull final UUID uuid, final long cooldown) {
+        final long now = System.currentTimeMillis();
+        final long[] end = { -1L };
+        cooldowns.compute(uuid, (k, v) -> {
+            if (v == null) return now + cooldown; // not in cooldown, adding
+            if (v < now) return null; // not in cooldown anymore, cleaning up
+            end[0] = v;
+            return v;
+        });
+        return end[0];
+    }
+
+    /**
+     * Get the amount of modifications of all the ban actions data since the start.
+     * The values computed from the data <i>(constant verdicts, banned materials...)</i> have to be computed again once it changes.
+     * @return the amount of modifications
+     */
+    public static long getModifications() {
+        return modifications.get();
+    }
+
+    /**
+     * Get the map.
+     * The map and its views can be modified, the values computed from the data being then computed again.
+     * A modified value <i>(set of entities, enchantments...)</i> must be put again in the map.
      * @return the map
      */
     @NotNull
@@ -231,4 +334,153 @@ public final class BanActionData {
         return map;
     }
 
+    /**
+     * Data map clearing the computed contexts & enchantment levels when modified,
+     * through the map or its views.
+     */
+    private final class DataMap extends EnumMap<BanDataType, Object> {
+        private DataMap() {
+            super(BanDataType.class);
+        }
+
+        @Override
+        public Object put(final BanDataType key, final Object value) {
+            final Object previous = super.put(key, value);
+            changed();
+            return previous;
+        }
+
+        @Override
+        public void putAll(final Map<? extends BanDataType, ?> m) {
+            super.putAll(m);
+            changed();
+        }
+
+        @Override
+        public Object remove(final Object key) {
+            final Object previous = super.remove(key);
+            changed();
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            changed();
+        }
+
+        private void changed() {
+            contexts = null;
+            enchantmentLevels = null;
+            modifications.incrementAndGet();
+        }
+
+        @NotNull
+        @Override
+        public Set<BanDataType> keySet() {
+            return new ObservedSet<>(super.keySet());
+        }
+
+        @NotNull
+        @Override
+        public Collection<Object> values() {
+            return new ObservedCollection<>(super.values());
+        }
+
+        @NotNull
+        @Override
+        public Set<Map.Entry<BanDataType, Object>> entrySet() {
+            return new ObservedSet<Map.Entry<BanDataType, Object>>(super.entrySet()) {
+                @NotNull
+                @Override
+                Map.Entry<BanDataType, Object> wrap(@NotNull final Map.Entry<BanDataType, Object> entry) {
+                    return new AbstractMap.SimpleEntry<BanDataType, Object>(entry) {
+                        @Override
+                        public Object setValue(final Object value) {
+                            super.setValue(value);
+                            final Object previous = entry.setValue(value);
+                            changed();
+                            return previous;
+                        }
+                    };
+                }
+            };
+        }
+
+        /**
+         * View of the data map, notifying the removals
+         * @param <E> the elements
+         */
+        private class ObservedCollection<E> extends AbstractCollection<E> {
+            final Collection<E> collection;
+
+            private ObservedCollection(@NotNull final Collection<E> collection) {
+                this.collection = collection;
+            }
+
+            @NotNull
+            E wrap(@NotNull final E element) {
+                return element;
+            }
+
+            @Override
+            public int size() {
+                return collection.size();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return collection.contains(o);
+            }
+
+            @Override
+            public void clear() {
+                collection.clear();
+                changed();
+            }
+
+            @NotNull
+            @Override
+            public Iterator<E> iterator() {
+                final Iterator<E> iterator = collection.iterator();
+                return new Iterator<E>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public E next() {
+                        return wrap(iterator.next());
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                        changed();
+                    }
+                };
+            }
+        }
+
+        /**
+         * Set view of the data map, notifying the removals
+         * @param <E> the elements
+         */
+        private class ObservedSet<E> extends ObservedCollection<E> implements Set<E> {
+            private ObservedSet(@NotNull final Set<E> set) {
+                super(set);
+            }
+
+            @Override
+            public boolean equals(final Object o) {
+                return o == this || collection.equals(o);
+            }
+
+            @Override
+            public int hashCode() {
+                return collection.hashCode();
+            }
+        }
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.actions;
+
+/**
+ * The context a ban data depends on, to be checked.
+ * The checks only evaluate the contexts used by the ban action data, and when no player is involved,
+ * a ban action data not depending on the {@link #DATA} context gives a constant verdict per world, item and action.
+ * @version 3.4
+ * @author Andross
+ */
+public enum BanContext {
+
+    /**
+     * The player involved: gamemode, permission
+     */
+    PLAYER,
+
+    /**
+     * The location of the action: region
+     */
+    LOCATION,
+
+    /**
+     * The time of the action: cooldown
+     */
+    TIME,
+
+    /**
+     * The data of the action, given when checking: enchantments, entities, inventories, materials
+     */
+    DATA
+}
@@ -19,12 +19,13 @@ package fr.andross.banitem.actions;
 
 import fr.andross.banitem.utils.enchantments.EnchantmentWrapper;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A simple enum indicating what kind of data is used
  *
  * @author Andross
- * @version 3.3
+ * @version 3.4
  */
 public enum BanDataType {
 
@@ -32,88 +33,99 @@ public enum BanDataType {
      * Type: Long (millis)
      * Used to check if the banned item has a cooldown
      */
-    COOLDOWN("cooldown"),
+    COOLDOWN("cooldown", BanContext.TIME),
 
     /**
      * Type: String
      * Used to get the custom/meta item name
      */
-    CUSTOMNAME("customname"),
+    CUSTOMNAME("customname", null),
 
     /**
      * Type: Set of {@link EnchantmentWrapper}
      * Used to check if the enchantments are banned on an item
+     * In a ban check, a Map of {@link org.bukkit.enchantments.Enchantment} and levels is also accepted
      */
-    ENCHANTMENT("enchantment"),
+    ENCHANTMENT("enchantment", BanContext.DATA),
 
     /**
      * Type: Set of {@link org.bukkit.entity.EntityType}
      * Used to check if the ban will applies on this entity
      */
-    ENTITY("entity"),
+    ENTITY("entity", BanContext.DATA),
 
     /**
      * Type: Set of {@link org.bukkit.GameMode}
      * Used to check if the ban applies on current player gamemode
      */
-    GAMEMODE("gamemode"),
+    GAMEMODE("gamemode", BanContext.PLAYER),
 
     /**
      * Type: Set of {@link org.bukkit.event.inventory.InventoryType}
      * Used to check if the ban will applies if the source inventory is included into this set
      */
-    INVENTORY_FROM("inventory-from"),
+    INVENTORY_FROM("inventory-from", BanContext.DATA),
 
     /**
      * Type: Set of {@link org.bukkit.event.inventory.InventoryType}
      * Used to check if the ban will applies if the destination inventory is included into this set
      */
-    INVENTORY_TO("inventory-to"),
+    INVENTORY_TO("inventory-to", BanContext.DATA),
 
     /**
      * Type: boolean
      * Used to check if a log message will be sent to players with log activated
      */
-    LOG("log"),
+    LOG("log", null),
 
     /**
      * Type: Set of {@link org.bukkit.Material}
      * Used to check if the ban will applies if a material is in the set
      */
-    MATERIAL("material"),
+    MATERIAL("material", BanContext.DATA),
 
     /**
      * Type: List of <i>(already colored)</i> String
      * Used to get the ban message(s)
      */
-    MESSAGE("message"),
+    MESSAGE("message", null),
 
     /**
      * Type: String
      * Used to get a custom permission for an action
      */
-    PERMISSION("permission"),
+    PERMISSION("permission", BanContext.PLAYER),
 
     /**
      * Type: Set of {@link com.sk89q.worldguard.protection.regions.ProtectedRegion}
      * Used to check if the ban applies into the region
      */
-    REGION("region"),
+    REGION("region", BanContext.LOCATION),
 
     /**
      * Type: List of String
      * Used to run commands when the banned action occurs
      */
-    RUN("run");
+    RUN("run", null);
 
     private final String name;
+    private final BanContext context;
 
-    BanDataType(@NotNull final String name) {
+    BanDataType(@NotNull final String name, @Nullable final BanContext context) {
         this.name = name;
+        this.context = context;
     }
 
     @NotNull
     public String getName() {
         return name;
     }
+
+    /**
+     * @return the context this data depends on, or null if it does not restrict the ban <i>(message, log...)</i>
+     */
+    @Nullable
+    public BanContext getContext() {
+        return context;
+    }
 }
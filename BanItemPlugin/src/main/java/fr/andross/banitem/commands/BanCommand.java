@@ -27,7 +27,7 @@ import java.util.List;
 
 /**
  * Abstract sub command class
- * @version 3.2
+ * @version 3.4
  * @author Andross
  */
 public abstract class BanCommand {
@@ -62,7 +62,7 @@ public abstract class BanCommand {
      */
     @Nullable
     protected String getNoPermMessage() {
-        return pl.getBanConfig().getConfig().getString("no-permission");
+        return pl.getBanConfig().getSettings().getNoPermission();
     }
 
     /**
@@ -20,21 +20,23 @@ package fr.andross.banitem.commands;
 import fr.andross.banitem.BanItem;
 import fr.andross.banitem.actions.BanAction;
 import fr.andross.banitem.actions.BanActionData;
-import fr.andross.banitem.database.Blacklist;
 import fr.andross.banitem.database.items.Items;
 import fr.andross.banitem.items.BannedItem;
 import fr.andross.banitem.utils.Utils;
+import fr.andross.banitem.utils.scanners.EnforcementScheduler;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Sub command check
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public class Commandcheck extends BanCommand {
@@ -51,30 +53,55 @@ public class Commandcheck extends BanCommand {
             return;
         }
 
-        // Checking...
+        // Checking, one job per player through the enforcement scheduler
         final boolean delete = args.length > 1 && args[1].equalsIgnoreCase("delete");
-        final Set<String> players = new HashSet<>();
-        final Blacklist blacklist = pl.getBanDatabase().getBlacklist();
-        for (final Player p : pl.getServer().getOnlinePlayers()) {
-            final Items map = blacklist.get(p.getWorld());
-            if (map == null) continue; // nothing banned in this world
+        final List<Player> online = new ArrayList<>(pl.getServer().getOnlinePlayers());
+        final Set<String> players = Collections.synchronizedSet(new LinkedHashSet<>());
+        if (online.isEmpty()) {
+            display(players, delete);
+            return;
+        }
 
-            // Checking player inventory
-            final PlayerInventory inv = p.getInventory();
-            for (int i = 0; i < inv.getSize(); i++) {
-                final ItemStack item = inv.getItem(i);
-                if (Utils.isNullOrAir(item)) continue;
+        final EnforcementScheduler enforcement = pl.getUtils().getEnforcement();
+        final AtomicInteger remaining = new AtomicInteger(online.size()); // jobs may run on several threads on regionized servers
+        final Runnable done = () -> {
+            if (remaining.decrementAndGet() == 0) display(players, delete);
+        };
+        for (final Player p : online) {
+            enforcement.submit(EnforcementScheduler.Priority.LOW, p, () -> {
+                if (check(p, delete)) players.add(p.getName());
+                done.run();
+            }, done);
+        }
+    }
 
-                final Map<BanAction, BanActionData> data = map.get(new BannedItem(item));
-                if (data == null || data.isEmpty()) continue;
+    /**
+     * Check the player inventory
+     * @param p the player
+     * @param delete if the blacklisted items should be removed
+     * @return true if the player has a blacklisted item in inventory
+     */
+    private boolean check(@NotNull final Player p, final boolean delete) {
+        final Items map = pl.getBanDatabase().getBlacklist().get(p.getWorld());
+        if (map == null) return false; // nothing banned in this world
 
-                // Blacklisted!
-                if (delete) inv.clear(i);
-                players.add(p.getName());
-            }
+        boolean found = false;
+        final PlayerInventory inv = p.getInventory();
+        for (int i = 0; i < inv.getSize(); i++) {
+            final ItemStack item = inv.getItem(i);
+            if (Utils.isNullOrAir(item)) continue;
+
+            final Map<BanAction, BanActionData> data = map.get(new BannedItem(item));
+            if (data == null || data.isEmpty()) continue;
+
+            // Blacklisted!
+            if (delete) inv.clear(i);
+            found = true;
         }
+        return found;
+    }
 
-        // Showing list
+    private void display(@NotNull final Set<String> players, final boolean delete) {
         if (players.isEmpty()) {
             header("&6&lCheck");
             message("&7No player with blacklisted item in inventory found.");
@@ -18,19 +18,29 @@
 package fr.andross.banitem.commands;
 
 import fr.andross.banitem.BanItem;
+import fr.andross.banitem.utils.audit.AuditLog;
+import fr.andross.banitem.utils.audit.DenialRecord;
+import fr.andross.banitem.utils.scheduler.TaskExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.util.StringUtil;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.UUID;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Sub command log
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public class Commandlog extends BanCommand {
+    private static final Pattern DURATION = Pattern.compile("(\\d+)([smhdw])");
+    private static final int RESULTS = 15;
 
     public Commandlog(final BanItem pl, final CommandSender sender, final String[] args) {
         super(pl, sender, args);
@@ -38,18 +48,24 @@ public class Commandlog extends BanCommand {
 
     @Override
     public void run() {
-        // Not player?
-        if (!(sender instanceof Player)) {
-            message("Command IG only.");
-            return;
-        }
-
         // Permission?
         if (!sender.hasPermission("banitem.command.log")) {
             message(getNoPermMessage());
             return;
         }
 
+        // Searching?
+        if (args.length > 1 && args[1].equalsIgnoreCase("search")) {
+            search();
+            return;
+        }
+
+        // Not player?
+        if (!(sender instanceof Player)) {
+            message("Command IG only.");
+            return;
+        }
+
         // Toggling log
         final UUID uuid = ((Player) sender).getUniqueId();
         header("&6&lLog");
@@ -62,8 +78,86 @@ public class Commandlog extends BanCommand {
         }
     }
 
+    private void search() {
+        header("&6&lLog search");
+        if (args.length < 4) {
+            message("&c/bi log search <from> <to> [player]");
+            message("&7Times: &enow&7, a duration ago &o(30m, 2h, 7d)&7, or a date &o(2021-12-31 or 2021-12-31_23:59)&7.");
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final long from = parseTime(args[2], now);
+        final long to = parseTime(args[3], now);
+        if (from < 0 || to < 0) {
+            message("&cInvalid time: &e" + (from < 0 ? args[2] : args[3]) + "&c.");
+            return;
+        }
+        final String player = args.length > 4 ? args[4] : null;
+
+        // Reading the files asynchronously
+        final AuditLog auditLog = pl.getUtils().getAuditLog();
+        if (!auditLog.isEnabled()) message("&7The audit log is disabled, searching the existing files only.");
+        final TaskExecutor executor = pl.getUtils().getExecutor();
+        executor.runAsync(() -> {
+            try {
+                final AuditLog.SearchResult result = auditLog.search(Math.min(from, to), Math.max(from, to), player, RESULTS);
+                executor.run(() -> display(result));
+            } catch (final Exception e) {
+                executor.run(() -> message("&cCan not read the audit log: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void display(@NotNull final AuditLog.SearchResult result) {
+        final List<DenialRecord> records = result.getRecords();
+        message("&7Found &e" + result.getTotal() + "&7 denied action(s)" + (result.getTotal() > records.size() ? ", showing the last &e" + records.size() : "") + "&7.");
+        final SimpleDateFormat format = new SimpleDateFormat("dd/MM HH:mm:ss");
+        for (final DenialRecord r : records)
+            message("&8[" + format.format(new Date(r.getTime())) + "] &3" + r.getPlayerName() + " &7(" + r.getWorld() + ") [" + r.getItemName() + "]: &e"
+                    + r.getAction().getName() + (r.getData().isEmpty() ? "" : " &8" + String.join(", ", r.getData())));
+    }
+
+    /**
+     * Parse a time argument
+     * @param arg the argument
+     * @param now the current time
+     * @return the time in milliseconds, or -1 if invalid
+     */
+    private static long parseTime(@NotNull final String arg, final long now) {
+        if (arg.equalsIgnoreCase("now")) return now;
+
+        // Duration ago
+        final Matcher m = DURATION.matcher(arg.toLowerCase(Locale.ROOT));
+        if (m.matches()) {
+            final long amount = Long.parseLong(m.group(1));
+            switch (m.group(2)) {
+                case "s": return now - TimeUnit.SECONDS.toMillis(amount);
+                case "m": return now - TimeUnit.MINUTES.toMillis(amount);
+                case "h": return now - TimeUnit.HOURS.toMillis(amount);
+                case "d": return now - TimeUnit.DAYS.toMillis(amount);
+                default: return now - TimeUnit.DAYS.toMillis(amount * 7);
+            }
+        }
+
+        // Date
+        for (final String pattern : new String[] { "yyyy-MM-dd_HH:mm", "yyyy-MM-dd" }) {
+            try {
+                final SimpleDateFormat format = new SimpleDateFormat(pattern);
+                format.setLenient(false);
+                return format.parse(arg).getTime();
+            } catch (final ParseException e) {
+                // trying next pattern
+            }
+        }
+        return -1;
+    }
+
     @Override
     public List<String> runTab() {
+        if (args.length == 2) return StringUtil.copyPartialMatches(args[1], Collections.singletonList("search"), new ArrayList<>());
+        if (args.length == 3 || args.length == 4) return StringUtil.copyPartialMatches(args[args.length - 1], Arrays.asList("now", "1h", "1d", "7d"), new ArrayList<>());
+        if (args.length == 5) return null; // players
         return Collections.emptyList();
     }
 }
@@ -21,6 +21,7 @@ import fr.andross.banitem.BanItem;
 import fr.andross.banitem.actions.BanAction;
 import fr.andross.banitem.actions.BanActionData;
 import fr.andross.banitem.actions.BanDataType;
+import fr.andross.banitem.database.storage.MetaItemStorage;
 import fr.andross.banitem.items.BannedItem;
 import fr.andross.banitem.utils.Chat;
 import fr.andross.banitem.utils.Utils;
@@ -38,10 +39,11 @@ import java.util.stream.Collectors;
 
 /**
  * Sub command meta item
- * @version 3.1.1
+ * @version 3.4
  * @author Andross
  */
 public class Commandmetaitem extends BanCommand {
+    private static final int PAGE_SIZE = 50;
 
     public Commandmetaitem(final BanItem pl, final CommandSender sender, final String[] args) {
         super(pl, sender, args);
@@ -68,7 +70,7 @@ public class Commandmetaitem extends BanCommand {
             message("&7 >> Will give you the item (with meta)");
             message("&7 >> in your inventory.");
 
-            message("&b/bi mi list");
+            message("&b/bi mi list &3[page]");
             message("&7 >> Displays a list of meta");
             message("&7 >> item names saved.");
 
@@ -221,16 +223,28 @@ public class Commandmetaitem extends BanCommand {
             }
 
             case "list": {
-                final List<String> items = new ArrayList<>(pl.getBanDatabase().getMetaItems().keySet());
-
-                if (items.isEmpty()) {
-                    header("&6&lMetaItems - List");
+                // Paged from the storage, large amounts of meta items are not all listed at once
+                final MetaItemStorage storage = pl.getBanDatabase().getMetaItems().getStorage();
+                final int total = storage.count();
+                header("&6&lMetaItems - List");
+                if (total == 0) {
                     message("&7There is no custom item added yet.");
                     return;
                 }
 
-                header("&6&lMetaItems - List");
-                message("&aMeta items: " + (items.stream().map(s -> ChatColor.GOLD + s + ChatColor.GRAY).collect(Collectors.joining(",", "", "&7."))));
+                final int pages = (total + PAGE_SIZE - 1) / PAGE_SIZE;
+                int page = 1;
+                if (args.length > 2) {
+                    try {
+                        page = Integer.parseInt(args[2]);
+                    } catch (final NumberFormatException e) {
+                        message("&cInvalid page &e" + args[2] + "&c.");
+                        return;
+                    }
+                }
+                page = Math.max(1, Math.min(page, pages));
+                final List<String> items = storage.getNames((page - 1) * PAGE_SIZE, PAGE_SIZE);
+                message("&aMeta items &7(page " + page + "/" + pages + ", " + total + " total)&a: " + (items.stream().map(s -> ChatColor.GOLD + s + ChatColor.GRAY).collect(Collectors.joining(",", "", "&7."))));
             }
         }
     }
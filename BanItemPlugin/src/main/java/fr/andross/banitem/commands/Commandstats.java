@@ -0,0 +1,141 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.commands;
+
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.items.meta.LookupCache;
+import fr.andross.banitem.items.meta.MetaType;
+import fr.andross.banitem.utils.CommandQueue;
+import fr.andross.banitem.utils.scanners.EnforcementScheduler;
+import fr.andross.banitem.utils.stats.BanStats;
+import fr.andross.banitem.utils.stats.CheckStats;
+import fr.andross.banitem.utils.stats.LatencyHistogram;
+import org.bukkit.command.CommandSender;
+import org.bukkit.util.StringUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sub command stats
+ * @version 3.4
+ * @author Andross
+ */
+public class Commandstats extends BanCommand {
+
+    public Commandstats(final BanItem pl, final CommandSender sender, final String[] args) {
+        super(pl, sender, args);
+    }
+
+    @Override
+    public void run() {
+        // Permission?
+        if (!sender.hasPermission("banitem.command.stats")) {
+            message(getNoPermMessage());
+            return;
+        }
+
+        final BanStats stats = pl.getApi().getStats();
+        header("&6&lStats");
+        if (!stats.isEnabled()) {
+            message("&cStatistics are disabled, set &estats.enabled&c to true in the config.");
+            return;
+        }
+
+        // Reset?
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            stats.reset();
+            pl.getUtils().getCommandQueue().resetStats();
+            pl.getUtils().getEnforcement().resetStats();
+            message("&aStatistics reset.");
+            return;
+        }
+
+        final long minutes = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - stats.getSince());
+        message("&7Recorded since &e" + minutes + "&7 minute(s).");
+        message("&7Blacklist: " + format(stats.getBlacklist()));
+        message("&7Whitelist: " + format(stats.getWhitelist()));
+
+        // Actions, most expensive first
+        message("&6Actions &7(by total time):");
+        Arrays.stream(BanAction.values())
+                .filter(a -> stats.getAction(a).getChecks() > 0)
+                .sorted(Comparator.comparingLong((BanAction a) -> stats.getAction(a).getLatency().getTotal()).reversed())
+                .limit(10)
+                .forEach(a -> message(" &7- &3" + a.getName() + "&7: " + format(stats.getAction(a))));
+
+        // Worlds
+        message("&6Worlds:");
+        stats.getWorlds().forEach((world, s) -> message(" &7- &3" + world + "&7: " + format(s)));
+
+        // Meta types
+        message("&6Meta types &7(custom items):");
+        for (final MetaType type : MetaType.values()) {
+            final long checks = stats.getMetaChecks(type);
+            if (checks == 0) continue;
+            final long time = stats.getMetaTime(type);
+            message(" &7- &3" + type.name().toLowerCase(Locale.ROOT) + "&7: &e" + checks + "&7 checks, avg &e" + time(time / checks) + "&7, total &e" + time(time));
+        }
+
+        // Listeners, most expensive first
+        message("&6Listeners &7(by total time):");
+        stats.getListeners().entrySet().stream()
+                .filter(e -> e.getValue().getCount() > 0)
+                .sorted(Comparator.comparingLong((Map.Entry<String, LatencyHistogram> e) -> e.getValue().getTotal()).reversed())
+                .limit(10)
+                .forEach(e -> message(" &7- &3" + e.getKey() + "&7: &e" + e.getValue().getCount() + "&7 events, avg &e" + time(e.getValue().getMean())
+                        + "&7, p99 &e" + time(e.getValue().getPercentile(99)) + "&7, max &e" + time(e.getValue().getMax())));
+
+        // Commands queue
+        final CommandQueue queue = pl.getUtils().getCommandQueue();
+        message("&6Commands queue: &e" + queue.getDepth() + "&7 waiting, &e" + queue.getRun() + "&7 run, &e" + queue.getDeduplicated() + "&7 deduplicated, &e" + queue.getDropped() + "&7 dropped");
+
+        // Enforcement scheduler
+        final EnforcementScheduler enforcement = pl.getUtils().getEnforcement();
+        message("&6Enforcement jobs: &e" + enforcement.getDepth() + "&7 waiting, &e" + enforcement.getRun() + "&7 run, &e" + enforcement.getCarried() + "&7 tick(s) over budget");
+
+        // Caches
+        message("&6Caches:");
+        for (final LookupCache<?> cache : LookupCache.getCaches().values()) {
+            final long hits = cache.getHits();
+            final long total = hits + cache.getMisses();
+            final String rate = total == 0 ? "-" : String.format("%.1f%%", hits * 100D / total);
+            message(" &7- &3" + cache.getName() + "&7: &e" + cache.size() + "&7 items, &e" + rate + "&7 hits");
+        }
+    }
+
+    @NotNull
+    private static String format(@NotNull final CheckStats stats) {
+        return "&e" + stats.getChecks() + "&7 checks, &e" + stats.getDenials() + "&7 denied, avg &e" + time(stats.getLatency().getMean())
+                + "&7, p99 &e" + time(stats.getLatency().getPercentile(99)) + "&7, max &e" + time(stats.getLatency().getMax());
+    }
+
+    @NotNull
+    private static String time(final long nanos) {
+        if (nanos < 1000) return nanos + "ns";
+        if (nanos < 1000000) return String.format("%.1fµs", nanos / 1000D);
+        return String.format("%.2fms", nanos / 1000000D);
+    }
+
+    @Override
+    public List<String> runTab() {
+        return args.length == 2 ? StringUtil.copyPartialMatches(args[1], Collections.singletonList("reset"), new ArrayList<>()) : Collections.emptyList();
+    }
+}
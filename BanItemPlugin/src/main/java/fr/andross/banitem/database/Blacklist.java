@@ -22,6 +22,7 @@ import fr.andross.banitem.BanDatabase;
 import fr.andross.banitem.BanItem;
 import fr.andross.banitem.actions.BanAction;
 import fr.andross.banitem.actions.BanActionData;
+import fr.andross.banitem.actions.BanContext;
 import fr.andross.banitem.actions.BanData;
 import fr.andross.banitem.actions.BanDataType;
 import fr.andross.banitem.database.items.Items;
@@ -35,6 +36,7 @@ import fr.andross.banitem.utils.debug.DebugMessage;
 import fr.andross.banitem.utils.hooks.IWorldGuardHook;
 import fr.andross.banitem.utils.list.ListType;
 import fr.andross.banitem.utils.list.Listable;
+import fr.andross.banitem.utils.stats.ListCounters;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
@@ -48,12 +50,18 @@ import org.jetbrains.annotations.Nullable;
 import java.util.*;
 
 /**
- * Map that contains the blacklisted items
- * @version 3.3
+ * Map that contains the blacklisted items, by world unique id <i>(the world is also accepted to get or remove them)</i>.
+ * Safe to read by several threads while rules are added, or bound to a loaded world.
+ * The rules are bound to the worlds loaded when the blacklist is created, and to the worlds loaded later
+ * matching their world key <i>(see {@link #bind(World, CommandSender)})</i>.
+ * @version 3.4
  * @author Andross
  */
-public final class Blacklist extends HashMap<World, Items> {
+public final class Blacklist extends WorldMap<Items> {
     private final BanItem pl;
+    private final BanDatabase database;
+    private final ListCounters counters;
+    private final ConfigurationSection section;
 
     /**
      * Constructor for a blacklist map
@@ -64,13 +72,36 @@ public final class Blacklist extends HashMap<World, Items> {
      */
     public Blacklist(@NotNull final BanItem pl, @NotNull final BanDatabase database, @NotNull final CommandSender sender, @Nullable final ConfigurationSection section) {
         this.pl = pl;
-        if (section == null) return;
+        this.database = database;
+        this.counters = pl.getUtils().getStats().getBlacklistCounters();
+        this.section = section;
+        if (section != null) load(sender, null);
+    }
 
-        // Loading blacklist
+    /**
+     * Bind the rules matching a world loaded after this blacklist
+     * @param world the loaded world
+     * @param sender {@link CommandSender} to send the debug messages to
+     */
+    public void bind(@NotNull final World world, @NotNull final CommandSender sender) {
+        if (section == null || containsKey(world.getUID())) return;
+        load(sender, world);
+    }
+
+    /**
+     * Loading the blacklist rules
+     * @param sender {@link CommandSender} to send the debug messages to
+     * @param world the only world to load the rules for, or null for all the loaded worlds
+     */
+    private void load(@NotNull final CommandSender sender, @Nullable final World world) {
         final BanConfig banConfig = pl.getBanConfig();
         for (final String worldKey : section.getKeys(false)) { // Looping through worlds
             // Getting world(s)
-            final List<World> worlds = Listable.getWorlds(worldKey, new Debug(banConfig, sender, new DebugMessage(banConfig.getConfigName()), new DebugMessage("blacklist"), new DebugMessage(ListType.WORLD, worldKey)));
+            final List<World> worlds;
+            if (world == null)
+                worlds = Listable.getWorlds(worldKey, new Debug(banConfig, sender, new DebugMessage(banConfig.getConfigName()), new DebugMessage("blacklist"), new DebugMessage(ListType.WORLD, worldKey)));
+            else
+                worlds = Listable.matchesWorld(worldKey, world.getName()) ? Collections.singletonList(world) : Collections.emptyList();
             if (worlds.isEmpty()) continue;
 
             // Getting items(s)
@@ -104,10 +135,12 @@ public final class Blacklist extends HashMap<World, Items> {
      * @param map map containing {@link BanAction} and their respective {@link BanActionData}
      */
     public void addNewBan(@NotNull final World world, @NotNull final BannedItem item, @NotNull final Map<BanAction, BanActionData> map) {
-        final Items items = getOrDefault(world, new Items());
+        final Items items = computeIfAbsent(world.getUID(), k -> new Items());
         final String customName = item instanceof ICustomName ? ((ICustomName) item).getName() : null;
         final CustomBannedItem customBannedItem = item instanceof CustomBannedItem ? (CustomBannedItem) item : null;
-        final Map<BanAction, BanActionData> bannedItemMap = customBannedItem != null ? items.getCustomItems().getOrDefault(customBannedItem, new EnumMap<>(BanAction.class)) : items.getItems().getOrDefault(item, new EnumMap<>(BanAction.class));
+        final Map<BanAction, BanActionData> previous = customBannedItem != null ? items.getCustomItems().get(customBannedItem) : items.getItems().get(item);
+        final Map<BanAction, BanActionData> bannedItemMap = new EnumMap<>(BanAction.class); // copied, the previous one may be read meanwhile
+        if (previous != null) bannedItemMap.putAll(previous);
 
         if (customName == null)
             bannedItemMap.putAll(map);
@@ -123,8 +156,17 @@ public final class Blacklist extends HashMap<World, Items> {
             items.getCustomItems().put(customBannedItem, bannedItemMap);
         else
             items.getItems().put(item, bannedItemMap);
+        database.invalidateCandidates();
+    }
 
-        put(world, items);
+    /**
+     * Get the banned items of a world
+     * @param world bukkit world <i>({@link World})</i>
+     * @return the banned items of this world, or null if there is none
+     */
+    @Nullable
+    public Items get(@NotNull final World world) {
+        return get(world.getUID());
     }
 
     /**
@@ -136,7 +178,8 @@ public final class Blacklist extends HashMap<World, Items> {
      */
     @Nullable
     public BanActionData getBanData(@NotNull final World world, @NotNull final BannedItem item, @NotNull final BanAction action) {
-        return !containsKey(world) ? null : get(world).get(item, action);
+        final Items items = get(world);
+        return items == null ? null : items.get(item, action);
     }
 
     /**
@@ -147,7 +190,8 @@ public final class Blacklist extends HashMap<World, Items> {
      */
     @Nullable
     public Map<BanAction, BanActionData> getBanActions(@NotNull final World world, @NotNull final BannedItem item) {
-        return !containsKey(world) ? null : get(world).get(item);
+        final Items items = get(world);
+        return items == null ? null : items.get(item);
     }
 
     /**
@@ -166,17 +210,19 @@ public final class Blacklist extends HashMap<World, Items> {
         if (map == null || map.isEmpty() || !map.containsKey(action)) return false;
 
         // Checking custom data
+        counters.evaluated(action);
         final BanActionData blacklistData = map.get(action);
         final Map<BanDataType, Object> dataMap = blacklistData.getMap();
-        if (Utils.isNullOrEmpty(data) || Arrays.stream(data).allMatch(blacklistData::contains)) {
+        final Set<BanContext> contexts = blacklistData.getContexts(); // only checking the used contexts
+        if (!contexts.contains(BanContext.DATA) || Utils.isNullOrEmpty(data) || Arrays.stream(data).allMatch(blacklistData::contains)) {
             // Checking creative data?
-            if (dataMap.containsKey(BanDataType.GAMEMODE)) {
+            if (contexts.contains(BanContext.PLAYER) && dataMap.containsKey(BanDataType.GAMEMODE)) {
                 final Set<GameMode> set = blacklistData.getData(BanDataType.GAMEMODE);
                 if (set != null && !set.contains(player.getGameMode())) return false;
             }
 
             // Checking region data?
-            if (dataMap.containsKey(BanDataType.REGION)) {
+            if (contexts.contains(BanContext.LOCATION)) {
                 final IWorldGuardHook hook = pl.getHooks().getWorldGuardHook();
                 if (hook != null) {
                     final Set<com.sk89q.worldguard.protection.regions.ProtectedRegion> regions = blacklistData.getData(BanDataType.REGION);
@@ -189,29 +235,16 @@ public final class Blacklist extends HashMap<World, Items> {
 
             // Checking cooldown?
             long playerCooldown = -1L;
-            if (dataMap.containsKey(BanDataType.COOLDOWN)) {
-                final long cooldown = (long) dataMap.get(BanDataType.COOLDOWN);
-                final Map<UUID, Long> cooldowns = blacklistData.getCooldowns();
-
-                // Not in cooldown? Adding!
-                if (!cooldowns.containsKey(player.getUniqueId())) {
-                    cooldowns.put(player.getUniqueId(), System.currentTimeMillis() + cooldown);
-                    return false;
-                }
-
-                // Checking cooldown
-                playerCooldown = cooldowns.get(player.getUniqueId());
-
-                // Not in cooldown anymore?
-                if (playerCooldown < System.currentTimeMillis()) {
-                    cooldowns.remove(player.getUniqueId()); // not in cooldown anymore, cleaning up'
-                    return false;
-                }
+            if (contexts.contains(BanContext.TIME)) {
+                // Not in cooldown, or not anymore?
+                playerCooldown = blacklistData.checkCooldown(player.getUniqueId(), (long) dataMap.get(BanDataType.COOLDOWN));
+                if (playerCooldown < 0) return false;
+                counters.cooldownHit(action);
             }
 
             // Permission data?
             final String itemName = dataMap.containsKey(BanDataType.CUSTOMNAME) ? String.valueOf(dataMap.get(BanDataType.CUSTOMNAME)) : item.getType().name().toLowerCase(Locale.ROOT);
-            if (dataMap.containsKey(BanDataType.PERMISSION)) {
+            if (contexts.contains(BanContext.PLAYER) && dataMap.containsKey(BanDataType.PERMISSION)) {
                 if (player.hasPermission((String) dataMap.get(BanDataType.PERMISSION)))
                     return false;
             } else {
@@ -221,37 +254,24 @@ public final class Blacklist extends HashMap<World, Items> {
             }
 
             // Calling event?
-            if (pl.getBanConfig().getConfig().getBoolean("api.playerbanitemevent")) {
+            if (pl.getBanConfig().getSettings().isPlayerBanItemEvent() && PlayerBanItemEvent.hasListeners()) {
                 final PlayerBanItemEvent e = new PlayerBanItemEvent(player, PlayerBanItemEvent.Type.BLACKLIST, item, action, blacklistData, data);
                 Bukkit.getPluginManager().callEvent(e);
                 if (e.isCancelled()) return false;
             }
 
-            // Checking delete?
+            // Checking delete? Only the slots holding this item
             if (map.containsKey(BanAction.DELETE))
-                Bukkit.getScheduler().runTask(pl, () -> pl.getUtils().deleteItemFromInventoryView(player));
+                pl.getUtils().getDeleteSweeper().markItem(player, item);
 
-            if (sendMessage) {
-                if (playerCooldown > 0) {
-                    final List<String> message = blacklistData.getData(BanDataType.MESSAGE);
-                    if (message != null) {
-                        final long finalCooldown = playerCooldown;
-                        message.stream().map(m -> m.replace("{time}", pl.getUtils().getCooldownString(finalCooldown - System.currentTimeMillis()))).forEach(player::sendMessage);
-                    }
-                } else
-                    pl.getUtils().sendMessage(player, itemName, action, blacklistData);
-            }
+            if (sendMessage)
+                pl.getUtils().sendMessage(player, itemName, action, blacklistData, playerCooldown > 0 ? pl.getUtils().getCooldownString(playerCooldown - System.currentTimeMillis()) : null);
 
             // Run?
-            if (dataMap.containsKey(BanDataType.RUN)) {
-                final List<String> commands = blacklistData.getData(BanDataType.RUN);
-                if (commands != null)
-                    for (final String command : commands)
-                        Bukkit.dispatchCommand(Bukkit.getConsoleSender(),
-                                command.replace("{player}", player.getName())
-                                        .replace("{world}", player.getWorld().getName())
-                                        .replace("{itemname}", itemName));
-            }
+            if (dataMap.containsKey(BanDataType.RUN))
+                pl.getUtils().runCommands(player, itemName, action, blacklistData);
+            pl.getUtils().recordDenial(player, itemName, action, blacklistData, data);
+            counters.denied(action);
             return true;
         }
 
@@ -268,8 +288,19 @@ public final class Blacklist extends HashMap<World, Items> {
      * @return true if the item is blacklisted for the player world, otherwise false
      */
     public boolean isBlacklisted(@NotNull final World world, @NotNull final BannedItem item, @NotNull final BanAction action, @Nullable final BanData... data) {
+        // Constant verdict, without looking up the item?
+        if (database.isAlwaysBlacklisted(world, item.getType(), action)) {
+            counters.evaluated(action);
+            counters.denied(action);
+            return true;
+        }
+
         final BanActionData blacklistData = getBanData(world, item, action);
-        return blacklistData != null && (data == null || Arrays.stream(data).allMatch(blacklistData::contains));
+        if (blacklistData == null) return false;
+        counters.evaluated(action);
+        if (data != null && blacklistData.getContexts().contains(BanContext.DATA) && !Arrays.stream(data).allMatch(blacklistData::contains)) return false;
+        counters.denied(action);
+        return true;
     }
 
     /**
@@ -0,0 +1,306 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.database;
+
+import fr.andross.banitem.utils.list.Listable;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Versioned binary snapshot of the costly parts of the database loading:
+ * the deserialized meta items, and the materials matching the regexes.
+ * The meta items are only reused if the hash of <i>metaitems.yml</i> did not change,
+ * and the whole snapshot is ignored if the server version changed.
+ * The snapshot file is memory mapped when read, and rewritten only if something changed.
+ * @version 3.4
+ * @author Andross
+ */
+public final class DatabaseSnapshot {
+    private static final int MAGIC = 0x42494442; // BIDB
+    private static final int FORMAT = 1;
+    private static final MethodHandle serializeAsBytes; // Paper ItemStack#serializeAsBytes()
+    private static final MethodHandle deserializeBytes; // Paper ItemStack#deserializeBytes(byte[])
+    private final File file;
+    private final String serverVersion = Bukkit.getVersion() + '/' + Bukkit.getBukkitVersion() + '/' + getCodec();
+    private String metaItemsHash;
+    private Map<String, byte[]> metaItems;
+    private final Map<String, int[]> regexes = new LinkedHashMap<>();
+    private boolean changed = false;
+
+    static {
+        MethodHandle serialize = null, deserialize = null;
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            serialize = lookup.findVirtual(ItemStack.class, "serializeAsBytes", MethodType.methodType(byte[].class));
+            deserialize = lookup.findStatic(ItemStack.class, "deserializeBytes", MethodType.methodType(ItemStack.class, byte[].class));
+        } catch (final ReflectiveOperationException e) {
+            // not a Paper server, using the Bukkit serialization
+        }
+        serializeAsBytes = serialize;
+        deserializeBytes = deserialize;
+    }
+
+    /**
+     * Read the snapshot file, if present and valid.
+     * The materials regexes of the snapshot are restored in {@link Listable#getRegexMaterials()}.
+     * The regexes used are tracked from here, until the snapshot is saved.
+     * @param file the snapshot file
+     */
+    public DatabaseSnapshot(@NotNull final File file) {
+        this.file = file;
+        Listable.getUsedRegexes().clear();
+
+        // Previous snapshot which could not replace the mapped file (Windows)?
+        final File temp = getTemp();
+        if (temp.exists()) {
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (final IOException e) {
+                // ignored, the old snapshot is used
+            }
+        }
+
+        if (!file.exists()) {
+            changed = true;
+            return;
+        }
+
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT || !serverVersion.equals(readString(buffer))) {
+                changed = true;
+                return;
+            }
+
+            // Meta items
+            metaItemsHash = readString(buffer);
+            final int metaItemsSize = buffer.getInt();
+            metaItems = new LinkedHashMap<>();
+            for (int i = 0; i < metaItemsSize; i++) {
+                final String key = readString(buffer);
+                final byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                metaItems.put(key, bytes);
+            }
+
+            // Materials regexes
+            final Material[] materials = Material.values();
+            final int regexesSize = buffer.getInt();
+            for (int i = 0; i < regexesSize; i++) {
+                final String regex = readString(buffer);
+                final int[] ordinals = new int[buffer.getInt()];
+                for (int j = 0; j < ordinals.length; j++) ordinals[j] = buffer.getInt();
+                regexes.put(regex, ordinals);
+                final List<Material> list = new ArrayList<>(ordinals.length);
+                for (final int ordinal : ordinals) list.add(materials[ordinal]);
+                Listable.getRegexMaterials().putIfAbsent(regex, Collections.unmodifiableList(list));
+            }
+        } catch (final Exception e) {
+            // corrupted or truncated, will be rewritten
+            metaItemsHash = null;
+            metaItems = null;
+            regexes.clear();
+            changed = true;
+        }
+    }
+
+    /**
+     * Get the meta items of the snapshot, if the meta items file did not change
+     * @param source the meta items file
+     * @return the meta items by name, or null if the snapshot can not be used
+     */
+    @Nullable
+    public Map<String, ItemStack> getMetaItems(@NotNull final File source) {
+        if (metaItems == null || metaItemsHash == null || !metaItemsHash.equals(hash(source))) return null;
+        try {
+            final Map<String, ItemStack> items = new LinkedHashMap<>();
+            for (final Map.Entry<String, byte[]> e : metaItems.entrySet()) items.put(e.getKey(), deserialize(e.getValue()));
+            return items;
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Save the meta items loaded from the meta items file into the snapshot
+     * @param source the meta items file
+     * @param items the meta items by name
+     */
+    public void setMetaItems(@NotNull final File source, @NotNull final Map<String, ItemStack> items) {
+        final String hash = hash(source);
+        if (hash == null) return;
+        try {
+            final Map<String, byte[]> serialized = new LinkedHashMap<>();
+            for (final Map.Entry<String, ItemStack> e : items.entrySet()) serialized.put(e.getKey(), serialize(e.getValue()));
+            metaItems = serialized;
+            metaItemsHash = hash;
+            changed = true;
+        } catch (final Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Write the snapshot file, if something changed since it was read.
+     * The regexes which were not used since the snapshot was read are dropped.
+     */
+    public void save() {
+        // Regexes no longer used?
+        final Set<String> used = Listable.getUsedRegexes();
+        Listable.getRegexMaterials().keySet().retainAll(used);
+        if (regexes.keySet().retainAll(used)) changed = true;
+
+        // New materials regexes?
+        for (final Map.Entry<String, List<Material>> e : Listable.getRegexMaterials().entrySet()) {
+            if (regexes.containsKey(e.getKey())) continue;
+            regexes.put(e.getKey(), e.getValue().stream().mapToInt(Material::ordinal).toArray());
+            changed = true;
+        }
+        if (!changed) return;
+
+        final File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) return;
+        final File temp = getTemp();
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            writeString(out, serverVersion);
+
+            // Meta items
+            writeString(out, metaItemsHash == null ? "" : metaItemsHash);
+            final Map<String, byte[]> items = metaItems == null ? Collections.emptyMap() : metaItems;
+            out.writeInt(items.size());
+            for (final Map.Entry<String, byte[]> e : items.entrySet()) {
+                writeString(out, e.getKey());
+                out.writeInt(e.getValue().length);
+                out.write(e.getValue());
+            }
+
+            // Materials regexes
+            out.writeInt(regexes.size());
+            for (final Map.Entry<String, int[]> e : regexes.entrySet()) {
+                writeString(out, e.getKey());
+                out.writeInt(e.getValue().length);
+                for (final int ordinal : e.getValue()) out.writeInt(ordinal);
+            }
+        } catch (final IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (final IOException e1) {
+                return; // the old file is still mapped, the new snapshot will replace it on the next load
+            }
+        }
+        changed = false;
+    }
+
+    @NotNull
+    private File getTemp() {
+        return new File(file.getParentFile(), file.getName() + ".tmp");
+    }
+
+    @NotNull
+    private static String getCodec() {
+        return serializeAsBytes != null && deserializeBytes != null ? "paper" : "bukkit";
+    }
+
+    @NotNull
+    private static byte[] serialize(@NotNull final ItemStack item) throws IOException {
+        if (serializeAsBytes != null && deserializeBytes != null) {
+            try {
+                return (byte[]) serializeAsBytes.invoke(item);
+            } catch (final Throwable e) {
+                throw new IOException(e);
+            }
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            out.writeObject(item);
+        }
+        return bytes.toByteArray();
+    }
+
+    @NotNull
+    private static ItemStack deserialize(@NotNull final byte[] bytes) throws IOException, ClassNotFoundException {
+        if (serializeAsBytes != null && deserializeBytes != null) {
+            try {
+                return (ItemStack) deserializeBytes.invoke(bytes);
+            } catch (final Throwable e) {
+                throw new IOException(e);
+            }
+        }
+        try (final BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (ItemStack) in.readObject();
+        }
+    }
+
+    /**
+     * @param source the file
+     * @return the SHA-256 hash of the file content, or null if it can not be read
+     */
+    @Nullable
+    private static String hash(@NotNull final File source) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(source.toPath()));
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (final IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    @NotNull
+    private static String readString(@NotNull final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(@NotNull final DataOutputStream out, @NotNull final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
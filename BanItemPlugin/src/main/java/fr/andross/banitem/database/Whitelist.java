@@ -23,6 +23,7 @@ import fr.andross.banitem.BanDatabase;
 import fr.andross.banitem.BanItem;
 import fr.andross.banitem.actions.BanAction;
 import fr.andross.banitem.actions.BanActionData;
+import fr.andross.banitem.actions.BanContext;
 import fr.andross.banitem.actions.BanData;
 import fr.andross.banitem.actions.BanDataType;
 import fr.andross.banitem.events.PlayerBanItemEvent;
@@ -34,6 +35,7 @@ import fr.andross.banitem.utils.debug.DebugMessage;
 import fr.andross.banitem.utils.hooks.IWorldGuardHook;
 import fr.andross.banitem.utils.list.ListType;
 import fr.andross.banitem.utils.list.Listable;
+import fr.andross.banitem.utils.stats.ListCounters;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
@@ -48,12 +50,18 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * Map that contains whitelistedworlds
- * @version 3.3
+ * Map that contains whitelistedworlds, by world unique id <i>(the world is also accepted to get or remove them)</i>.
+ * Safe to read by several threads while exceptions are added, or bound to a loaded world.
+ * The rules are bound to the worlds loaded when the whitelist is created, and to the worlds loaded later
+ * matching their world key <i>(see {@link #bind(World, CommandSender)})</i>.
+ * @version 3.4
  * @author Andross
  */
-public class Whitelist extends HashMap<World, WhitelistedWorld> {
+public class Whitelist extends WorldMap<WhitelistedWorld> {
     private final BanItem pl;
+    private final BanDatabase database;
+    private final ListCounters counters;
+    private final ConfigurationSection section;
 
     /**
      * Constructor for a whitelist map
@@ -64,12 +72,36 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
      */
     public Whitelist(@NotNull final BanItem pl, @NotNull final BanDatabase database, @NotNull final CommandSender sender, @Nullable final ConfigurationSection section) {
         this.pl = pl;
-        if (section == null) return;
+        this.database = database;
+        this.counters = pl.getUtils().getStats().getWhitelistCounters();
+        this.section = section;
+        if (section != null) load(sender, null);
+    }
+
+    /**
+     * Bind the rules matching a world loaded after this whitelist
+     * @param world the loaded world
+     * @param sender {@link CommandSender} who to send the debug messages
+     */
+    public void bind(@NotNull final World world, @NotNull final CommandSender sender) {
+        if (section == null || containsKey(world.getUID())) return;
+        load(sender, world);
+    }
 
+    /**
+     * Loading the whitelist rules
+     * @param sender {@link CommandSender} who to send the debug messages
+     * @param world the only world to load the rules for, or null for all the loaded worlds
+     */
+    private void load(@NotNull final CommandSender sender, @Nullable final World world) {
         final BanConfig banConfig = pl.getBanConfig();
         for (final String worldKey : section.getKeys(false)) { // Looping through worlds
             // Checking the world
-            final List<World> worlds = Listable.getWorlds(worldKey, new Debug(banConfig, sender, new DebugMessage(null, banConfig.getConfigName()), new DebugMessage(null, "whitelist")));
+            final List<World> worlds;
+            if (world == null)
+                worlds = Listable.getWorlds(worldKey, new Debug(banConfig, sender, new DebugMessage(null, banConfig.getConfigName()), new DebugMessage(null, "whitelist")));
+            else
+                worlds = Listable.matchesWorld(worldKey, world.getName()) ? Collections.singletonList(world) : Collections.emptyList();
             if (worlds.isEmpty()) continue;
 
             // Getting item info
@@ -123,6 +155,16 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
         }
     }
 
+    /**
+     * Get the whitelisted world of a world
+     * @param world the bukkit world
+     * @return the whitelisted world, or null if this world is not whitelisted
+     */
+    @Nullable
+    public WhitelistedWorld get(@NotNull final World world) {
+        return get(world.getUID());
+    }
+
     /**
      * This method will create a new whitelisted world, and add/replace it into the map
      * @param world the bukkit world
@@ -133,7 +175,8 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
     @NotNull
     public WhitelistedWorld createNewWhitelistedWorld(@NotNull final World world, @Nullable final List<String> messages, @Nullable final List<BanAction> ignored) {
         final WhitelistedWorld ww = new WhitelistedWorld(world, messages, ignored);
-        put(world, ww);
+        put(world.getUID(), ww);
+        database.invalidateCandidates();
         return ww;
     }
 
@@ -145,7 +188,8 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
      * @return an existing whitelistedworld object, otherwise a new one
      */
     public WhitelistedWorld getOrCreateWhitelistedWorld(@NotNull final World world, @Nullable final List<String> messages, @Nullable final List<BanAction> ignored) {
-        return containsKey(world) ? get(world) : createNewWhitelistedWorld(world, messages, ignored);
+        final WhitelistedWorld ww = get(world);
+        return ww != null ? ww : createNewWhitelistedWorld(world, messages, ignored);
     }
 
     /**
@@ -156,7 +200,8 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
      */
     public void addNewException(@NotNull final WhitelistedWorld ww, @NotNull final BannedItem item, @NotNull final Map<BanAction, BanActionData> actions) {
         ww.addNewEntry(item, actions);
-        put(ww.getWorld(), ww);
+        put(ww.getWorldId(), ww);
+        database.invalidateCandidates();
     }
 
     /**
@@ -177,14 +222,16 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
         if (ww.getIgnored().contains(action)) return true;
 
         /* Checking whitelist */
+        counters.evaluated(action);
         final Map<BanAction, BanActionData> map = ww.get(item);
         if (map != null && !map.isEmpty() && map.containsKey(action)) {
             final BanActionData whitelisted = map.get(action);
+            final Set<BanContext> contexts = whitelisted.getContexts(); // only checking the used contexts
             // Checking custom data
-            if (Utils.isNullOrEmpty(data) || Arrays.stream(data).allMatch(whitelisted::contains)) {
+            if (!contexts.contains(BanContext.DATA) || Utils.isNullOrEmpty(data) || Arrays.stream(data).allMatch(whitelisted::contains)) {
                 // Permission data?
                 final String itemName = whitelisted.getMap().containsKey(BanDataType.CUSTOMNAME) ? String.valueOf(whitelisted.getMap().get(BanDataType.CUSTOMNAME)) : item.getType().name().toLowerCase(Locale.ROOT);
-                if (whitelisted.getMap().containsKey(BanDataType.PERMISSION)) {
+                if (contexts.contains(BanContext.PLAYER) && whitelisted.getMap().containsKey(BanDataType.PERMISSION)) {
                     if (player.hasPermission((String) whitelisted.getMap().get(BanDataType.PERMISSION)))
                         return true;
                 } else {
@@ -194,17 +241,19 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
                 }
 
                 // Checking gamemode data?
-                if (whitelisted.getMap().containsKey(BanDataType.GAMEMODE)) {
+                if (contexts.contains(BanContext.PLAYER) && whitelisted.getMap().containsKey(BanDataType.GAMEMODE)) {
                     final Set<GameMode> set = whitelisted.getData(BanDataType.GAMEMODE);
                     if (set != null && !set.contains(player.getGameMode())) { // Gamemode not whitelisted
                         if (sendMessage)
                             pl.getUtils().sendMessage(player, itemName, action, whitelisted);
+                        pl.getUtils().recordDenial(player, itemName, action, whitelisted, data);
+                        counters.denied(action);
                         return false;
                     }
                 }
 
                 // Checking region data?
-                if (whitelisted.getMap().containsKey(BanDataType.REGION)) {
+                if (contexts.contains(BanContext.LOCATION)) {
                     final IWorldGuardHook hook = pl.getHooks().getWorldGuardHook();
                     if (hook != null) {
                         final Set<ProtectedRegion> regions = whitelisted.getData(BanDataType.REGION);
@@ -213,6 +262,8 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
                             if (regions.stream().noneMatch(standingRegions::contains)) {
                                 if (sendMessage)
                                     pl.getUtils().sendMessage(player, itemName, action, whitelisted);
+                                pl.getUtils().recordDenial(player, itemName, action, whitelisted, data);
+                                counters.denied(action);
                                 return false;
                             }
                         }
@@ -220,49 +271,36 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
                 }
 
                 // Checking cooldown?
-                if (whitelisted.getMap().containsKey(BanDataType.COOLDOWN)) {
-                    final long cooldown = (long) whitelisted.getMap().get(BanDataType.COOLDOWN);
-                    final Map<UUID, Long> cooldowns = whitelisted.getCooldowns();
-
-                    // Not in cooldown? Adding!
-                    if (!cooldowns.containsKey(player.getUniqueId())) {
-                        cooldowns.put(player.getUniqueId(), System.currentTimeMillis() + cooldown);
-                        return true;
-                    }
-
-                    // Checking cooldown
-                    final long playerCooldown = cooldowns.get(player.getUniqueId());
-
-                    // Not in cooldown anymore?
-                    if (playerCooldown < System.currentTimeMillis()) {
-                        cooldowns.remove(player.getUniqueId()); // not in cooldown anymore, cleaning up'
-                        return true;
-                    }
+                if (contexts.contains(BanContext.TIME)) {
+                    // Not in cooldown, or not anymore?
+                    if (whitelisted.checkCooldown(player.getUniqueId(), (long) whitelisted.getMap().get(BanDataType.COOLDOWN)) < 0) return true;
+                    counters.cooldownHit(action);
                 }
 
                 // Calling event?
-                if (pl.getBanConfig().getConfig().getBoolean("api.playerbanitemevent")) {
+                if (pl.getBanConfig().getSettings().isPlayerBanItemEvent()) {
+                    if (!PlayerBanItemEvent.hasListeners()) return true; // can not be cancelled
                     final PlayerBanItemEvent e = new PlayerBanItemEvent(player, PlayerBanItemEvent.Type.WHITELIST, item, action, whitelisted, data);
                     Bukkit.getPluginManager().callEvent(e);
+                    if (e.isCancelled()) {
+                        pl.getUtils().recordDenial(player, itemName, action, whitelisted, data);
+                        counters.denied(action);
+                    }
                     return !e.isCancelled();
                 }
 
                 // Run?
-                if (whitelisted.getMap().containsKey(BanDataType.RUN)) {
-                    final List<String> commands = whitelisted.getData(BanDataType.RUN);
-                    if (commands != null)
-                        for (final String command : commands)
-                            Bukkit.dispatchCommand(Bukkit.getConsoleSender(),
-                                    command.replace("{player}", player.getName())
-                                            .replace("{world}", player.getWorld().getName())
-                                            .replace("{itemname}", itemName));
-                }
+                if (whitelisted.getMap().containsKey(BanDataType.RUN))
+                    pl.getUtils().runCommands(player, itemName, action, whitelisted);
 
                 return true;
             }
         }
 
-        if (sendMessage) pl.getUtils().sendMessage(player, action, ww.getMessages());
+        if (sendMessage) pl.getUtils().sendMessageTemplates(player, action, ww.getMessageTemplates());
+        if (pl.getUtils().isRecordingDenials())
+            pl.getUtils().recordDenial(player, item.getType().name().toLowerCase(Locale.ROOT), action, null, data);
+        counters.denied(action);
         return false;
     }
 
@@ -284,12 +322,14 @@ public class Whitelist extends HashMap<World, WhitelistedWorld> {
 
         /* Checking whitelist */
         // Checking by item (can include meta)?
+        counters.evaluated(action);
         final Map<BanAction, BanActionData> map = ww.get(item);
 
         if (map != null && map.containsKey(action)) { // In whitelist
             final BanActionData whitelisted = map.get(action);
-            return data == null || Arrays.stream(data).allMatch(whitelisted::contains);
+            if (data == null || !whitelisted.getContexts().contains(BanContext.DATA) || Arrays.stream(data).allMatch(whitelisted::contains)) return true;
         }
+        counters.denied(action);
         return false;
     }
 
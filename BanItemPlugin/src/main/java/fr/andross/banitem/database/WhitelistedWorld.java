@@ -24,6 +24,8 @@ import fr.andross.banitem.database.items.Items;
 import fr.andross.banitem.items.BannedItem;
 import fr.andross.banitem.items.CustomBannedItem;
 import fr.andross.banitem.items.ICustomName;
+import fr.andross.banitem.utils.text.MessageTemplate;
+import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -32,12 +34,14 @@ import java.util.*;
 
 /**
  * Map containing all allowed items of a world
- * @version 3.1.1
+ * @version 3.4
  * @author Andross
  */
 public final class WhitelistedWorld extends Items {
-    private final World world;
+    private final UUID worldId;
+    private final String worldName;
     private final List<String> messages = new ArrayList<>();
+    private volatile List<MessageTemplate> messageTemplates;
     private final Set<BanAction> ignored = EnumSet.noneOf(BanAction.class);
 
     /**
@@ -48,7 +52,8 @@ public final class WhitelistedWorld extends Items {
      * @param ignored list of ignored actions
      */
     public WhitelistedWorld(@NotNull final World world, @Nullable final List<String> messages, @Nullable final List<BanAction> ignored) {
-        this.world = world;
+        this.worldId = world.getUID();
+        this.worldName = world.getName();
         if (messages != null) this.messages.addAll(messages);
         if (ignored != null) this.ignored.addAll(ignored);
     }
@@ -61,7 +66,9 @@ public final class WhitelistedWorld extends Items {
     public void addNewEntry(@NotNull final BannedItem item, @NotNull final Map<BanAction, BanActionData> map) {
         final String customName = item instanceof ICustomName ? ((ICustomName) item).getName() : null;
         final CustomBannedItem customBannedItem = item instanceof CustomBannedItem ? (CustomBannedItem) item : null;
-        final Map<BanAction, BanActionData> bannedItemMap = customBannedItem != null ? customItems.getOrDefault(customBannedItem, new EnumMap<>(BanAction.class)) : items.getOrDefault(item, new EnumMap<>(BanAction.class));
+        final Map<BanAction, BanActionData> previous = customBannedItem != null ? customItems.get(customBannedItem) : items.get(item);
+        final Map<BanAction, BanActionData> bannedItemMap = new EnumMap<>(BanAction.class); // copied, the previous one may be read meanwhile
+        if (previous != null) bannedItemMap.putAll(previous);
 
         if (customName == null)
             bannedItemMap.putAll(map);
@@ -79,11 +86,30 @@ public final class WhitelistedWorld extends Items {
     }
 
     /**
-     * @return the bukkit world
+     * No reference to the world is kept anymore, so an unloaded world can be released.
+     * @return the bukkit world, or null if it is not loaded anymore
+     * @deprecated the world may be unloaded, use {@link #getWorldId()} or {@link #getWorldName()}
      */
-    @NotNull
+    @Deprecated
+    @Nullable
     public World getWorld() {
-        return world;
+        return Bukkit.getWorld(worldId);
+    }
+
+    /**
+     * @return the unique id of the world
+     */
+    @NotNull
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    /**
+     * @return the name of the world
+     */
+    @NotNull
+    public String getWorldName() {
+        return worldName;
     }
 
     /**
@@ -94,6 +120,16 @@ public final class WhitelistedWorld extends Items {
         return messages;
     }
 
+    /**
+     * @return the messages compiled as templates, recompiled if the messages have changed
+     */
+    @NotNull
+    public List<MessageTemplate> getMessageTemplates() {
+        List<MessageTemplate> templates = messageTemplates;
+        if (!MessageTemplate.isCompiledFrom(templates, messages)) messageTemplates = templates = MessageTemplate.compile(messages);
+        return templates;
+    }
+
     /**
      * @return set of ignored actions, empty if none configured
      */
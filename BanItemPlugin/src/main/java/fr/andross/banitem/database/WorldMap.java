@@ -0,0 +1,70 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.database;
+
+import org.bukkit.World;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map of values by world unique id, read by the threads checking the items while the rules of the worlds
+ * loaded later are bound to it, or released once unloaded.
+ * For compatibility with the maps previously keyed by world, the lookups and removals also accept a {@link World}.
+ * @param <V> the values
+ * @version 3.4
+ * @author Andross
+ */
+public class WorldMap<V> extends ConcurrentHashMap<UUID, V> {
+
+    @Nullable
+    private static Object key(@Nullable final Object key) {
+        return key instanceof World ? ((World) key).getUID() : key;
+    }
+
+    /**
+     * @param key the world unique id, or the world
+     * @return the value of the world, or null if none
+     */
+    @Override
+    public V get(@Nullable final Object key) {
+        final Object uuid = key(key);
+        return uuid == null ? null : super.get(uuid);
+    }
+
+    /**
+     * @param key the world unique id, or the world
+     * @return true if the world has a value
+     */
+    @Override
+    public boolean containsKey(@Nullable final Object key) {
+        final Object uuid = key(key);
+        return uuid != null && super.containsKey(uuid);
+    }
+
+    /**
+     * @param key the world unique id, or the world
+     * @return the removed value of the world, or null if none
+     */
+    @Override
+    public V remove(@Nullable final Object key) {
+        final Object uuid = key(key);
+        return uuid == null ? null : super.remove(uuid);
+    }
+}
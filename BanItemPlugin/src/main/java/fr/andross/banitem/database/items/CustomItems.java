@@ -19,6 +19,8 @@ package fr.andross.banitem.database.items;
 
 import fr.andross.banitem.BanItem;
 import fr.andross.banitem.items.CustomBannedItem;
+import fr.andross.banitem.items.meta.MetaTypeComparator;
+import fr.andross.banitem.items.meta.TextMatcher;
 import fr.andross.banitem.utils.DoubleMap;
 import fr.andross.banitem.utils.debug.Debug;
 import fr.andross.banitem.utils.debug.DebugMessage;
@@ -29,13 +31,15 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Map that contains all the custom items
  * This is a double map <i>(include a reversed map)</i>, for easier access of
  * custom items names and their respective banned item.
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public final class CustomItems extends DoubleMap<String, CustomBannedItem> {
@@ -63,6 +67,24 @@ public final class CustomItems extends DoubleMap<String, CustomBannedItem> {
             if (customBannedItem.isValid())
                 put(key, customBannedItem);
         }
+
+        // Sharing the meta conditions used by several custom items, to check them once per item
+        // Comparators are equal when checking the same predicate, see MetaTypeComparator#equals
+        final Map<MetaTypeComparator, Integer> uses = new HashMap<>();
+        for (final CustomBannedItem customBannedItem : values())
+            customBannedItem.getMeta().values().forEach(comparator -> uses.merge(comparator, 1, Integer::sum));
+        final Map<MetaTypeComparator, Integer> predicates = new HashMap<>();
+        for (final CustomBannedItem customBannedItem : values())
+            customBannedItem.getMeta().values().forEach(comparator ->
+                comparator.setPredicate(uses.get(comparator) > 1 ? predicates.computeIfAbsent(comparator, k -> predicates.size()) : -1));
+
+        // Compiling the lore & display name conditions of all custom items
+        final TextMatcher.Builder builder = new TextMatcher.Builder();
+        values().forEach(customBannedItem -> customBannedItem.registerTextConditions(builder));
+        if (!builder.isEmpty()) {
+            final TextMatcher textMatcher = builder.build();
+            values().forEach(customBannedItem -> customBannedItem.setTextMatcher(textMatcher));
+        }
     }
 
     /**
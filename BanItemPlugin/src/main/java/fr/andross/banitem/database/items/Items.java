@@ -17,24 +17,33 @@
  */
 package fr.andross.banitem.database.items;
 
+import fr.andross.banitem.BanItem;
 import fr.andross.banitem.actions.BanAction;
 import fr.andross.banitem.actions.BanActionData;
 import fr.andross.banitem.items.BannedItem;
 import fr.andross.banitem.items.CustomBannedItem;
-import org.bukkit.inventory.ItemStack;
+import fr.andross.banitem.items.meta.DecisionDiagram;
+import fr.andross.banitem.items.meta.ItemSnapshot;
+import org.bukkit.Material;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Map that store all the banned items, with their actions and actions datas.
- * @version 3.1.1
+ * Safe to read by several threads while items are added: the actions maps of an item are replaced, not modified.
+ * The custom items are checked through a {@link DecisionDiagram}, built again when the custom items map is modified.
+ * @version 3.4
  * @author Andross
  */
 public class Items {
-    protected final Map<BannedItem, Map<BanAction, BanActionData>> items = new HashMap<>(); // includes normal & meta items
-    protected final Map<CustomBannedItem, Map<BanAction, BanActionData>> customItems = new HashMap<>();
+    protected final Map<BannedItem, Map<BanAction, BanActionData>> items = new ConcurrentHashMap<>(); // includes normal & meta items
+    protected final Map<CustomBannedItem, Map<BanAction, BanActionData>> customItems = new CustomItemsMap();
+    private volatile DecisionDiagram diagram = null; // null if the custom items changed
 
     /**
      * Get a map of actions and their respective data for a banned item object, if present.
@@ -45,21 +54,67 @@ public class Items {
     public Map<BanAction, BanActionData> get(@NotNull final BannedItem bannedItem) {
         // Custom items?
         if (!customItems.isEmpty()) {
-            final ItemStack item = bannedItem.toItemStack();
+            final Material type = bannedItem.getType();
+            final DecisionDiagram diagram = getDiagram();
+            if (diagram.isCompiled()) {
+                final CustomBannedItem customBannedItem = diagram.hasCandidates(type) ? diagram.match(new ItemSnapshot(bannedItem.toItemStack()), type) : null;
+                if (customBannedItem == null) return getItem(bannedItem);
+                final Map<BanAction, BanActionData> map = customItems.get(customBannedItem);
+                if (map != null) return map;
+                this.diagram = null; // removed through an iterator, checked one by one this time
+            }
+
+            ItemSnapshot snapshot = null; // fields & text conditions shared by the custom items
             for (final Map.Entry<CustomBannedItem, Map<BanAction, BanActionData>> e : customItems.entrySet()) {
-                if (e.getKey().matches(item))
+                final CustomBannedItem customBannedItem = e.getKey();
+                if (!customBannedItem.getMaterials().contains(type)) continue;
+                if (snapshot == null) snapshot = new ItemSnapshot(bannedItem.toItemStack());
+                if (customBannedItem.matches(snapshot))
                     return e.getValue();
             }
         }
+        return getItem(bannedItem);
+    }
 
+    @Nullable
+    private Map<BanAction, BanActionData> getItem(@NotNull final BannedItem bannedItem) {
         // Meta item?
-        if (items.containsKey(bannedItem)) return items.get(bannedItem);
+        final Map<BanAction, BanActionData> map = items.get(bannedItem);
+        if (map != null) return map;
 
         // Simple material item?
         final BannedItem simpleBannedItem = new BannedItem(bannedItem.getType());
         return items.get(simpleBannedItem);
     }
 
+    /**
+     * Check if a custom item has this material, and so could match an item of this material
+     * @param type the material
+     * @return true if at least one custom item has this material
+     */
+    public boolean isCustomCandidate(@NotNull final Material type) {
+        if (customItems.isEmpty()) return false;
+        final DecisionDiagram diagram = getDiagram();
+        if (diagram.isCompiled()) return diagram.hasCandidates(type);
+        return customItems.keySet().stream().anyMatch(customBannedItem -> customBannedItem.getMaterials().contains(type));
+    }
+
+    /**
+     * Get the decision diagram of the custom items, built again if the custom items changed
+     * or if its predicates order is outdated
+     * @return the decision diagram of the custom items
+     */
+    @NotNull
+    public DecisionDiagram getDiagram() {
+        DecisionDiagram diagram = this.diagram;
+        if (diagram == null || diagram.isOutdated()) {
+            final BanItem pl = BanItem.getInstance();
+            diagram = DecisionDiagram.build(new ArrayList<>(customItems.keySet()), pl == null ? null : pl.getUtils().getStats());
+            this.diagram = diagram;
+        }
+        return diagram;
+    }
+
     /**
      * Get the BanActionData of the BannedItem for the said action, if present.
      * @param bannedItem the banned item
@@ -109,4 +164,69 @@ public class Items {
         customItems.values().stream().map(Map::keySet).forEach(set::addAll);
         return Collections.unmodifiableSet(set);
     }
+
+    /**
+     * Custom items map, forgetting the decision diagram when modified
+     */
+    private final class CustomItemsMap extends ConcurrentHashMap<CustomBannedItem, Map<BanAction, BanActionData>> {
+        @Override
+        public Map<BanAction, BanActionData> put(@NotNull final CustomBannedItem key, @NotNull final Map<BanAction, BanActionData> value) {
+            diagram = null;
+            return super.put(key, value);
+        }
+
+        @Override
+        public void putAll(@NotNull final Map<? extends CustomBannedItem, ? extends Map<BanAction, BanActionData>> m) {
+            diagram = null;
+            super.putAll(m);
+        }
+
+        @Override
+        public Map<BanAction, BanActionData> putIfAbsent(@NotNull final CustomBannedItem key, @NotNull final Map<BanAction, BanActionData> value) {
+            diagram = null;
+            return super.putIfAbsent(key, value);
+        }
+
+        @Override
+        public Map<BanAction, BanActionData> remove(@NotNull final Object key) {
+            diagram = null;
+            return super.remove(key);
+        }
+
+        @Override
+        public boolean remove(@NotNull final Object key, final Object value) {
+            diagram = null;
+            return super.remove(key, value);
+        }
+
+        @Override
+        public void clear() {
+            diagram = null;
+            super.clear();
+        }
+
+        @Override
+        public Map<BanAction, BanActionData> computeIfAbsent(@NotNull final CustomBannedItem key, @NotNull final Function<? super CustomBannedItem, ? extends Map<BanAction, BanActionData>> mappingFunction) {
+            diagram = null;
+            return super.computeIfAbsent(key, mappingFunction);
+        }
+
+        @Override
+        public Map<BanAction, BanActionData> computeIfPresent(@NotNull final CustomBannedItem key, @NotNull final BiFunction<? super CustomBannedItem, ? super Map<BanAction, BanActionData>, ? extends Map<BanAction, BanActionData>> remappingFunction) {
+            diagram = null;
+            return super.computeIfPresent(key, remappingFunction);
+        }
+
+        @Override
+        public Map<BanAction, BanActionData> compute(@NotNull final CustomBannedItem key, @NotNull final BiFunction<? super CustomBannedItem, ? super Map<BanAction, BanActionData>, ? extends Map<BanAction, BanActionData>> remappingFunction) {
+            diagram = null;
+            return super.compute(key, remappingFunction);
+        }
+
+        @Override
+        public Map<BanAction, BanActionData> merge(@NotNull final CustomBannedItem key, @NotNull final Map<BanAction, BanActionData> value, @NotNull final BiFunction<? super Map<BanAction, BanActionData>, ? super Map<BanAction, BanActionData>, ? extends Map<BanAction, BanActionData>> remappingFunction) {
+            diagram = null;
+            return super.merge(key, value, remappingFunction);
+        }
+    }
 }
@@ -18,6 +18,9 @@
 package fr.andross.banitem.database.items;
 
 import fr.andross.banitem.BanItem;
+import fr.andross.banitem.database.DatabaseSnapshot;
+import fr.andross.banitem.database.storage.MetaItemStorage;
+import fr.andross.banitem.database.storage.YamlMetaItemStorage;
 import fr.andross.banitem.items.BannedItem;
 import fr.andross.banitem.items.MetaItem;
 import fr.andross.banitem.utils.Chat;
@@ -25,8 +28,8 @@ import fr.andross.banitem.utils.DoubleMap;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.Locale;
@@ -35,12 +38,12 @@ import java.util.Locale;
  * Map that contains all the meta items
  * This is a double map <i>(include a reversed map)</i>, for easier access of
  * meta items names and their respective banned item.
- * @version 3.1.1
+ * @version 3.4
  * @author Andross
  */
 public final class MetaItems extends DoubleMap<String, BannedItem> {
+    private final MetaItemStorage storage;
     private final File file;
-    private final FileConfiguration config;
 
     /**
      * This will create a new instance of meta items map, with the items from <i>metaitems.yml</i> file.
@@ -50,36 +53,62 @@ public final class MetaItems extends DoubleMap<String, BannedItem> {
      * @param sender the sender who executed this command, for debug
      */
     public MetaItems(@NotNull final BanItem pl, @NotNull final CommandSender sender) {
+        this(pl, sender, (DatabaseSnapshot) null);
+    }
+
+    /**
+     * This will create a new instance of meta items map, with the items from the snapshot if <i>metaitems.yml</i>
+     * did not change, otherwise from the <i>metaitems.yml</i> file.
+     * This should not be used externally, as it could create two different instance of this object.
+     * You should use {@link fr.andross.banitem.BanItemAPI#load(CommandSender, File)} instead.
+     * @param pl main instance
+     * @param sender the sender who executed this command, for debug
+     * @param snapshot the database snapshot, null to always load from the file
+     */
+    public MetaItems(@NotNull final BanItem pl, @NotNull final CommandSender sender, @Nullable final DatabaseSnapshot snapshot) {
+        this(pl, sender, new YamlMetaItemStorage(pl, snapshot));
+    }
+
+    /**
+     * This will create a new instance of meta items map, with the items of the storage.
+     * This should not be used externally, as it could create two different instance of this object.
+     * You should use {@link fr.andross.banitem.BanItemAPI#load(CommandSender, File)} instead.
+     * @param pl main instance
+     * @param sender the sender who executed this command, for debug
+     * @param storage the meta items storage
+     */
+    public MetaItems(@NotNull final BanItem pl, @NotNull final CommandSender sender, @NotNull final MetaItemStorage storage) {
+        this.storage = storage;
         this.file = new File(pl.getDataFolder(), "metaitems.yml");
-        if (!file.exists()) pl.saveResource("metaitems.yml", false);
-        this.config = YamlConfiguration.loadConfiguration(file);
+        storage.load((key, itemStack) -> put(key, new MetaItem(key.toLowerCase(Locale.ROOT), itemStack)),
+                key -> sender.sendMessage(pl.getBanConfig().getPrefix() + Chat.color("&cInvalid meta item &e" + key + "&c in " + storage.getName() + ".")));
+    }
 
-        // Loading meta items
-        for (final String key : config.getKeys(false)) {
-            try {
-                final ItemStack itemStack = (ItemStack) config.get(key);
-                if (itemStack == null) throw new Exception();
-                put(key, new MetaItem(key.toLowerCase(Locale.ROOT), itemStack));
-            } catch (final Exception e) {
-                e.printStackTrace();
-                sender.sendMessage(pl.getBanConfig().getPrefix() + Chat.color("&cInvalid meta item &e" + key + "&c in metaitems.yml."));
-            }
-        }
+    /**
+     * @return the storage of the meta items
+     */
+    @NotNull
+    public MetaItemStorage getStorage() {
+        return storage;
     }
 
     /**
-     * @return the file configuration used to create this instance
+     * @return the file configuration of <i>metaitems.yml</i>
+     * @deprecated the meta items may not be stored in <i>metaitems.yml</i>, use {@link #getStorage()} instead
      */
+    @Deprecated
     @NotNull
     public FileConfiguration getConfig() {
-        return config;
+        return storage instanceof YamlMetaItemStorage ? ((YamlMetaItemStorage) storage).getConfig() : YamlConfiguration.loadConfiguration(file);
     }
 
     /**
-     * @return the "items.yml" file of the BanItem plugin
+     * @return the "metaitems.yml" file of the BanItem plugin
+     * @deprecated the meta items may not be stored in <i>metaitems.yml</i>, use {@link #getStorage()} instead
      */
+    @Deprecated
     @NotNull
     public File getFile() {
         return file;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.database.storage;
+
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.database.DatabaseSnapshot;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Storage backend of the meta items.
+ * The meta items are loaded once into the {@link fr.andross.banitem.database.items.MetaItems} map,
+ * then each addition or removal is written individually.
+ * @version 3.4
+ * @author Andross
+ */
+public interface MetaItemStorage {
+
+    /**
+     * Create the storage configured in the <i>storage</i> section.
+     * Falls back to the <i>metaitems.yml</i> storage if the configured one can not be opened.
+     * @param pl main instance
+     * @param section the storage section, null for the default storage
+     * @param snapshot the database snapshot, used by the <i>metaitems.yml</i> storage
+     * @return the meta items storage
+     */
+    @NotNull
+    static MetaItemStorage create(@NotNull final BanItem pl, @Nullable final ConfigurationSection section, @Nullable final DatabaseSnapshot snapshot) {
+        final String type = section == null ? "yaml" : section.getString("type", "yaml").toLowerCase(Locale.ROOT);
+        if (type.equals("sqlite")) {
+            try {
+                final SqliteMetaItemStorage storage = new SqliteMetaItemStorage(new File(pl.getDataFolder(), section.getString("file", "metaitems.db")));
+                // First use: importing the meta items of metaitems.yml, only once
+                if (!storage.isImported()) {
+                    final File yaml = new File(pl.getDataFolder(), "metaitems.yml");
+                    storage.importFrom(yaml.exists() ? new YamlMetaItemStorage(pl, null) : null);
+                }
+                return storage;
+            } catch (final Exception e) {
+                e.printStackTrace();
+                pl.getLogger().warning("Can not open the sqlite meta items storage, using metaitems.yml instead.");
+            }
+        } else if (!type.equals("yaml"))
+            pl.getLogger().warning("Unknown meta items storage '" + type + "', using metaitems.yml instead.");
+        return new YamlMetaItemStorage(pl, snapshot);
+    }
+
+    /**
+     * @return the name of the storage, for debug
+     */
+    @NotNull
+    String getName();
+
+    /**
+     * Load all the meta items
+     * @param loaded called for each meta item loaded, with its name
+     * @param invalid called with the name of each meta item which can not be loaded
+     */
+    void load(@NotNull final BiConsumer<String, ItemStack> loaded, @NotNull final Consumer<String> invalid);
+
+    /**
+     * Get a single meta item
+     * @param name the meta item name
+     * @return the meta item, or null if it does not exist or can not be loaded
+     */
+    @Nullable
+    ItemStack get(@NotNull final String name);
+
+    /**
+     * Get a page of the meta items names, in alphabetical order
+     * @param offset amount of names skipped
+     * @param limit maximum amount of names
+     * @return the names of this page
+     */
+    @NotNull
+    List<String> getNames(final int offset, final int limit);
+
+    /**
+     * @return the amount of stored meta items
+     */
+    int count();
+
+    /**
+     * Add or replace a meta item
+     * @param name the meta item name
+     * @param item the item
+     */
+    void save(@NotNull final String name, @NotNull final ItemStack item);
+
+    /**
+     * Remove a meta item
+     * @param name the meta item name
+     */
+    void remove(@NotNull final String name);
+
+    /**
+     * Release the resources of the storage.
+     * The storage should not be used anymore after this.
+     */
+    void close();
+}
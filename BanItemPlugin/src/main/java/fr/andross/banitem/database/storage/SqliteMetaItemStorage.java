@@ -0,0 +1,256 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.database.storage;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Meta items storage in an embedded SQLite database, for large amounts of meta items.
+ * Each meta item is a row indexed by its name: additions and removals only write their own row,
+ * and the meta items are read by pages instead of parsing a single large file.
+ * The items are stored with the Bukkit serialization, readable by all the server implementations.
+ * All the rows are still loaded into the {@link fr.andross.banitem.database.items.MetaItems} map,
+ * which is also looked up by item and by name pattern: the meta items are not loaded lazily by pages.
+ * Requires the SQLite JDBC driver <i>(org.sqlite.JDBC)</i>, shipped with Spigot & Paper.
+ * @version 3.4
+ * @author Andross
+ */
+public final class SqliteMetaItemStorage implements MetaItemStorage {
+    private static final int PAGE = 256;
+    private static final int IMPORTED = 1; // user_version once metaitems.yml has been imported
+    private final File file;
+    private final Connection connection;
+
+    /**
+     * Open (or create) the database file
+     * @param file the database file
+     * @throws SQLException if the driver is missing or the database can not be opened
+     */
+    public SqliteMetaItemStorage(@NotNull final File file) throws SQLException {
+        this.file = file;
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (final ClassNotFoundException e) {
+            throw new SQLException("SQLite driver not found", e);
+        }
+        final File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) throw new SQLException("Can not create " + parent);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (final Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS meta_items (name TEXT PRIMARY KEY NOT NULL, item BLOB NOT NULL)");
+        }
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public void load(@NotNull final BiConsumer<String, ItemStack> loaded, @NotNull final Consumer<String> invalid) {
+        // Keyset pagination, each page continuing after the last name read
+        String last = "";
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT name, item FROM meta_items WHERE name > ? ORDER BY name LIMIT ?")) {
+            int rows;
+            do {
+                statement.setString(1, last);
+                statement.setInt(2, PAGE);
+                rows = 0;
+                try (final ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        rows++;
+                        last = result.getString(1);
+                        try {
+                            loaded.accept(last, deserialize(result.getBytes(2)));
+                        } catch (final Exception e) {
+                            e.printStackTrace();
+                            invalid.accept(last);
+                        }
+                    }
+                }
+            } while (rows == PAGE);
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Nullable
+    @Override
+    public ItemStack get(@NotNull final String name) {
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT item FROM meta_items WHERE name = ?")) {
+            statement.setString(1, name);
+            try (final ResultSet result = statement.executeQuery()) {
+                return result.next() ? deserialize(result.getBytes(1)) : null;
+            }
+        } catch (final Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<String> getNames(final int offset, final int limit) {
+        final List<String> names = new ArrayList<>();
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT name FROM meta_items ORDER BY name LIMIT ? OFFSET ?")) {
+            statement.setInt(1, Math.max(0, limit));
+            statement.setInt(2, Math.max(0, offset));
+            try (final ResultSet result = statement.executeQuery()) {
+                while (result.next()) names.add(result.getString(1));
+            }
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+        return names;
+    }
+
+    @Override
+    public int count() {
+        try (final Statement statement = connection.createStatement();
+             final ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM meta_items")) {
+            return result.next() ? result.getInt(1) : 0;
+        } catch (final SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    @Override
+    public void save(@NotNull final String name, @NotNull final ItemStack item) {
+        try (final PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO meta_items (name, item) VALUES (?, ?)")) {
+            statement.setString(1, name);
+            statement.setBytes(2, serialize(item));
+            statement.executeUpdate();
+        } catch (final Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void remove(@NotNull final String name) {
+        try (final PreparedStatement statement = connection.prepareStatement("DELETE FROM meta_items WHERE name = ?")) {
+            statement.setString(1, name);
+            statement.executeUpdate();
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Check if the meta items of another storage have already been imported into this database.
+     * A database created before the import was recorded is considered imported if it is not empty,
+     * and the import is then recorded.
+     * @return true if already imported
+     */
+    public boolean isImported() {
+        try (final Statement statement = connection.createStatement()) {
+            try (final ResultSet result = statement.executeQuery("PRAGMA user_version")) {
+                if (result.next() && result.getInt(1) >= IMPORTED) return true;
+            }
+            if (count() == 0) return false;
+            statement.executeUpdate("PRAGMA user_version = " + IMPORTED);
+            return true;
+        } catch (final SQLException e) {
+            e.printStackTrace();
+            return true; // not importing again on error
+        }
+    }
+
+    /**
+     * Copy all the meta items of another storage, in a single transaction,
+     * and record the import so it is only done once
+     * @param source the storage to import, null to only record the import
+     */
+    public void importFrom(@Nullable final MetaItemStorage source) {
+        final Map<String, ItemStack> items = new LinkedHashMap<>();
+        if (source != null) {
+            source.load(items::put, name -> { });
+            source.close();
+        }
+
+        try (final PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO meta_items (name, item) VALUES (?, ?)");
+             final Statement version = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            for (final Map.Entry<String, ItemStack> e : items.entrySet()) {
+                statement.setString(1, e.getKey());
+                statement.setBytes(2, serialize(e.getValue()));
+                statement.addBatch();
+            }
+            if (!items.isEmpty()) statement.executeBatch();
+            version.executeUpdate("PRAGMA user_version = " + IMPORTED);
+            connection.commit();
+        } catch (final Exception e) {
+            e.printStackTrace();
+            try {
+                connection.rollback();
+            } catch (final SQLException ex) {
+                ex.printStackTrace();
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (final SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @NotNull
+    private static byte[] serialize(@NotNull final ItemStack item) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            out.writeObject(item);
+        }
+        return bytes.toByteArray();
+    }
+
+    @NotNull
+    private static ItemStack deserialize(@NotNull final byte[] bytes) throws IOException, ClassNotFoundException {
+        try (final BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(bytes))) {
+            final Object item = in.readObject();
+            if (!(item instanceof ItemStack)) throw new IOException("Not an item");
+            return (ItemStack) item;
+        }
+    }
+}
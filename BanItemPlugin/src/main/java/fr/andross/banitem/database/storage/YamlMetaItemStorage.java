@@ -0,0 +1,149 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.database.storage;
+
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.database.DatabaseSnapshot;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Default meta items storage, in the <i>metaitems.yml</i> file.
+ * The whole file is rewritten on each change.
+ * @version 3.4
+ * @author Andross
+ */
+public final class YamlMetaItemStorage implements MetaItemStorage {
+    private final File file;
+    private final DatabaseSnapshot snapshot;
+    private FileConfiguration config;
+
+    /**
+     * Create the storage of the <i>metaitems.yml</i> file, saving the default one if missing
+     * @param pl main instance
+     * @param snapshot the database snapshot, null to always load from the file
+     */
+    public YamlMetaItemStorage(@NotNull final BanItem pl, @Nullable final DatabaseSnapshot snapshot) {
+        this.file = new File(pl.getDataFolder(), "metaitems.yml");
+        this.snapshot = snapshot;
+        if (!file.exists()) pl.saveResource("metaitems.yml", false);
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public void load(@NotNull final BiConsumer<String, ItemStack> loaded, @NotNull final Consumer<String> invalid) {
+        // Unchanged since the snapshot?
+        final Map<String, ItemStack> snapshotItems = snapshot == null ? null : snapshot.getMetaItems(file);
+        if (snapshotItems != null) {
+            snapshotItems.forEach(loaded);
+            return;
+        }
+
+        final Map<String, ItemStack> items = new LinkedHashMap<>();
+        boolean valid = true;
+        for (final String key : getConfig().getKeys(false)) {
+            try {
+                final ItemStack itemStack = (ItemStack) config.get(key);
+                if (itemStack == null) throw new Exception();
+                loaded.accept(key, itemStack);
+                items.put(key, itemStack);
+            } catch (final Exception e) {
+                valid = false;
+                e.printStackTrace();
+                invalid.accept(key);
+            }
+        }
+
+        // Invalid items are not saved, to keep notifying them
+        if (snapshot != null && valid) snapshot.setMetaItems(file, items);
+    }
+
+    @Nullable
+    @Override
+    public ItemStack get(@NotNull final String name) {
+        final Object item = getConfig().get(name);
+        return item instanceof ItemStack ? (ItemStack) item : null;
+    }
+
+    @NotNull
+    @Override
+    public List<String> getNames(final int offset, final int limit) {
+        return getConfig().getKeys(false).stream().sorted().skip(Math.max(0, offset)).limit(Math.max(0, limit)).collect(Collectors.toList());
+    }
+
+    @Override
+    public int count() {
+        return getConfig().getKeys(false).size();
+    }
+
+    @Override
+    public void save(@NotNull final String name, @NotNull final ItemStack item) {
+        getConfig().set(name, item);
+        write();
+    }
+
+    @Override
+    public void remove(@NotNull final String name) {
+        getConfig().set(name, null);
+        write();
+    }
+
+    private void write() {
+        try {
+            config.save(file);
+        } catch (final Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        config = null;
+    }
+
+    /**
+     * @return the file configuration of the meta items, loaded when first needed
+     */
+    @NotNull
+    public FileConfiguration getConfig() {
+        if (config == null) config = YamlConfiguration.loadConfiguration(file);
+        return config;
+    }
+
+    /**
+     * @return the <i>metaitems.yml</i> file
+     */
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+}
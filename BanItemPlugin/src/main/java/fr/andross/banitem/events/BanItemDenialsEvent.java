@@ -0,0 +1,84 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.events;
+
+import fr.andross.banitem.utils.audit.DenialRecord;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Called asynchronously with the denials collected over the last tick(s).
+ * This is only for observation purpose: the denials already happened and can not be cancelled.
+ * Batches are delivered one at a time and in order, so the listeners can do heavy work
+ * <i>(database writes...)</i> without delaying the server; while a batch is handled, the next
+ * denials keep being collected, up to a bounded amount.
+ * The denials are only collected if this event has registered listeners.
+ * @version 3.4
+ * @author Andross
+ */
+public final class BanItemDenialsEvent extends Event {
+    private static final HandlerList handlers = new HandlerList();
+    private final List<DenialRecord> denials;
+    private final long dropped;
+
+    public BanItemDenialsEvent(@NotNull final List<DenialRecord> denials, final long dropped) {
+        super(true);
+        this.denials = denials;
+        this.dropped = dropped;
+    }
+
+    /**
+     * The denials of this batch
+     * @return the denials, in the order they happened
+     */
+    @NotNull
+    public List<DenialRecord> getDenials() {
+        return denials;
+    }
+
+    /**
+     * The amount of denials dropped since the plugin loaded,
+     * because too many denials were waiting to be delivered
+     * @return the amount of denials dropped
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Check if this event has registered listeners
+     * @return true if a plugin listens to this event
+     */
+    public static boolean hasListeners() {
+        return handlers.getRegisteredListeners().length != 0;
+    }
+
+    @NotNull
+    @Override
+    public HandlerList getHandlers() {
+        return handlers;
+    }
+
+    @NotNull
+    public static HandlerList getHandlerList() {
+        return handlers;
+    }
+}
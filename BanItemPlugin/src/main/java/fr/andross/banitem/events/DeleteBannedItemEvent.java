@@ -28,7 +28,7 @@ import org.jetbrains.annotations.NotNull;
  * Called when a banned item has been detected
  * and should be deleted from the current inventory view of the player.
  * Cancelling the event will cancel the delete process.
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public final class DeleteBannedItemEvent extends PlayerEvent implements Cancellable {
@@ -60,6 +60,14 @@ public final class DeleteBannedItemEvent extends PlayerEvent implements Cancella
         cancelled = cancel;
     }
 
+    /**
+     * Check if this event has registered listeners, to skip creating it otherwise
+     * @return true if a plugin listens to this event
+     */
+    public static boolean hasListeners() {
+        return handlers.getRegisteredListeners().length != 0;
+    }
+
     @NotNull
     @Override
     public HandlerList getHandlers() {
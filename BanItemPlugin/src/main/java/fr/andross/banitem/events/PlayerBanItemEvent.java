@@ -32,7 +32,7 @@ import org.jetbrains.annotations.Nullable;
  * Called when an item should be banned
  * This is only for check purpose, no modifications can be made.
  * Cancelling the event will cancel the ban process.
- * @version 3.3
+ * @version 3.4
  * @author Andross
  */
 public final class PlayerBanItemEvent extends PlayerEvent implements Cancellable {
@@ -137,6 +137,14 @@ public final class PlayerBanItemEvent extends PlayerEvent implements Cancellable
         cancelled = cancel;
     }
 
+    /**
+     * Check if this event has registered listeners, to skip creating it otherwise
+     * @return true if a plugin listens to this event
+     */
+    public static boolean hasListeners() {
+        return handlers.getRegisteredListeners().length != 0;
+    }
+
     @NotNull
     @Override
     public HandlerList getHandlers() {
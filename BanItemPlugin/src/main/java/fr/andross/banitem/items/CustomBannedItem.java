@@ -17,34 +17,48 @@
  */
 package fr.andross.banitem.items;
 
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.items.meta.ItemSnapshot;
 import fr.andross.banitem.items.meta.MetaType;
 import fr.andross.banitem.items.meta.MetaTypeComparator;
+import fr.andross.banitem.items.meta.TextMatcher;
+import fr.andross.banitem.items.meta.TextMetaTypeComparator;
 import fr.andross.banitem.utils.debug.Debug;
 import fr.andross.banitem.utils.list.ListType;
 import fr.andross.banitem.utils.list.Listable;
+import fr.andross.banitem.utils.stats.BanStats;
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An item wrapper, which store custom item meta
- * @version 3.3.2
+ * @version 3.4
  * @author Andross
  */
 public final class CustomBannedItem extends BannedItem implements ICustomName {
+    private static final int ORDERING_INTERVAL = 512;
     private final String name;
     private final Set<Material> materials = EnumSet.noneOf(Material.class);
     private final Map<MetaType, MetaTypeComparator> meta = new EnumMap<>(MetaType.class);
     private boolean valid = true;
     private boolean reverted = false;
+    private TextMatcher textMatcher = null;
+    private volatile Ordering ordering = new Ordering(new MetaType[0], new MetaTypeComparator[0]); // cheapest & most failing checks first
+    private final AtomicInteger checksBeforeOrdering = new AtomicInteger(); // items may be checked by several threads
+    private final BanStats stats; // cached once, null without plugin instance
 
     public CustomBannedItem(@NotNull final String name, @NotNull final ConfigurationSection section, @NotNull final Debug debug) {
         super(Material.AIR);
         this.name = name;
+        final BanItem pl = BanItem.getInstance();
+        this.stats = pl == null ? null : pl.getUtils().getStats();
         final Object materialsObject = section.get("material");
 
         if (materialsObject == null) {
@@ -101,23 +115,107 @@ public final class CustomBannedItem extends BannedItem implements ICustomName {
     public boolean matches(@NotNull final ItemStack item) {
         // Matching material?
         if (!materials.contains(item.getType())) return false;
+        return matches(new ItemSnapshot(item));
+    }
 
-        // All meta are matching?
-        final ItemMeta itemMeta = item.getItemMeta();
-        if (!reverted) {
-            for (final Map.Entry<MetaType, MetaTypeComparator> e : meta.entrySet()) {
-                if (!e.getValue().matches(item, itemMeta))
-                    return false;
-            }
-            return true;
+    /**
+     * Comparing the ItemMeta of the item with the item meta stored.
+     * The material of the item is not checked here, see {@link #getMaterials()}.
+     * @param item the item stack to compare
+     * @param itemMeta the item meta of the item stack
+     * @param conditions the text conditions satisfied by the item, computed by {@link #getTextMatcher()}
+     * @return true if the item meta matches, otherwise false
+     */
+    public boolean matches(@NotNull final ItemStack item, @Nullable final ItemMeta itemMeta, @Nullable final BitSet conditions) {
+        final ItemSnapshot snapshot = new ItemSnapshot(item, itemMeta);
+        snapshot.setConditions(textMatcher, conditions);
+        return matches(snapshot);
+    }
+
+    /**
+     * Comparing the item snapshot with the item meta stored.
+     * The material of the item is not checked here, see {@link #getMaterials()}.
+     * The comparators are run in their checking order.
+     * The predicates shared with other custom items are only checked once per snapshot.
+     * @param snapshot the item snapshot, shared with the other custom items checked
+     * @return true if the item meta matches, otherwise false
+     */
+    public boolean matches(@NotNull final ItemSnapshot snapshot) {
+        final Ordering ordering = getOrdering();
+        final boolean timed = stats != null && stats.isEnabled();
+
+        // Both normal & reverted items stop at the first non matching meta
+        for (int i = 0; i < ordering.comparators.length; i++) {
+            final MetaTypeComparator comparator = ordering.comparators[i];
+            final long start = timed ? System.nanoTime() : 0L;
+            final boolean matches = snapshot.matches(comparator);
+            if (timed) stats.recordMeta(ordering.types[i], System.nanoTime() - start);
+            if (!matches) return reverted; // reverted custom item! (matching everything that does not match!)
         }
+        return !reverted;
+    }
+
+    /**
+     * Get the meta comparators in their checking order: the cheapest and the most
+     * often failing first. The order is computed again every {@value #ORDERING_INTERVAL} checks,
+     * with the observed selectivity of the comparators.
+     * @return the meta comparators, in their checking order
+     */
+    @NotNull
+    public MetaTypeComparator[] getOrder() {
+        return getOrdering().comparators.clone();
+    }
 
-        // Reverted custom item! (matching everything that does not match!)
-        for (final Map.Entry<MetaType, MetaTypeComparator> e : meta.entrySet()) {
-            if (!e.getValue().matches(item, itemMeta))
-                return true;
+    @NotNull
+    private Ordering getOrdering() {
+        Ordering ordering = this.ordering;
+        // Only the thread reaching the interval computes the order again
+        if (ordering.comparators.length != meta.size() || checksBeforeOrdering.decrementAndGet() == 0) {
+            // Ranks are computed first, as the selectivity can change while sorting
+            final Map<MetaType, Double> ranks = new EnumMap<>(MetaType.class);
+            meta.forEach((type, c) -> ranks.put(type, c.getCost() / Math.max(1D - c.getSelectivity(), 0.01D)));
+            final MetaType[] types = meta.keySet().toArray(new MetaType[0]);
+            Arrays.sort(types, Comparator.comparingDouble(ranks::get));
+            checksBeforeOrdering.set(ORDERING_INTERVAL);
+            if (Arrays.equals(types, ordering.types)) return ordering; // same order, kept
+            final MetaTypeComparator[] comparators = new MetaTypeComparator[types.length];
+            for (int i = 0; i < types.length; i++) comparators[i] = meta.get(types[i]);
+            ordering = new Ordering(types, comparators);
+            this.ordering = ordering;
+        }
+        return ordering;
+    }
+
+    /**
+     * Register the lore and display name conditions of this custom item into the text matcher builder
+     * @param builder the text matcher builder
+     */
+    public void registerTextConditions(@NotNull final TextMatcher.Builder builder) {
+        for (final MetaTypeComparator comparator : meta.values()) {
+            if (comparator instanceof TextMetaTypeComparator)
+                ((TextMetaTypeComparator) comparator).register(builder);
+        }
+    }
+
+    /**
+     * Get the text matcher shared by the custom items, computing the lore and display name conditions
+     * @return the text matcher, null if not compiled
+     */
+    @Nullable
+    public TextMatcher getTextMatcher() {
+        return textMatcher;
+    }
+
+    /**
+     * Set the text matcher in which this custom item registered its text conditions
+     * @param textMatcher the text matcher
+     */
+    public void setTextMatcher(@Nullable final TextMatcher textMatcher) {
+        this.textMatcher = textMatcher;
+        for (final MetaTypeComparator comparator : meta.values()) {
+            if (comparator instanceof TextMetaTypeComparator)
+                ((TextMetaTypeComparator) comparator).setTextMatcher(textMatcher);
         }
-        return false;
     }
 
     /**
@@ -176,4 +274,17 @@ public final class CustomBannedItem extends BannedItem implements ICustomName {
     public int hashCode() {
         return Objects.hash(name);
     }
+
+    /**
+     * Meta types & their comparators, in the checking order
+     */
+    private static final class Ordering {
+        private final MetaType[] types;
+        private final MetaTypeComparator[] comparators;
+
+        private Ordering(@NotNull final MetaType[] types, @NotNull final MetaTypeComparator[] comparators) {
+            this.types = types;
+            this.comparators = comparators;
+        }
+    }
 }
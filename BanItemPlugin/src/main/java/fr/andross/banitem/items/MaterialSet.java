@@ -0,0 +1,110 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.items;
+
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable set of materials, backed by a bitset of their ordinals.
+ * Checking a material is a single bit lookup, and the set can be kept by the callers:
+ * it does not change, a new set being computed when the bans change.
+ * @version 3.4
+ * @author Andross
+ */
+public final class MaterialSet implements Iterable<Material> {
+    private static final Material[] MATERIALS = Material.values();
+    private final BitSet materials;
+    private final int size;
+
+    /**
+     * Create a set of materials
+     * @param materials the materials ordinals, copied
+     */
+    public MaterialSet(@NotNull final BitSet materials) {
+        this.materials = (BitSet) materials.clone();
+        this.size = materials.cardinality();
+    }
+
+    /**
+     * @param material the material
+     * @return true if the material is in this set
+     */
+    public boolean contains(@NotNull final Material material) {
+        return materials.get(material.ordinal());
+    }
+
+    /**
+     * @return the amount of materials
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if this set has no material
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return a copy of the materials ordinals
+     */
+    @NotNull
+    public BitSet toBitSet() {
+        return (BitSet) materials.clone();
+    }
+
+    /**
+     * @return a copy of this set, as a mutable enum set
+     */
+    @NotNull
+    public Set<Material> toSet() {
+        final Set<Material> set = EnumSet.noneOf(Material.class);
+        forEach(set::add);
+        return set;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Material> iterator() {
+        return new Iterator<Material>() {
+            private int next = materials.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0 && next < MATERIALS.length;
+            }
+
+            @Override
+            public Material next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                final Material m = MATERIALS[next];
+                next = materials.nextSetBit(next + 1);
+                return m;
+            }
+        };
+    }
+}
@@ -29,10 +29,11 @@ import java.util.*;
 
 /**
  * A simple meta comparator to compare the AdvancedEnchantments
- * @version 3.2
+ * @version 3.4
  * @author Andross
  */
 public final class AdvancedEnchantments extends MetaTypeComparator {
+    private static final LookupCache<Map<String, Integer>> cache = LookupCache.register("advancedenchantments", 2048);
     private final Set<String> enchantsWithoutLevels = new HashSet<>(); // Any enchantment levels
     private final Map<String, Integer> enchants = new HashMap<>(); // Specific enchantments with specific levels
     private final Map<Object, Integer[]> enchantsIntervals = new HashMap<>(); // Enchantment interval
@@ -100,12 +101,17 @@ public final class AdvancedEnchantments extends MetaTypeComparator {
         }
     }
 
+    @Override
+    public int getCost() {
+        return 50;
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
-        final Map<String, Integer> enchantsOnItem = AEAPI.getEnchantmentsOnItem(itemStack);
+        final Map<String, Integer> enchantsOnItem = cache.get(itemStack, itemMeta, AdvancedEnchantments::getEnchantments);
         if (enchantsOnItem.isEmpty()) return false;
         for (final Map.Entry<String, Integer> e : enchantsOnItem.entrySet()) {
-            final String enchantment = e.getKey().toLowerCase(Locale.ROOT);
+            final String enchantment = e.getKey();
             final int level = e.getValue();
 
             // Containing enchantment (not considering level) ?
@@ -122,4 +128,31 @@ public final class AdvancedEnchantments extends MetaTypeComparator {
         }
         return false;
     }
+
+    /**
+     * Get the AdvancedEnchantments enchantments on the item, with lower case names
+     * @param itemStack the item
+     * @return an unmodifiable map of enchantments with their levels
+     */
+    @NotNull
+    private static Map<String, Integer> getEnchantments(@NotNull final ItemStack itemStack) {
+        final Map<String, Integer> enchantments = AEAPI.getEnchantmentsOnItem(itemStack);
+        if (enchantments == null || enchantments.isEmpty()) return Collections.emptyMap();
+        final Map<String, Integer> map = new HashMap<>();
+        enchantments.forEach((k, v) -> map.put(k.toLowerCase(Locale.ROOT), v));
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final AdvancedEnchantments that = (AdvancedEnchantments) o;
+        return enchantsWithoutLevels.equals(that.enchantsWithoutLevels) && enchants.equals(that.enchants) && equalsArrays(enchantsIntervals, that.enchantsIntervals);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(enchantsWithoutLevels, enchants, hashArrays(enchantsIntervals));
+    }
 }
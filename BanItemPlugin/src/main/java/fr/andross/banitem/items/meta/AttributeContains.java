@@ -17,7 +17,6 @@
  */
 package fr.andross.banitem.items.meta;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import fr.andross.banitem.utils.BanVersion;
 import fr.andross.banitem.utils.ReflectionUtils;
@@ -25,12 +24,15 @@ import fr.andross.banitem.utils.attributes.*;
 import fr.andross.banitem.utils.debug.Debug;
 import fr.andross.banitem.utils.list.Listable;
 import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,7 +42,10 @@ import java.util.Map;
  * @author EpiCanard
  */
 public final class AttributeContains extends MetaTypeComparator {
-    private final Multimap<Object, AttributeLevels> attributes = HashMultimap.create();
+    private static final AttributeLevels[] ANY = new AttributeLevels[0];
+    // Levels per attribute, ANY if any level matches. Keyed by the attributes themselves,
+    // as they are no longer enums on recent versions (1.21.3+)
+    private final Map<Object, AttributeLevels[]> attributes = new HashMap<>();
 
     public AttributeContains(final Object o, final Debug debug) {
         super(o);
@@ -57,7 +62,7 @@ public final class AttributeContains extends MetaTypeComparator {
 
             // 'Attribute': if the item contains this enchantment, does not consider the level;
             if (s.length == 1) {
-                attributes.put(attribute, null);
+                put(attribute, null);
                 continue;
             }
 
@@ -69,7 +74,7 @@ public final class AttributeContains extends MetaTypeComparator {
                 final Double level = parseLevel(value, debug);
                 if (level == null) return;
 
-                attributes.put(attribute, new AttributeLevels(level, comparator));
+                put(attribute, new AttributeLevels(level, comparator));
                 continue;
             }
 
@@ -79,17 +84,67 @@ public final class AttributeContains extends MetaTypeComparator {
             final Double maxLevel = parseLevel(s[2], debug);
             if (maxLevel == null) return;
 
-            attributes.put(attribute, new AttributeLevels(minLevel, maxLevel));
+            put(attribute, new AttributeLevels(minLevel, maxLevel));
         }
     }
 
+    /**
+     * Add the levels to check for the attribute
+     * @param attribute the attribute
+     * @param levels the levels, null if any level matches
+     */
+    private void put(@NotNull final Object attribute, @Nullable final AttributeLevels levels) {
+        final AttributeLevels[] current = attributes.get(attribute);
+        if (levels == null) attributes.put(attribute, ANY);
+        else if (current == null) attributes.put(attribute, new AttributeLevels[]{ levels });
+        else if (current != ANY) {
+            final AttributeLevels[] added = Arrays.copyOf(current, current.length + 1);
+            added[current.length] = levels;
+            attributes.put(attribute, added);
+        }
+    }
+
+    @Override
+    public int getCost() {
+        return 10;
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
         if (itemMeta == null) return false;
-        return getAttributesModifiers(itemStack).entries().stream()
-                .filter(entry -> attributes.containsKey(entry.getKey()))
-                .anyMatch(entry -> attributes.get(entry.getKey()).stream()
-                            .anyMatch(levels -> levels == null || levels.matches(entry.getValue())));
+
+        if (BanVersion.v9OrMore) {
+            // Iterating the attributes with bukkit api
+            if (!itemMeta.hasAttributeModifiers()) return false;
+            final Multimap<Attribute, AttributeModifier> modifiers = itemMeta.getAttributeModifiers();
+            if (modifiers == null) return false;
+            for (final Map.Entry<Attribute, AttributeModifier> entry : modifiers.entries())
+                if (matches(entry.getKey(), entry.getValue().getAmount())) return true;
+            return false;
+        }
+
+        // Extract attributes with reflection from NMSItemStack (MC <1.9)
+        try {
+            final Object nmsItemStack = ReflectionUtils.asNMSCopy(itemStack);
+            final Multimap<String, Object> multimap = ReflectionUtils.callMethodWithReturnType(nmsItemStack, Multimap.class);
+            for (final Map.Entry<String, Object> entry : multimap.entries()) {
+                final AttributeLegacy attribute = AttributeLegacy.valueFromName(entry.getKey());
+                if (attribute != null && attributes.containsKey(attribute) && matches(attribute, ReflectionUtils.<Double>callMethodWithName(entry.getValue(), "d")))
+                    return true;
+            }
+        } catch (ClassNotFoundException | InvocationTargetException | IllegalAccessException | NoSuchMethodException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private boolean matches(@NotNull final Object attribute, final double amount) {
+        final AttributeLevels[] levels = attributes.get(attribute);
+        if (levels == null) return false;
+        if (levels.length == 0) return true; // any level
+        for (final AttributeLevels level : levels)
+            if (level.matches(amount)) return true;
+        return false;
     }
 
     /**
@@ -108,38 +163,6 @@ public final class AttributeContains extends MetaTypeComparator {
         }
     }
 
-    /**
-     * Extract attributes modifiers from item
-     * @param itemStack ItemStack
-     * @return A Multimap of attribute name and amount
-     */
-    @NotNull
-    private Multimap<Object, Double> getAttributesModifiers(@NotNull final ItemStack itemStack) {
-        final Multimap<Object, Double> map = HashMultimap.create();
-        if (BanVersion.v9OrMore) {
-            // Extract attributes with bukkit api
-            if (itemStack.getItemMeta() != null && itemStack.getItemMeta().getAttributeModifiers() != null) {
-                itemStack.getItemMeta().getAttributeModifiers().entries().forEach(entry ->
-                    map.put(entry.getKey(), entry.getValue().getAmount())
-                );
-            }
-        } else {
-            // Extract attributes with reflection from NMSItemStack (MC <1.9)
-            try {
-                final Object nmsItemStack = ReflectionUtils.asNMSCopy(itemStack);
-                final Multimap<String, Object> multimap = ReflectionUtils.callMethodWithReturnType(nmsItemStack, Multimap.class);
-                for (Map.Entry<String, Object> entry : multimap.entries()) {
-                    final AttributeLegacy attribute = AttributeLegacy.valueFromName(entry.getKey());
-                    if (attribute != null)
-                        map.put(attribute, ReflectionUtils.callMethodWithName(entry.getValue(), "d"));
-                }
-            } catch (ClassNotFoundException | InvocationTargetException | IllegalAccessException | NoSuchMethodException e) {
-                e.printStackTrace();
-            }
-        }
-        return map;
-    }
-
     /**
      * Parse the level from String to Double
      * @param level String level to parse
@@ -165,4 +188,17 @@ public final class AttributeContains extends MetaTypeComparator {
         debug.clone().add("&c" + message).sendDebug();
         setValid(false);
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final AttributeContains that = (AttributeContains) o;
+        return equalsArrays(attributes, that.attributes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashArrays(attributes);
+    }
 }
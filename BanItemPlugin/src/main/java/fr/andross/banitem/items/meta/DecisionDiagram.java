@@ -0,0 +1,292 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.items.meta;
+
+import fr.andross.banitem.items.CustomBannedItem;
+import fr.andross.banitem.utils.stats.BanStats;
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decision diagram of a list of custom items, answering the first custom item matching an item
+ * while checking each distinct meta predicate at most once.
+ * The identical comparators of the custom items <i>(see {@link MetaTypeComparator#equals(Object)})</i> are interned
+ * into a single predicate, and the predicates are ordered by cost & observed selectivity.
+ * For each material, a node checks a predicate and goes to its true or false child, until a leaf:
+ * the first matching custom item, or none. Identical sub diagrams are shared, across the materials too.
+ * Reverted custom items match when at least one of their predicates does not match.
+ * If the diagram would be too large, it is not compiled: the custom items have to be checked one by one.
+ * @version 3.4
+ * @author Andross
+ */
+public final class DecisionDiagram {
+    private static final int MAX_NODES = 1 << 16;
+    private static final int MAX_PREDICATES = Short.MAX_VALUE;
+    private static final int REORDER_INTERVAL = 4096;
+    private static final int NONE = -1; // leaf: no custom item matching, other leaves are -(item + 2)
+    private final CustomBannedItem[] items;
+    private final MetaTypeComparator[] predicates;
+    private final MetaType[] types;
+    private final int[] order; // predicates, in their checking order
+    private final int[] roots; // per material ordinal, null if not compiled
+    private final int[] predicate, high, low; // per node: the predicate checked, and the children if matching or not
+    private final BanStats stats;
+    private final AtomicInteger walksBeforeReordering = new AtomicInteger(REORDER_INTERVAL);
+
+    private DecisionDiagram(@NotNull final Builder builder, @Nullable final BanStats stats) {
+        this.items = builder.items;
+        this.predicates = builder.predicates.toArray(new MetaTypeComparator[0]);
+        this.types = builder.types.toArray(new MetaType[0]);
+        this.order = builder.order;
+        this.roots = builder.roots;
+        this.predicate = Arrays.copyOf(builder.predicate, builder.size);
+        this.high = Arrays.copyOf(builder.high, builder.size);
+        this.low = Arrays.copyOf(builder.low, builder.size);
+        this.stats = stats;
+    }
+
+    /**
+     * Build the decision diagram of the custom items
+     * @param items the custom items, the first matching one being answered
+     * @param stats the statistics recording the meta checks latencies, null if none
+     * @return the decision diagram, not compiled if too large
+     */
+    @NotNull
+    public static DecisionDiagram build(@NotNull final List<CustomBannedItem> items, @Nullable final BanStats stats) {
+        return new DecisionDiagram(new Builder(items), stats);
+    }
+
+    /**
+     * @return true if compiled, else the custom items have to be checked one by one
+     */
+    public boolean isCompiled() {
+        return roots != null;
+    }
+
+    /**
+     * @return the custom items, in their checking order
+     */
+    @NotNull
+    public List<CustomBannedItem> getItems() {
+        return Collections.unmodifiableList(Arrays.asList(items));
+    }
+
+    /**
+     * @return the amount of distinct predicates
+     */
+    public int getPredicates() {
+        return predicates.length;
+    }
+
+    /**
+     * @return the amount of nodes
+     */
+    public int getNodes() {
+        return predicate.length;
+    }
+
+    /**
+     * Check if a custom item of the diagram can match an item of this material
+     * @param type the material
+     * @return true if at least one custom item has this material
+     */
+    public boolean hasCandidates(@NotNull final Material type) {
+        return roots != null && roots[type.ordinal()] != NONE;
+    }
+
+    /**
+     * Get the first custom item matching the item, walking the diagram once
+     * @param snapshot the item snapshot
+     * @param type the material of the item
+     * @return the first matching custom item, null if none
+     */
+    @Nullable
+    public CustomBannedItem match(@NotNull final ItemSnapshot snapshot, @NotNull final Material type) {
+        if (roots == null) throw new IllegalStateException("Decision diagram not compiled");
+        final boolean timed = stats != null && stats.isEnabled();
+        int node = roots[type.ordinal()];
+        while (node >= 0) {
+            final int p = predicate[node];
+            final MetaTypeComparator comparator = predicates[p];
+            final long start = timed ? System.nanoTime() : 0L;
+            final boolean matches = snapshot.matches(comparator);
+            if (timed) stats.recordMeta(types[p], System.nanoTime() - start);
+            node = matches ? high[node] : low[node];
+        }
+        walksBeforeReordering.decrementAndGet();
+        return node == NONE ? null : items[-node - 2];
+    }
+
+    /**
+     * Check if the diagram should be built again, its predicates order being outdated
+     * by the observed selectivity of the predicates. Checked every {@value #REORDER_INTERVAL} walks.
+     * @return true if the diagram should be built again
+     */
+    public boolean isOutdated() {
+        if (roots == null || walksBeforeReordering.get() > 0) return false;
+        walksBeforeReordering.set(REORDER_INTERVAL);
+        return !Arrays.equals(order, order(predicates));
+    }
+
+    /**
+     * Order the predicates: the cheapest and the most often failing first
+     * @param predicates the predicates
+     * @return the indexes of the predicates, in their checking order
+     */
+    @NotNull
+    private static int[] order(@NotNull final MetaTypeComparator[] predicates) {
+        final double[] ranks = new double[predicates.length]; // computed first, the selectivity can change while sorting
+        for (int i = 0; i < predicates.length; i++)
+            ranks[i] = predicates[i].getCost() / Math.max(1D - predicates[i].getSelectivity(), 0.01D);
+        return java.util.stream.IntStream.range(0, predicates.length).boxed()
+                .sorted(Comparator.comparingDouble(i -> ranks[i])).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Builder of the reduced diagram: the custom items are added from the last to the first,
+     * each one on top of the diagram of the following ones.
+     */
+    private static final class Builder {
+        private final CustomBannedItem[] items;
+        private final List<MetaTypeComparator> predicates = new ArrayList<>();
+        private final List<MetaType> types = new ArrayList<>();
+        private int[] order;
+        private int[] level; // per predicate, its position in the order
+        private int[] roots;
+        private int[] predicate = new int[64], high = new int[64], low = new int[64];
+        private int size = 0;
+        private final Map<Long, Integer> unique = new HashMap<>(); // (predicate, high, low) -> node
+        private final int offset;
+
+        private Builder(@NotNull final List<CustomBannedItem> items) {
+            this.items = items.toArray(new CustomBannedItem[0]);
+            this.offset = this.items.length + 2;
+
+            // Interning the predicates
+            final Map<MetaTypeComparator, Integer> ids = new HashMap<>();
+            final int[][] itemPredicates = new int[this.items.length][];
+            for (int i = 0; i < this.items.length; i++) {
+                final Map<MetaType, MetaTypeComparator> meta = this.items[i].getMeta();
+                itemPredicates[i] = new int[meta.size()];
+                int j = 0;
+                for (final Map.Entry<MetaType, MetaTypeComparator> e : meta.entrySet()) {
+                    itemPredicates[i][j++] = ids.computeIfAbsent(e.getValue(), k -> {
+                        predicates.add(k);
+                        types.add(e.getKey());
+                        return predicates.size() - 1;
+                    });
+                }
+            }
+            if (predicates.size() > MAX_PREDICATES || (long) offset + MAX_NODES > (1L << 24)) return;
+
+            // Ordering
+            order = order(predicates.toArray(new MetaTypeComparator[0]));
+            level = new int[order.length];
+            for (int i = 0; i < order.length; i++) level[order[i]] = i;
+            for (final int[] p : itemPredicates) sortByLevel(p);
+
+            // Per material, adding the custom items from the last one
+            final Material[] materials = Material.values();
+            final int[] roots = new int[materials.length];
+            Arrays.fill(roots, NONE);
+            final List<Map<Long, Integer>> memos = new ArrayList<>(this.items.length);
+            for (int i = 0; i < this.items.length; i++) memos.add(new HashMap<>());
+            try {
+                for (int i = this.items.length - 1; i >= 0; i--) {
+                    final CustomBannedItem item = this.items[i];
+                    for (final Material m : item.getMaterials())
+                        roots[m.ordinal()] = add(i, item.isReverted(), itemPredicates[i], 0, roots[m.ordinal()], memos.get(i));
+                }
+            } catch (final TooLargeException e) {
+                return;
+            }
+            this.roots = roots;
+        }
+
+        private void sortByLevel(@NotNull final int[] p) {
+            for (int i = 1; i < p.length; i++) // few predicates per item
+                for (int j = i; j > 0 && level[p[j - 1]] > level[p[j]]; j--) {
+                    final int t = p[j];
+                    p[j] = p[j - 1];
+                    p[j - 1] = t;
+                }
+        }
+
+        private int levelOf(final int node) {
+            return node < 0 ? Integer.MAX_VALUE : level[predicate[node]];
+        }
+
+        /**
+         * Add a custom item on top of a diagram
+         * @param item the custom item index
+         * @param reverted if the custom item is reverted
+         * @param p the predicates of the custom item, by level
+         * @param i the first predicate not decided yet
+         * @param next the diagram of the following custom items
+         * @param memo the results already computed for this custom item
+         * @return the diagram answering this custom item if matching, else the next diagram
+         */
+        private int add(final int item, final boolean reverted, @NotNull final int[] p, final int i, final int next, @NotNull final Map<Long, Integer> memo) {
+            if (i == p.length) return reverted ? next : -item - 2; // all the predicates matched
+            final Long key = ((long) i << 32) | (next & 0xFFFFFFFFL);
+            final Integer cached = memo.get(key);
+            if (cached != null) return cached;
+
+            final int leaf = -item - 2;
+            final int v = p[i];
+            final int nextLevel = levelOf(next);
+            final int result;
+            if (nextLevel > level[v]) // this predicate first
+                result = node(v, add(item, reverted, p, i + 1, next, memo), reverted ? leaf : next);
+            else if (nextLevel == level[v]) // same predicate
+                result = node(v, add(item, reverted, p, i + 1, high[next], memo), reverted ? leaf : low[next]);
+            else // predicate of the next diagram first
+                result = node(predicate[next], add(item, reverted, p, i, high[next], memo), add(item, reverted, p, i, low[next], memo));
+            memo.put(key, result);
+            return result;
+        }
+
+        private int node(final int p, final int h, final int l) {
+            if (h == l) return h;
+            final Long key = ((long) p << 48) | ((long) (h + offset) << 24) | (l + offset);
+            final Integer existing = unique.get(key);
+            if (existing != null) return existing;
+            if (size == MAX_NODES) throw new TooLargeException();
+            if (size == predicate.length) {
+                predicate = Arrays.copyOf(predicate, size * 2);
+                high = Arrays.copyOf(high, size * 2);
+                low = Arrays.copyOf(low, size * 2);
+            }
+            predicate[size] = p;
+            high[size] = h;
+            low[size] = l;
+            unique.put(key, size);
+            return size++;
+        }
+    }
+
+    private static final class TooLargeException extends RuntimeException {
+        private TooLargeException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -26,10 +26,10 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * A simple meta comparator to compare the display name
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
-public final class DisplayNameEquals extends MetaTypeComparator {
+public final class DisplayNameEquals extends TextMetaTypeComparator {
     private final String displayname;
 
     public DisplayNameEquals(final Object o, final Debug debug) {
@@ -37,8 +37,26 @@ public final class DisplayNameEquals extends MetaTypeComparator {
         displayname = Chat.color(o.toString());
     }
 
+    @Override
+    protected void register(@NotNull final TextMatcher.Builder builder, final int condition) {
+        builder.addDisplayName(displayname, condition);
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
         return itemMeta != null && itemMeta.hasDisplayName() && itemMeta.getDisplayName().equals(displayname);
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final DisplayNameEquals that = (DisplayNameEquals) o;
+        return displayname.equals(that.displayname);
+    }
+
+    @Override
+    public int hashCode() {
+        return displayname.hashCode();
+    }
 }
@@ -25,6 +25,8 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Objects;
+
 /**
  * A simple meta comparator to compare the durability
  * @version 3.3
@@ -83,4 +85,17 @@ public final class Durability extends MetaTypeComparator {
         } else dura = itemStack.getDurability();
         return dura >= min && dura <= max;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final Durability that = (Durability) o;
+        return min == that.min && max == that.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(min, max);
+    }
 }
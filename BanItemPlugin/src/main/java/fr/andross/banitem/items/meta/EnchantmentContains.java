@@ -17,11 +17,9 @@
  */
 package fr.andross.banitem.items.meta;
 
-import fr.andross.banitem.utils.BanVersion;
-import fr.andross.banitem.utils.Utils;
 import fr.andross.banitem.utils.debug.Debug;
 import fr.andross.banitem.utils.enchantments.EnchantmentHelper;
-import fr.andross.banitem.utils.enchantments.EnchantmentWrapper;
+import fr.andross.banitem.utils.enchantments.EnchantmentLevels;
 import fr.andross.banitem.utils.list.Listable;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemStack;
@@ -29,23 +27,18 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * A simple meta comparator to compare the enchantments
- * @version 3.1.1
+ * @version 3.4
  * @author Andross
  */
 public final class EnchantmentContains extends MetaTypeComparator {
-    private final Set<Object> enchantsWithoutLevels = new HashSet<>(); // >=1.13: Enchantment, <1.13 String
-    private final Set<EnchantmentWrapper> enchants = new HashSet<>(); // Specific enchantments with specific levels
-    private final Map<Object, Integer[]> enchantsIntervals = new HashMap<>(); // >=1.13: Enchantment, <1.13 String
+    private EnchantmentLevels enchants;
 
     public EnchantmentContains(final Object o, final Debug debug) {
         super(o);
+        final EnchantmentLevels.Builder builder = new EnchantmentLevels.Builder();
 
         for (final String string : Listable.getSplittedStringList(o)) {
             final String[] s = string.split(":");
@@ -60,7 +53,7 @@ public final class EnchantmentContains extends MetaTypeComparator {
                 }
 
                 // Adding
-                enchantsWithoutLevels.add(BanVersion.v13OrMore ? enchantment : enchantment.getName());
+                builder.add(enchantment);
                 continue;
             }
 
@@ -83,7 +76,7 @@ public final class EnchantmentContains extends MetaTypeComparator {
                 }
 
                 // Adding
-                enchants.add(new EnchantmentWrapper(enchantment, level));
+                builder.add(enchantment, level, level);
                 continue;
             }
 
@@ -115,31 +108,38 @@ public final class EnchantmentContains extends MetaTypeComparator {
                 }
 
                 // Adding
-                enchantsIntervals.put(BanVersion.v13OrMore ? enchantment : enchantment.getName(), new Integer[]{ minLevel, maxLevel });
+                builder.add(enchantment, minLevel, maxLevel);
             }
         }
+
+        enchants = builder.build();
+    }
+
+    @Override
+    public int getCost() {
+        return 5;
     }
 
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
-        final Map<Enchantment, Integer> enchantsOnItem = Utils.getAllEnchants(itemStack);
-        for (final Map.Entry<Enchantment, Integer> e : enchantsOnItem.entrySet()) {
-            final Enchantment enchantment = e.getKey();
-            final int level = e.getValue();
-            final Object object = BanVersion.v13OrMore ? enchantment : enchantment.getName();
-
-            // Containing enchantment (not considering level) ?
-            if (enchantsWithoutLevels.contains(object)) return true;
-
-            // Containing enchantment (considering level)?
-            if (enchants.contains(new EnchantmentWrapper(enchantment, level))) return true;
-
-            // Containing enchantment (in interval)?
-            if (enchantsIntervals.containsKey(object)) {
-                final Integer[] interval = enchantsIntervals.get(object);
-                if (level >= interval[0] && level <= interval[1]) return true;
-            }
-        }
-        return false;
+        return enchants.containsAny(itemMeta) || enchants.containsAnyStored(itemMeta);
+    }
+
+    @Override
+    public boolean matches(@NotNull final ItemSnapshot snapshot) {
+        return enchants.containsAny(snapshot.getItemMeta()) || enchants.containsAnyStored(snapshot.getItemMeta());
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final EnchantmentContains that = (EnchantmentContains) o;
+        return enchants.equals(that.enchants);
+    }
+
+    @Override
+    public int hashCode() {
+        return enchants.hashCode();
     }
 }
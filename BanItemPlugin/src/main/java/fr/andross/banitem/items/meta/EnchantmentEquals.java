@@ -23,20 +23,23 @@ import fr.andross.banitem.utils.enchantments.EnchantmentHelper;
 import fr.andross.banitem.utils.list.Listable;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * A simple meta comparator to compare the enchantments
- * @version 3.1.1
+ * @version 3.4
  * @author Andross
  */
 public final class EnchantmentEquals extends MetaTypeComparator {
     private final Map<Enchantment, Integer> enchants = new HashMap<>();
+    private int[] levels = new int[0]; // per dense enchantment index, 0 if absent
 
     public EnchantmentEquals(final Object o, final Debug debug) {
         super(o);
@@ -69,10 +72,52 @@ public final class EnchantmentEquals extends MetaTypeComparator {
 
             enchants.put(enchantment, level);
         }
+
+        for (final Map.Entry<Enchantment, Integer> e : enchants.entrySet()) {
+            final int index = EnchantmentHelper.index(e.getKey());
+            if (index >= levels.length) levels = Arrays.copyOf(levels, index + 1);
+            levels[index] = e.getValue();
+        }
+    }
+
+    @Override
+    public int getCost() {
+        return 5;
     }
 
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
-        return Utils.getAllEnchants(itemStack).equals(enchants);
+        // Enchanted books can have both enchantments & stored enchantments
+        if (itemMeta instanceof EnchantmentStorageMeta) return Utils.getAllEnchants(itemStack).equals(enchants);
+
+        return matches(itemStack.getEnchantments());
+    }
+
+    @Override
+    public boolean matches(@NotNull final ItemSnapshot snapshot) {
+        if (snapshot.getItemMeta() instanceof EnchantmentStorageMeta) return snapshot.getAllEnchantments().equals(enchants);
+        return matches(snapshot.getEnchantments());
+    }
+
+    private boolean matches(@NotNull final Map<Enchantment, Integer> enchantsOnItem) {
+        if (enchantsOnItem.size() != enchants.size()) return false;
+        for (final Map.Entry<Enchantment, Integer> e : enchantsOnItem.entrySet()) {
+            final int index = EnchantmentHelper.getIndex(e.getKey());
+            if (index < 0 || index >= levels.length || levels[index] != e.getValue()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final EnchantmentEquals that = (EnchantmentEquals) o;
+        return enchants.equals(that.enchants);
+    }
+
+    @Override
+    public int hashCode() {
+        return enchants.hashCode();
     }
 }
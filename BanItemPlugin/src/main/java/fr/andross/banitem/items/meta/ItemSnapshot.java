@@ -0,0 +1,166 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.items.meta;
+
+import fr.andross.banitem.utils.Utils;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.potion.PotionEffectType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The fields of an item read by the meta comparators, extracted when first needed
+ * and then shared by all the custom items checked against this item.
+ * The results of the predicates shared by several custom items are also kept, to check them once.
+ * A snapshot is only valid for a single check, and is not thread safe.
+ * @version 3.4
+ * @author Andross
+ */
+public final class ItemSnapshot {
+    private final ItemStack item;
+    private final ItemMeta itemMeta;
+    private TextMatcher textMatcher;
+    private BitSet conditions;
+    private Map<Enchantment, Integer> enchantments;
+    private Map<Enchantment, Integer> storedEnchantments;
+    private Map<Enchantment, Integer> allEnchantments;
+    private Map<PotionEffectType, Integer> potionEffects;
+    private BitSet evaluated, results; // shared predicates already checked, and their results
+
+    /**
+     * @param item the item
+     * @param itemMeta the item meta of the item, null if none
+     */
+    public ItemSnapshot(@NotNull final ItemStack item, @Nullable final ItemMeta itemMeta) {
+        this.item = item;
+        this.itemMeta = itemMeta;
+    }
+
+    /**
+     * @param item the item
+     */
+    public ItemSnapshot(@NotNull final ItemStack item) {
+        this(item, item.getItemMeta());
+    }
+
+    @NotNull
+    public ItemStack getItem() {
+        return item;
+    }
+
+    @Nullable
+    public ItemMeta getItemMeta() {
+        return itemMeta;
+    }
+
+    /**
+     * Check if the item matches the comparator.
+     * If its predicate is shared with other custom items, the result is computed once for this snapshot.
+     * Only the computed results are recorded into the comparators selectivity, not the reused ones.
+     * @param comparator the meta comparator
+     * @return if the item matches
+     */
+    public boolean matches(@NotNull final MetaTypeComparator comparator) {
+        final int predicate = comparator.getPredicate();
+        if (predicate < 0) {
+            final boolean matches = comparator.matches(this);
+            comparator.record(matches);
+            return matches;
+        }
+        if (evaluated == null) {
+            evaluated = new BitSet();
+            results = new BitSet();
+        } else if (evaluated.get(predicate))
+            return results.get(predicate);
+
+        final boolean matches = comparator.matches(this);
+        comparator.record(matches);
+        evaluated.set(predicate);
+        if (matches) results.set(predicate);
+        return matches;
+    }
+
+    /**
+     * Get the text conditions satisfied by the item, computed once per text matcher
+     * @param textMatcher the text matcher
+     * @return the satisfied text conditions
+     */
+    @NotNull
+    public BitSet getConditions(@NotNull final TextMatcher textMatcher) {
+        if (this.textMatcher != textMatcher) {
+            this.textMatcher = textMatcher;
+            conditions = textMatcher.match(itemMeta);
+        }
+        return conditions;
+    }
+
+    /**
+     * Set the text conditions already computed for a text matcher
+     * @param textMatcher the text matcher
+     * @param conditions the satisfied text conditions, null to compute them when needed
+     */
+    public void setConditions(@Nullable final TextMatcher textMatcher, @Nullable final BitSet conditions) {
+        if (textMatcher == null || conditions == null) return;
+        this.textMatcher = textMatcher;
+        this.conditions = conditions;
+    }
+
+    /**
+     * @return the enchantments of the item
+     */
+    @NotNull
+    public Map<Enchantment, Integer> getEnchantments() {
+        if (enchantments == null) enchantments = item.getEnchantments();
+        return enchantments;
+    }
+
+    /**
+     * @return the stored enchantments of the item <i>(enchanted books)</i>, empty if none
+     */
+    @NotNull
+    public Map<Enchantment, Integer> getStoredEnchantments() {
+        if (storedEnchantments == null)
+            storedEnchantments = itemMeta instanceof EnchantmentStorageMeta ? ((EnchantmentStorageMeta) itemMeta).getStoredEnchants() : Collections.emptyMap();
+        return storedEnchantments;
+    }
+
+    /**
+     * @return the enchantments and stored enchantments of the item, see {@link Utils#getAllEnchants(ItemStack)}
+     */
+    @NotNull
+    public Map<Enchantment, Integer> getAllEnchantments() {
+        if (allEnchantments == null) allEnchantments = Utils.getAllEnchants(item);
+        return allEnchantments;
+    }
+
+    /**
+     * @return the potion effects of the item, see {@link Utils#getAllPotionEffects(ItemStack)}
+     */
+    @NotNull
+    public Map<PotionEffectType, Integer> getPotionEffects() {
+        if (potionEffects == null) potionEffects = Utils.getAllPotionEffects(item);
+        return potionEffects;
+    }
+}
@@ -32,10 +32,11 @@ import java.util.stream.Collectors;
 
 /**
  * A simple meta comparator to compare ItemsAdder items
- * @version 3.2
+ * @version 3.4
  * @author Andross
  */
 public final class ItemsAdder extends MetaTypeComparator {
+    private static final LookupCache<String> cache = LookupCache.register("itemsadder", 2048);
     private final Set<String> items = new HashSet<>();
 
     public ItemsAdder(final Object o, final Debug debug) {
@@ -53,9 +54,31 @@ public final class ItemsAdder extends MetaTypeComparator {
         items.addAll(Listable.getSplittedStringList(o).stream().map(String::toLowerCase).collect(Collectors.toList()));
     }
 
+    @Override
+    public int getCost() {
+        return 50;
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
-        final CustomStack customStack = CustomStack.byItemStack(itemStack);
-        return customStack != null && items.contains(customStack.getId().toLowerCase(Locale.ROOT));
+        // Empty id for non ItemsAdder items
+        final String id = cache.get(itemStack, itemMeta, item -> {
+            final CustomStack customStack = CustomStack.byItemStack(item);
+            return customStack == null ? "" : customStack.getId().toLowerCase(Locale.ROOT);
+        });
+        return !id.isEmpty() && items.contains(id);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final ItemsAdder that = (ItemsAdder) o;
+        return items.equals(that.items);
+    }
+
+    @Override
+    public int hashCode() {
+        return items.hashCode();
     }
 }
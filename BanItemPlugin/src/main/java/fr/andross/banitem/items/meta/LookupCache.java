@@ -0,0 +1,182 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.items.meta;
+
+import fr.andross.banitem.utils.BanVersion;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded LRU cache memoizing the result of an external plugin lookup on an item
+ * <i>(ItemsAdder item id, AdvancedEnchantments enchantments...)</i>.
+ * The result is keyed by the item fingerprint (material, item meta and data for MC&lt;1.13),
+ * so it is kept for the life of the item and not depending on the amount.
+ * Meta type comparators calling an external api should register their own cache with {@link #register(String, int)}.
+ * @param <V> the type of the cached result
+ * @version 3.4
+ * @author Andross
+ */
+public final class LookupCache<V> {
+    private static final Map<String, LookupCache<?>> caches = new ConcurrentHashMap<>();
+    private final String name;
+    private final Map<Fingerprint, V> map;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private LookupCache(@NotNull final String name, final int maxSize) {
+        this.name = name;
+        this.map = new LinkedHashMap<Fingerprint, V>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Fingerprint, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Register a new cache, or get the already registered one with this name
+     * @param name the name of the cache
+     * @param maxSize the maximum amount of items cached
+     * @param <V> the type of the cached result
+     * @return the cache
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public static <V> LookupCache<V> register(@NotNull final String name, final int maxSize) {
+        return (LookupCache<V>) caches.computeIfAbsent(name, k -> new LookupCache<V>(name, maxSize));
+    }
+
+    /**
+     * Get all the registered caches
+     * @return an unmodifiable view of the registered caches, by name
+     */
+    @NotNull
+    public static Map<String, LookupCache<?>> getCaches() {
+        return Collections.unmodifiableMap(caches);
+    }
+
+    /**
+     * Clear all the registered caches, when the plugin is reloaded
+     */
+    public static void clearAll() {
+        caches.values().forEach(LookupCache::clear);
+    }
+
+    /**
+     * Get the cached result for this item, computing it if needed
+     * @param itemStack the item
+     * @param itemMeta the item meta of the item, which must not be modified afterwards
+     * @param lookup the external lookup, called on cache miss
+     * @return the lookup result
+     */
+    public V get(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta, @NotNull final Function<ItemStack, V> lookup) {
+        final Fingerprint fingerprint = new Fingerprint(itemStack, itemMeta);
+        synchronized (map) {
+            final V value = map.get(fingerprint);
+            if (value != null) {
+                hits.increment();
+                return value;
+            }
+        }
+        misses.increment();
+        final V value = lookup.apply(itemStack);
+        synchronized (map) {
+            map.put(fingerprint, value);
+        }
+        return value;
+    }
+
+    /**
+     * Clear this cache
+     */
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    /**
+     * @return the name of this cache
+     */
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the current amount of items cached
+     */
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    /**
+     * @return the amount of lookups served from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the amount of lookups computed by the external api
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Identity of an item, without its amount
+     */
+    private static final class Fingerprint {
+        private final Material material;
+        private final ItemMeta itemMeta;
+        private final short data;
+        private final int hash;
+
+        @SuppressWarnings("deprecation")
+        private Fingerprint(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
+            this.material = itemStack.getType();
+            this.itemMeta = itemMeta;
+            this.data = BanVersion.v13OrMore ? 0 : itemStack.getDurability();
+            this.hash = Objects.hash(material, itemMeta, data);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Fingerprint that = (Fingerprint) o;
+            return hash == that.hash && material == that.material && data == that.data && Objects.equals(itemMeta, that.itemMeta);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -31,10 +31,10 @@ import java.util.stream.Collectors;
 
 /**
  * A simple meta comparator to compare the lore
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
-public final class LoreContains extends MetaTypeComparator {
+public final class LoreContains extends TextMetaTypeComparator {
     private final Set<String> lore;
 
     public LoreContains(final Object o, final Debug debug) {
@@ -42,9 +42,27 @@ public final class LoreContains extends MetaTypeComparator {
         lore = Listable.getStringList(o).stream().map(Chat::color).collect(Collectors.toSet());
     }
 
+    @Override
+    protected void register(@NotNull final TextMatcher.Builder builder, final int condition) {
+        lore.forEach(l -> builder.addLoreLine(l, condition));
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
         final List<String> itemLore = itemMeta == null ? null : (itemMeta.hasLore() ? itemMeta.getLore() : null); // made it that way to ignore the @Nullable annotation warning
         return itemLore != null && itemLore.stream().anyMatch(lore::contains);
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final LoreContains that = (LoreContains) o;
+        return lore.equals(that.lore);
+    }
+
+    @Override
+    public int hashCode() {
+        return lore.hashCode();
+    }
 }
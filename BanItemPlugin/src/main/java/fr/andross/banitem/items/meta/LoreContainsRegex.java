@@ -26,13 +26,14 @@ import org.jetbrains.annotations.Nullable;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import java.util.Objects;
 
 /**
  * A simple meta comparator to compare the lore
- * @version 3.2
+ * @version 3.4
  * @author Andross
  */
-public final class LoreContainsRegex extends MetaTypeComparator {
+public final class LoreContainsRegex extends TextMetaTypeComparator {
     private Pattern pattern;
 
     public LoreContainsRegex(final Object o, final Debug debug) {
@@ -46,9 +47,32 @@ public final class LoreContainsRegex extends MetaTypeComparator {
         }
     }
 
+    @Override
+    protected void register(@NotNull final TextMatcher.Builder builder, final int condition) {
+        if (pattern != null) builder.addLoreRegex(pattern, condition);
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
         final List<String> itemLore = itemMeta == null ? null : (itemMeta.hasLore() ? itemMeta.getLore() : null); // made it that way to ignore the @Nullable annotation warning
         return itemLore != null && itemLore.stream().anyMatch(l -> pattern.matcher(l).matches());
     }
+
+    @Nullable
+    private String getRegex() {
+        return pattern == null ? null : pattern.pattern();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final LoreContainsRegex that = (LoreContainsRegex) o;
+        return Objects.equals(getRegex(), that.getRegex());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getRegex());
+    }
 }
@@ -30,10 +30,10 @@ import java.util.stream.Collectors;
 
 /**
  * A simple meta comparator to compare the lore
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
-public final class LoreEquals extends MetaTypeComparator {
+public final class LoreEquals extends TextMetaTypeComparator {
     private final List<String> lore;
 
     public LoreEquals(final Object o, final Debug debug) {
@@ -41,8 +41,26 @@ public final class LoreEquals extends MetaTypeComparator {
         lore = Listable.getStringList(o).stream().map(Chat::color).collect(Collectors.toList());
     }
 
+    @Override
+    protected void register(@NotNull final TextMatcher.Builder builder, final int condition) {
+        if (!lore.isEmpty()) builder.addLore(lore, condition);
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
         return itemMeta != null && itemMeta.hasLore() && lore.equals(itemMeta.getLore());
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final LoreEquals that = (LoreEquals) o;
+        return lore.equals(that.lore);
+    }
+
+    @Override
+    public int hashCode() {
+        return lore.hashCode();
+    }
 }
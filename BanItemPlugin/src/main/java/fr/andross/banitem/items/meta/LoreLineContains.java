@@ -28,10 +28,10 @@ import java.util.List;
 
 /**
  * A simple meta comparator to compare the lore
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
-public final class LoreLineContains extends MetaTypeComparator {
+public final class LoreLineContains extends TextMetaTypeComparator {
     private final String lore;
 
     public LoreLineContains(final Object o, final Debug debug) {
@@ -39,9 +39,27 @@ public final class LoreLineContains extends MetaTypeComparator {
         lore = Chat.color(o.toString());
     }
 
+    @Override
+    protected void register(@NotNull final TextMatcher.Builder builder, final int condition) {
+        builder.addLoreSubstring(lore, condition);
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
         final List<String> itemLore = itemMeta == null ? null : (itemMeta.hasLore() ? itemMeta.getLore() : null); // made it that way to ignore the @Nullable annotation warning
         return itemLore != null && itemLore.stream().anyMatch(l -> l.contains(lore));
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final LoreLineContains that = (LoreLineContains) o;
+        return lore.equals(that.lore);
+    }
+
+    @Override
+    public int hashCode() {
+        return lore.hashCode();
+    }
 }
@@ -22,14 +22,25 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
- * An abstract meta type comparator
- * @version 3.1
+ * An abstract meta type comparator.
+ * The comparators are equal when they check the same predicate: equals & hashCode are implemented
+ * on the parsed configuration, not on the configuration object, so that identical predicates
+ * of several custom items are only checked once per item.
+ * @version 3.4
  * @author Andross
  */
 public abstract class MetaTypeComparator {
     private final Object object;
     private boolean valid = true;
+    private final LongAdder checks = new LongAdder(), passes = new LongAdder(); // observed by all the threads checking items
+    private int predicate = -1;
 
     public MetaTypeComparator(@NotNull final Object object) {
         this.object = object;
@@ -48,5 +59,95 @@ public abstract class MetaTypeComparator {
         this.valid = valid;
     }
 
+    /**
+     * Get the identifier of the predicate checked by this comparator, shared by the identical comparators used by several
+     * custom items: its result is computed once per item snapshot <i>(see {@link ItemSnapshot#matches(MetaTypeComparator)})</i>.
+     * @return the predicate identifier, -1 if not shared
+     */
+    public int getPredicate() {
+        return predicate;
+    }
+
+    /**
+     * @param predicate the identifier of the predicate checked by this comparator, -1 if not shared
+     */
+    public void setPredicate(final int predicate) {
+        this.predicate = predicate;
+    }
+
+    /**
+     * Estimated cost of a check, relative to the other comparators.
+     * 1 is a simple field of the item meta, 5 a copy of an item collection
+     * <i>(enchantments, potions...)</i> and 50 a call to an external plugin api.
+     * @return the estimated cost of a check
+     */
+    public int getCost() {
+        return 1;
+    }
+
+    /**
+     * Observed probability of an item passing this check
+     * @return the observed probability, 0.5 if there is no observation yet
+     */
+    public double getSelectivity() {
+        return (passes.sum() + 1D) / (checks.sum() + 2D);
+    }
+
+    /**
+     * Record the result of a check, to compute the selectivity
+     * @param passed if the item passed the check
+     */
+    public void record(final boolean passed) {
+        checks.increment();
+        if (passed) passes.increment();
+    }
+
     public abstract boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta);
+
+    /**
+     * Same as {@link #matches(ItemStack, ItemMeta)}, with the text conditions already computed
+     * by the {@link TextMatcher} of the custom items.
+     * @param itemStack the item
+     * @param itemMeta the item meta
+     * @param conditions the satisfied text conditions, null if not computed
+     * @return if the item matches
+     */
+    public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta, @Nullable final BitSet conditions) {
+        return matches(itemStack, itemMeta);
+    }
+
+    /**
+     * Same as {@link #matches(ItemStack, ItemMeta)}, reading the fields shared with the other
+     * custom items checked from the item snapshot.
+     * @param snapshot the item snapshot
+     * @return if the item matches
+     */
+    public boolean matches(@NotNull final ItemSnapshot snapshot) {
+        return matches(snapshot.getItem(), snapshot.getItemMeta());
+    }
+
+    /**
+     * Check if two maps of arrays <i>(levels intervals...)</i> are equal, comparing the content of the arrays
+     * @param a a map
+     * @param b another map
+     * @return true if both maps contain the same keys with the same arrays content
+     */
+    protected static boolean equalsArrays(@NotNull final Map<?, ? extends Object[]> a, @NotNull final Map<?, ? extends Object[]> b) {
+        if (a.size() != b.size()) return false;
+        for (final Map.Entry<?, ? extends Object[]> e : a.entrySet())
+            if (!Arrays.equals(e.getValue(), b.get(e.getKey()))) return false;
+        return true;
+    }
+
+    /**
+     * Hash code of a map of arrays, consistent with {@link #equalsArrays(Map, Map)}
+     * @param map the map
+     * @return the hash code
+     */
+    protected static int hashArrays(@NotNull final Map<?, ? extends Object[]> map) {
+        int hash = 0;
+        for (final Map.Entry<?, ? extends Object[]> e : map.entrySet())
+            hash += Objects.hashCode(e.getKey()) ^ Arrays.hashCode(e.getValue());
+        return hash;
+    }
 }
@@ -53,4 +53,17 @@ public final class ModeldataEquals extends MetaTypeComparator {
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
         return itemMeta != null && itemMeta.hasCustomModelData() && itemMeta.getCustomModelData() == modelData;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final ModeldataEquals that = (ModeldataEquals) o;
+        return modelData == that.modelData;
+    }
+
+    @Override
+    public int hashCode() {
+        return modelData;
+    }
 }
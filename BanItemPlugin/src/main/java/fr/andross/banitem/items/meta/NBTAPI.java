@@ -31,11 +31,12 @@ import java.util.function.BiPredicate;
 
 /**
  * A simple meta comparator to compare NBT
- * @version 3.2
+ * @version 3.4
  * @author Andross
  */
 public final class NBTAPI extends MetaTypeComparator {
     private final Map<List<String>, List<BiPredicate<NBTCompound, String>>> map = new HashMap<>();
+    private final Map<List<String>, List<Object>> expected = new HashMap<>(); // the values of the predicates, to compare the comparators
 
     public NBTAPI(final Object o, final Debug debug) {
         super(o);
@@ -64,6 +65,7 @@ public final class NBTAPI extends MetaTypeComparator {
             // Preparing variables
             final List<String> keys = Arrays.asList(keyNodes.split("#"));
             final List<BiPredicate<NBTCompound, String>> predicates = new ArrayList<>();
+            final List<Object> values = new ArrayList<>();
 
             // Multiple matches
             if (object instanceof ConfigurationSection) {
@@ -78,6 +80,7 @@ public final class NBTAPI extends MetaTypeComparator {
                         return;
                     }
                     predicates.add(predicate);
+                    values.add(object2);
                 }
             } else { // Simple NBT
                 final BiPredicate<NBTCompound, String> predicate = getPredicate(object);
@@ -87,10 +90,13 @@ public final class NBTAPI extends MetaTypeComparator {
                     return;
                 }
                 predicates.add(predicate);
+                values.add(object);
             }
 
-            if (!predicates.isEmpty())
+            if (!predicates.isEmpty()) {
                 map.put(keys, predicates);
+                expected.put(keys, values);
+            }
         }
     }
 
@@ -113,6 +119,11 @@ public final class NBTAPI extends MetaTypeComparator {
         else return null;
     }
 
+    @Override
+    public int getCost() {
+        return 30;
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
         final NBTItem nbtItem = new NBTItem(itemStack);
@@ -144,4 +155,17 @@ public final class NBTAPI extends MetaTypeComparator {
         }
         return false;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final NBTAPI that = (NBTAPI) o;
+        return expected.equals(that.expected);
+    }
+
+    @Override
+    public int hashCode() {
+        return expected.hashCode();
+    }
 }
@@ -33,10 +33,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.Objects;
 
 /**
  * A simple meta comparator to compare potions
- * @version 3.3
+ * @version 3.4
  * @author Andross
  */
 public final class Potion extends MetaTypeComparator {
@@ -120,9 +121,22 @@ public final class Potion extends MetaTypeComparator {
         }
     }
 
+    @Override
+    public int getCost() {
+        return 10;
+    }
+
     @Override
     public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta) {
-        final Map<PotionEffectType, Integer> potions = Utils.getAllPotionEffects(itemStack);
+        return matches(Utils.getAllPotionEffects(itemStack));
+    }
+
+    @Override
+    public boolean matches(@NotNull final ItemSnapshot snapshot) {
+        return matches(snapshot.getPotionEffects());
+    }
+
+    private boolean matches(@NotNull final Map<PotionEffectType, Integer> potions) {
         if (potions.isEmpty()) return false;
 
         for (final Map.Entry<PotionEffectType, Integer> e : potions.entrySet()) {
@@ -145,4 +159,17 @@ public final class Potion extends MetaTypeComparator {
 
         return false;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final Potion that = (Potion) o;
+        return potionsWithoutLevels.equals(that.potionsWithoutLevels) && potions.equals(that.potions) && equalsArrays(potionsIntervals, that.potionsIntervals);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(potionsWithoutLevels, potions, hashArrays(potionsIntervals));
+    }
 }
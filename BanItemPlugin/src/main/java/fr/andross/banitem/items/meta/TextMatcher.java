@@ -0,0 +1,223 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.items.meta;
+
+import fr.andross.banitem.utils.text.AhoCorasick;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Multi-pattern matcher for the lore and display name conditions of all the custom items.
+ * Each lore line and the display name are scanned once, and the result is the set of
+ * conditions satisfied by the item, consumed by the {@link TextMetaTypeComparator}s.
+ * @version 3.4
+ * @author Andross
+ */
+public final class TextMatcher {
+    private final Map<List<String>, int[]> lores; // lore-equals
+    private final Map<String, int[]> loreLines; // lore-contains
+    private final AhoCorasick loreSubstrings; // lore-line-contains
+    private final Pattern[] loreRegexes; // lore-contains-regex
+    private final int[][] loreRegexesConditions;
+    private final Pattern loreRegexesUnion; // any line not matching this can not match any regex
+    private final Map<String, int[]> displayNames; // displayname-equals
+    private final AhoCorasick displayNameSubstrings; // displayname-contains
+    private final int size;
+
+    private TextMatcher(@NotNull final Builder b) {
+        lores = freeze(b.lores);
+        loreLines = freeze(b.loreLines);
+        loreSubstrings = b.loreSubstrings.isEmpty() ? null : b.loreSubstrings.build();
+        displayNames = freeze(b.displayNames);
+        displayNameSubstrings = b.displayNameSubstrings.isEmpty() ? null : b.displayNameSubstrings.build();
+        size = b.size;
+
+        // Regexes, identical patterns are only evaluated once
+        loreRegexes = new Pattern[b.loreRegexes.size()];
+        loreRegexesConditions = new int[b.loreRegexes.size()][];
+        int i = 0;
+        boolean unionable = true;
+        final StringJoiner union = new StringJoiner("|");
+        for (final Map.Entry<String, List<Integer>> e : b.loreRegexes.entrySet()) {
+            loreRegexes[i] = b.loreRegexesPatterns.get(e.getKey());
+            loreRegexesConditions[i++] = e.getValue().stream().mapToInt(Integer::intValue).toArray();
+            // Back references and named groups would be broken by the union
+            if (e.getKey().matches("(?s).*(\\\\[0-9]|\\\\k<|\\(\\?<[a-zA-Z]).*")) unionable = false;
+            union.add("(?:" + e.getKey() + ")");
+        }
+        Pattern unionPattern = null;
+        if (unionable && loreRegexes.length > 1) {
+            try {
+                unionPattern = Pattern.compile(union.toString());
+            } catch (final PatternSyntaxException e) {
+                // ignored, every regex will be evaluated
+            }
+        }
+        loreRegexesUnion = unionPattern;
+    }
+
+    @NotNull
+    private static <K> Map<K, int[]> freeze(@NotNull final Map<K, List<Integer>> map) {
+        if (map.isEmpty()) return Collections.emptyMap();
+        final Map<K, int[]> frozen = new HashMap<>();
+        map.forEach((k, v) -> frozen.put(k, v.stream().mapToInt(Integer::intValue).toArray()));
+        return frozen;
+    }
+
+    /**
+     * Get the conditions satisfied by the item meta
+     * @param itemMeta the item meta
+     * @return a bitset containing the satisfied conditions
+     */
+    @NotNull
+    public BitSet match(@Nullable final ItemMeta itemMeta) {
+        final BitSet found = new BitSet(size);
+        if (itemMeta == null) return found;
+
+        // Lore
+        final List<String> lore = itemMeta.hasLore() ? itemMeta.getLore() : null;
+        if (lore != null) {
+            set(found, lores.get(lore));
+            for (final String line : lore) {
+                if (!loreLines.isEmpty()) set(found, loreLines.get(line));
+                if (loreSubstrings != null) loreSubstrings.search(line, found);
+                if (loreRegexes.length == 0 || (loreRegexesUnion != null && !loreRegexesUnion.matcher(line).matches())) continue;
+                for (int i = 0; i < loreRegexes.length; i++) {
+                    if (loreRegexes[i].matcher(line).matches()) set(found, loreRegexesConditions[i]);
+                }
+            }
+        }
+
+        // Display name
+        if (itemMeta.hasDisplayName()) {
+            final String displayName = itemMeta.getDisplayName();
+            set(found, displayNames.get(displayName));
+            if (displayNameSubstrings != null) displayNameSubstrings.search(displayName, found);
+        }
+        return found;
+    }
+
+    private static void set(@NotNull final BitSet found, @Nullable final int[] conditions) {
+        if (conditions == null) return;
+        for (final int condition : conditions) found.set(condition);
+    }
+
+    /**
+     * @return the amount of conditions handled by this matcher
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Builder of a text matcher, in which the text comparators register their conditions
+     */
+    public static final class Builder {
+        private final Map<List<String>, List<Integer>> lores = new HashMap<>();
+        private final Map<String, List<Integer>> loreLines = new HashMap<>();
+        private final AhoCorasick.Builder loreSubstrings = new AhoCorasick.Builder();
+        private final Map<String, List<Integer>> loreRegexes = new LinkedHashMap<>();
+        private final Map<String, Pattern> loreRegexesPatterns = new HashMap<>();
+        private final Map<String, List<Integer>> displayNames = new HashMap<>();
+        private final AhoCorasick.Builder displayNameSubstrings = new AhoCorasick.Builder();
+        private int size = 0;
+
+        /**
+         * Create a new condition
+         * @return the condition identifier
+         */
+        public int newCondition() {
+            return size++;
+        }
+
+        /**
+         * The condition is satisfied if the lore is equal to this one
+         * @param lore the lore
+         * @param condition the condition identifier
+         */
+        public void addLore(@NotNull final List<String> lore, final int condition) {
+            lores.computeIfAbsent(new ArrayList<>(lore), k -> new ArrayList<>()).add(condition);
+        }
+
+        /**
+         * The condition is satisfied if a lore line is equal to this one
+         * @param line the line
+         * @param condition the condition identifier
+         */
+        public void addLoreLine(@NotNull final String line, final int condition) {
+            loreLines.computeIfAbsent(line, k -> new ArrayList<>()).add(condition);
+        }
+
+        /**
+         * The condition is satisfied if a lore line contains this text
+         * @param text the text
+         * @param condition the condition identifier
+         */
+        public void addLoreSubstring(@NotNull final String text, final int condition) {
+            loreSubstrings.add(text, condition);
+        }
+
+        /**
+         * The condition is satisfied if a lore line matches this pattern
+         * @param pattern the pattern
+         * @param condition the condition identifier
+         */
+        public void addLoreRegex(@NotNull final Pattern pattern, final int condition) {
+            loreRegexesPatterns.putIfAbsent(pattern.pattern(), pattern);
+            loreRegexes.computeIfAbsent(pattern.pattern(), k -> new ArrayList<>()).add(condition);
+        }
+
+        /**
+         * The condition is satisfied if the display name is equal to this one
+         * @param displayName the display name
+         * @param condition the condition identifier
+         */
+        public void addDisplayName(@NotNull final String displayName, final int condition) {
+            displayNames.computeIfAbsent(displayName, k -> new ArrayList<>()).add(condition);
+        }
+
+        /**
+         * The condition is satisfied if the display name contains this text
+         * @param text the text
+         * @param condition the condition identifier
+         */
+        public void addDisplayNameSubstring(@NotNull final String text, final int condition) {
+            displayNameSubstrings.add(text, condition);
+        }
+
+        /**
+         * @return if no condition was registered
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * @return a new immutable text matcher
+         */
+        @NotNull
+        public TextMatcher build() {
+            return new TextMatcher(this);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.items.meta;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+
+/**
+ * An abstract comparator for the lore and display name,
+ * which can be evaluated by a shared {@link TextMatcher}.
+ * @version 3.4
+ * @author Andross
+ */
+public abstract class TextMetaTypeComparator extends MetaTypeComparator {
+    private int condition = -1;
+    private TextMatcher textMatcher = null;
+
+    public TextMetaTypeComparator(@NotNull final Object object) {
+        super(object);
+    }
+
+    /**
+     * Register the condition of this comparator into the text matcher builder
+     * @param builder the text matcher builder
+     */
+    public void register(@NotNull final TextMatcher.Builder builder) {
+        condition = builder.newCondition();
+        register(builder, condition);
+    }
+
+    protected abstract void register(@NotNull final TextMatcher.Builder builder, final int condition);
+
+    @Override
+    public int getCost() {
+        return 2;
+    }
+
+    @Override
+    public boolean matches(@NotNull final ItemStack itemStack, @Nullable final ItemMeta itemMeta, @Nullable final BitSet conditions) {
+        if (conditions == null || condition < 0) return matches(itemStack, itemMeta);
+        return conditions.get(condition);
+    }
+
+    @Override
+    public boolean matches(@NotNull final ItemSnapshot snapshot) {
+        if (textMatcher == null || condition < 0) return matches(snapshot.getItem(), snapshot.getItemMeta());
+        return snapshot.getConditions(textMatcher).get(condition);
+    }
+
+    /**
+     * Set the text matcher built with the condition of this comparator
+     * @param textMatcher the text matcher, null if not compiled
+     */
+    public void setTextMatcher(@Nullable final TextMatcher textMatcher) {
+        this.textMatcher = textMatcher;
+    }
+}
@@ -43,4 +43,17 @@ public final class Unbreakable extends MetaTypeComparator {
         final boolean isUnbreakable = itemMeta != null && (BanVersion.v11OrMore ? itemMeta.isUnbreakable() : OldItemUtils.isUnbreakable(itemMeta));
         return isUnbreakable && unbreakable;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final Unbreakable that = (Unbreakable) o;
+        return unbreakable == that.unbreakable;
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(unbreakable);
+    }
 }
@@ -26,6 +26,11 @@ import org.bukkit.Bukkit;
  * @author Andross
  */
 public final class BanVersion {
+    /**
+     * In 1.17+, entities are loaded separately from their chunk.
+     */
+    public static final boolean v17OrMore;
+
     /**
      * In 1.16+, color codes now support HEX.
      */
@@ -73,6 +78,7 @@ public final class BanVersion {
             subMcVersion = 1;
             Bukkit.getLogger().warning("[VERSION] Unrecognized/Unsupported Bukkit version!");
         }
+        v17OrMore = subMcVersion >= 17;
         v16OrMore = subMcVersion >= 16;
         v14OrMore = subMcVersion >= 14;
         v13OrMore = subMcVersion >= 13;
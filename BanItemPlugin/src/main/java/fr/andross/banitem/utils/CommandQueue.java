@@ -0,0 +1,196 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils;
+
+import fr.andross.banitem.utils.scheduler.TaskExecutor;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue of the console commands run by the bans <i>(run data)</i>.
+ * Instead of being dispatched while handling the event, the commands are run on the next ticks,
+ * within a time budget per tick. Identical commands queued within a window are only run once.
+ * The drain task is only scheduled while commands are waiting.
+ * Without budget, the commands are run directly from the global thread, and the commands queued
+ * from the other threads <i>(region threads on Folia)</i> are all run on the next tick.
+ * @version 3.4
+ * @author Andross
+ */
+public final class CommandQueue {
+    private final TaskExecutor executor;
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Map<String, Long> recent = new ConcurrentHashMap<>(); // command -> last time queued
+    private final LongAdder run = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private volatile long budget = TimeUnit.MILLISECONDS.toNanos(2);
+    private volatile int maxSize = 1000;
+    private volatile long dedupWindow = 1000L;
+    private long lastPrune = 0;
+
+    /**
+     * Create a commands queue
+     * @param executor the executor of the tasks
+     */
+    public CommandQueue(@NotNull final TaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * (re)Load the queue configuration.
+     * The tasks of the plugin being cancelled while reloading, the drain task is rescheduled if needed.
+     * @param section the configuration section, null for the default values
+     */
+    public void load(@Nullable final ConfigurationSection section) {
+        budget = TimeUnit.MILLISECONDS.toNanos(section == null ? 2 : Math.max(0, section.getLong("budget", 2)));
+        maxSize = section == null ? 1000 : Math.max(1, section.getInt("max-size", 1000));
+        dedupWindow = section == null ? 1000L : Math.max(0, section.getLong("dedup-window", 1000L));
+        recent.clear();
+        scheduled.set(false);
+        if (!queue.isEmpty()) schedule();
+    }
+
+    /**
+     * Queue a console command
+     * @param command the command
+     * @return true if queued (or run directly without budget), false if dropped or deduplicated
+     */
+    public boolean add(@NotNull final String command) {
+        // No budget: running directly
+        if (budget == 0 && executor.isGlobalThread()) {
+            dispatch(command);
+            return true;
+        }
+
+        // Identical command queued recently?
+        final long now = System.currentTimeMillis();
+        if (dedupWindow > 0) {
+            final Long last = recent.get(command);
+            if (last != null && now - last < dedupWindow) {
+                deduplicated.increment();
+                return false;
+            }
+        }
+
+        // Full?
+        if (size.incrementAndGet() > maxSize) {
+            size.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        queue.add(command);
+        // Only a queued command deduplicates the next ones
+        if (dedupWindow > 0) recent.put(command, now);
+        schedule();
+        return true;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) executor.run(this::drain);
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        final long start = System.nanoTime();
+        String command;
+        while ((command = queue.poll()) != null) {
+            size.decrementAndGet();
+            dispatch(command);
+            if (budget > 0 && System.nanoTime() - start >= budget) break; // at least one command per tick, no limit without budget
+        }
+        if (!queue.isEmpty()) schedule();
+
+        // Forgetting the old commands
+        final long now = System.currentTimeMillis();
+        if (now - lastPrune >= 10000L) {
+            lastPrune = now;
+            recent.values().removeIf(time -> now - time >= dedupWindow);
+        }
+    }
+
+    private void dispatch(@NotNull final String command) {
+        try {
+            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
+        } catch (final Exception e) {
+            e.printStackTrace();
+        }
+        run.increment();
+    }
+
+    /**
+     * Run all the waiting commands now, without budget.
+     * Used when the plugin is disabled.
+     */
+    public void flush() {
+        String command;
+        while ((command = queue.poll()) != null) {
+            size.decrementAndGet();
+            dispatch(command);
+        }
+    }
+
+    /**
+     * @return the amount of commands waiting
+     */
+    public int getDepth() {
+        return Math.max(0, size.get());
+    }
+
+    /**
+     * @return the amount of commands run
+     */
+    public long getRun() {
+        return run.sum();
+    }
+
+    /**
+     * @return the amount of commands dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the amount of commands ignored because an identical one was queued recently
+     */
+    public long getDeduplicated() {
+        return deduplicated.sum();
+    }
+
+    /**
+     * Reset the counters
+     */
+    public void resetStats() {
+        run.reset();
+        dropped.reset();
+        deduplicated.reset();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils;
+
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.utils.scheduler.TaskExecutor;
+import fr.andross.banitem.utils.text.MessageTemplate;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rate limiter of the ban messages and animations.
+ * Each player has a token bucket per item and action: a message is sent only if a token is available.
+ * Denials without token are counted, and coalesced into a single message sent when the next token is available.
+ * The buckets of a player are only used by the thread owning the player.
+ * @version 3.4
+ * @author Andross
+ */
+public final class MessageLimiter {
+    private final BanItem pl;
+    private final TaskExecutor executor;
+    private final Map<UUID, Map<String, Bucket>> buckets = new ConcurrentHashMap<>();
+    private volatile long window = 1000L;
+    private volatile int burst = 1;
+
+    /**
+     * Create a message limiter
+     * @param pl the main instance
+     * @param executor the executor of the tasks
+     */
+    public MessageLimiter(@NotNull final BanItem pl, @NotNull final TaskExecutor executor) {
+        this.pl = pl;
+        this.executor = executor;
+    }
+
+    /**
+     * (re)Load the limiter configuration, forgetting the current buckets
+     * @param section the configuration section, null for the default values
+     */
+    public void load(@Nullable final ConfigurationSection section) {
+        buckets.clear();
+        window = section == null ? 1000L : Math.max(0, section.getLong("window", 1000L));
+        burst = section == null ? 1 : Math.max(1, section.getInt("burst", 1));
+    }
+
+    /**
+     * Send the ban messages to the player with the ban animation, if allowed by its bucket.
+     * The messages are only rendered when sent.
+     * @param player the player
+     * @param itemName the item name, empty if not related to an item
+     * @param action the action
+     * @param messages the messages templates
+     * @param context the placeholders values
+     * @param animation if the ban animation should be run with the messages
+     */
+    public void send(@NotNull final Player player, @NotNull final String itemName, @NotNull final BanAction action, @NotNull final List<MessageTemplate> messages,
+                     @NotNull final MessageTemplate.Context context, final boolean animation) {
+        if (messages.isEmpty()) return;
+        if (window > 0) {
+            final Bucket bucket = buckets.computeIfAbsent(player.getUniqueId(), k -> new HashMap<>())
+                    .computeIfAbsent(action.name() + ':' + itemName, k -> new Bucket(burst));
+            if (!bucket.tryAcquire(System.currentTimeMillis())) {
+                bucket.suppressed++;
+                bucket.pending = messages;
+                bucket.context = context;
+                if (!bucket.scheduled) {
+                    bucket.scheduled = true;
+                    final long delay = Math.max(1L, (bucket.untilNextToken() + 49L) / 50L); // in ticks
+                    final UUID uuid = player.getUniqueId();
+                    executor.runLater(player, () -> flush(uuid, bucket), delay);
+                }
+                return;
+            }
+        }
+
+        for (final MessageTemplate message : messages) player.sendMessage(message.render(context));
+        if (animation) pl.getBanConfig().getAnimation().runAnimation(player);
+    }
+
+    private void flush(@NotNull final UUID uuid, @NotNull final Bucket bucket) {
+        bucket.scheduled = false;
+        final Map<String, Bucket> playerBuckets = buckets.get(uuid);
+        if (playerBuckets == null || !playerBuckets.containsValue(bucket)) return; // reloaded or disconnected
+        final Player player = Bukkit.getPlayer(uuid);
+        if (player == null || bucket.suppressed == 0 || bucket.pending == null || bucket.pending.isEmpty()) return;
+
+        // Sending the last messages once, with the amount of denials
+        bucket.tryAcquire(System.currentTimeMillis());
+        final List<MessageTemplate> messages = bucket.pending;
+        for (int i = 0; i < messages.size() - 1; i++) player.sendMessage(messages.get(i).render(bucket.context));
+        player.sendMessage(messages.get(messages.size() - 1).render(bucket.context) + Chat.color(" &7(x" + bucket.suppressed + ")"));
+        bucket.suppressed = 0;
+        bucket.pending = null;
+        bucket.context = null;
+    }
+
+    /**
+     * Forget the buckets of a player
+     * @param uuid the player uuid
+     */
+    public void remove(@NotNull final UUID uuid) {
+        buckets.remove(uuid);
+    }
+
+    /**
+     * Forget all the buckets
+     */
+    public void clear() {
+        buckets.clear();
+    }
+
+    /**
+     * A token bucket, refilled with one token per window
+     */
+    private final class Bucket {
+        private final int capacity;
+        private double tokens;
+        private long last;
+        private int suppressed = 0;
+        private List<MessageTemplate> pending = null;
+        private MessageTemplate.Context context = null;
+        private boolean scheduled = false;
+
+        private Bucket(final int capacity) {
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.last = System.currentTimeMillis();
+        }
+
+        private boolean tryAcquire(final long now) {
+            tokens = Math.min(capacity, tokens + (double) (now - last) / window);
+            last = now;
+            if (tokens < 1) return false;
+            tokens--;
+            return true;
+        }
+
+        private long untilNextToken() {
+            return (long) Math.ceil((1 - tokens) * window);
+        }
+    }
+}
@@ -21,19 +21,29 @@ import org.bukkit.Bukkit;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Package utils that use the reflection api of java
+ * Package utils that use the reflection api of java.
+ * Methods are resolved once, then cached as method handles.
  * @version 3.4
  * @author EpiCanard
  */
 public class ReflectionUtils {
 
     private final static String bukkitPackageVersion;
+    private final static MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final static MethodType genericType = MethodType.methodType(Object.class, Object.class);
+    private final static Map<String, MethodHandle> handles = new ConcurrentHashMap<>(); // all adapted to (Object)Object
+    private static MethodHandle asNMSCopy;
 
     static {
         // Bukkit package version (ex: V1_8_R3)
@@ -46,10 +56,12 @@ public class ReflectionUtils {
      * @return Converted ItemStack
      */
     public static Object asNMSCopy(@NotNull final ItemStack itemStack) throws ClassNotFoundException, InvocationTargetException, IllegalAccessException, NoSuchMethodException {
-        final String craftPath = String.format("org.bukkit.craftbukkit.%s.inventory.CraftItemStack", bukkitPackageVersion);
-        final Class<?> craftItemStack =  Class.forName(craftPath);
-        final Method asNMSCopy = craftItemStack.getDeclaredMethod("asNMSCopy", ItemStack.class);
-        return asNMSCopy.invoke(null, itemStack);
+        if (asNMSCopy == null) {
+            final String craftPath = String.format("org.bukkit.craftbukkit.%s.inventory.CraftItemStack", bukkitPackageVersion);
+            final Class<?> craftItemStack =  Class.forName(craftPath);
+            asNMSCopy = lookup.unreflect(craftItemStack.getDeclaredMethod("asNMSCopy", ItemStack.class)).asType(genericType);
+        }
+        return invoke(asNMSCopy, itemStack);
     }
 
     /**
@@ -61,10 +73,16 @@ public class ReflectionUtils {
      */
     @SuppressWarnings("unchecked")
     public static <T> T callMethodWithReturnType(@NotNull final Object obj, @NotNull final Class<? extends T> returnType) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException {
-        final Optional<Method> maybeMethod = Arrays.stream(obj.getClass().getDeclaredMethods()).filter(m -> m.getReturnType() == returnType).findFirst();
-        if (maybeMethod.isPresent())
-            return (T)maybeMethod.get().invoke(obj);
-        throw new NoSuchMethodException("Can't find method with type : " + returnType.getName());
+        final String key = obj.getClass().getName() + ":" + returnType.getName();
+        MethodHandle handle = handles.get(key);
+        if (handle == null) {
+            final Optional<Method> maybeMethod = Arrays.stream(obj.getClass().getDeclaredMethods()).filter(m -> m.getReturnType() == returnType).findFirst();
+            if (!maybeMethod.isPresent())
+                throw new NoSuchMethodException("Can't find method with type : " + returnType.getName());
+            handle = lookup.unreflect(maybeMethod.get()).asType(genericType);
+            handles.put(key, handle);
+        }
+        return (T) invoke(handle, obj);
     }
 
     /**
@@ -76,6 +94,26 @@ public class ReflectionUtils {
      */
     @SuppressWarnings("unchecked")
     public static <T> T callMethodWithName(@NotNull final Object obj, @NotNull final String name) throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
-        return (T)obj.getClass().getDeclaredMethod(name).invoke(obj);
+        final String key = obj.getClass().getName() + "#" + name;
+        MethodHandle handle = handles.get(key);
+        if (handle == null) {
+            handle = lookup.unreflect(obj.getClass().getDeclaredMethod(name)).asType(genericType);
+            handles.put(key, handle);
+        }
+        return (T) invoke(handle, obj);
+    }
+
+    /**
+     * Invoke the (Object)Object method handle, wrapping any exception thrown by the method
+     * @param handle the method handle
+     * @param arg the argument, or the instance for non static methods
+     * @return the value returned by the method
+     */
+    private static Object invoke(@NotNull final MethodHandle handle, @NotNull final Object arg) throws InvocationTargetException {
+        try {
+            return (Object) handle.invokeExact(arg);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 }
@@ -20,7 +20,8 @@ package fr.andross.banitem.utils.attributes;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * An enum which represents the minecraft attributes.
@@ -42,8 +43,13 @@ public enum AttributeLegacy {
     HORSE_JUMP_STRENGTH("horse.jumpStrength"),
     ZOMBIE_SPAWN_REINFORCEMENTS("zombie.spawnReinforcements");
 
+    private static final Map<String, AttributeLegacy> byName = new HashMap<>();
     private final String name;
 
+    static {
+        for (final AttributeLegacy attribute : values()) byName.put(attribute.name, attribute);
+    }
+
     AttributeLegacy(@NotNull final String name) {
         this.name = name;
     }
@@ -60,6 +66,6 @@ public enum AttributeLegacy {
      */
     @Nullable
     public static AttributeLegacy valueFromName(final String name) {
-        return Arrays.stream(AttributeLegacy.values()).filter(attr -> attr.name.equals(name)).findFirst().orElse(null);
+        return byName.get(name);
     }
 }
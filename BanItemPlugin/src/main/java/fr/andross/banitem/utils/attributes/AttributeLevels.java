@@ -19,6 +19,8 @@ package fr.andross.banitem.utils.attributes;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Objects;
+
 /**
  * An attribute wrapper class that stores the levels and the comparator in which the attribute must match
  * @version 3.4
@@ -75,11 +77,20 @@ public final class AttributeLevels {
      */
     @NotNull
     public Boolean matches(@NotNull final Double level) {
+        return matches(level.doubleValue());
+    }
+
+    /**
+     * Define if the param level match with the attribute levels
+     * @param level Level to check if it matches
+     * @return if the input level match
+     */
+    public boolean matches(final double level) {
         switch (this.comparator) {
             case BETWEEN:
                 return level >= minLevel && (maxLevel == null || level <= maxLevel);
             case EQUALS:
-                return level.equals(minLevel);
+                return Double.compare(level, minLevel) == 0;
             case LOWER:
                 return level < minLevel;
             case HIGHER:
@@ -87,4 +98,17 @@ public final class AttributeLevels {
         }
         return false;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final AttributeLevels that = (AttributeLevels) o;
+        return comparator == that.comparator && minLevel.equals(that.minLevel) && Objects.equals(maxLevel, that.maxLevel);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(comparator, minLevel, maxLevel);
+    }
 }
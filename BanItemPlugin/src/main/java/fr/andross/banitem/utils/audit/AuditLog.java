@@ -0,0 +1,312 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.audit;
+
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.actions.BanActionData;
+import fr.andross.banitem.actions.BanData;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent audit log of the denied actions.
+ * Records are added into a lock-free ring buffer by the checking thread, and a background
+ * thread writes them into rotating gzipped JSON lines files, named after their first record time.
+ * As records are appended in time order, a time range search only reads the files covering
+ * the range, and stops reading a file once past the range.
+ * @version 3.4
+ * @author Andross
+ */
+public final class AuditLog {
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".jsonl.gz";
+    private static final String DATE_FORMAT = "yyyyMMdd-HHmmss-SSS";
+    private static final long ORDER_TOLERANCE = 5000L; // records from several threads can be slightly out of order
+    private final File folder;
+    private volatile DenialRing ring;
+    private volatile boolean all;
+    private AuditWriter writer;
+
+    /**
+     * Create an audit log, writing into this folder
+     * @param folder the folder of the audit files
+     */
+    public AuditLog(@NotNull final File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * (re)Load the audit log with this configuration, flushing the pending records
+     * @param section the audit configuration section, null to disable the audit log
+     */
+    public synchronized void load(@Nullable final ConfigurationSection section) {
+        stop();
+        if (section == null || !section.getBoolean("enabled")) return;
+        all = section.getBoolean("all-denials");
+        final DenialRing r = new DenialRing(section.getInt("buffer", 8192));
+        writer = new AuditWriter(r, Math.max(1, section.getLong("max-file-size", 8)) * 1024L * 1024L,
+                TimeUnit.MINUTES.toMillis(Math.max(1, section.getLong("rotate-minutes", 60))), Math.max(1, section.getInt("max-files", 168)));
+        writer.start();
+        ring = r;
+    }
+
+    /**
+     * Stop the audit log, writing the pending records.
+     * Waits up to 5 seconds for the background thread.
+     */
+    public synchronized void stop() {
+        ring = null;
+        if (writer == null) return;
+        writer.running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000L);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    /**
+     * @return if the audit log is enabled
+     */
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * @return the amount of records dropped because the buffer was full
+     */
+    public long getDropped() {
+        final DenialRing r = ring;
+        return r == null ? 0 : r.getDropped();
+    }
+
+    /**
+     * Record a denied action, if the audit log is enabled.
+     * Only the actions with the log data are recorded, unless all the denials are audited.
+     * This never blocks: if the buffer is full, the record is dropped.
+     * @param player the player
+     * @param itemName the item name
+     * @param action the denied action
+     * @param data the action data, if any
+     * @param banData the ban data of the check, if any
+     */
+    public void record(@NotNull final Player player, @NotNull final String itemName, @NotNull final BanAction action, @Nullable final BanActionData data, @Nullable final BanData[] banData) {
+        final DenialRing r = ring;
+        if (r == null || (!all && (data == null || !data.getLog()))) return;
+        r.offer(new DenialRecord(System.currentTimeMillis(), player.getUniqueId(), player.getName(), player.getWorld().getName(), itemName, action, banData));
+    }
+
+    /**
+     * Search the records in a time range.
+     * This reads files, and should not be called on the main thread.
+     * @param from the range start, in milliseconds
+     * @param to the range end, in milliseconds
+     * @param player a player name or uuid to filter, null for all players
+     * @param limit the maximum amount of records kept <i>(the latest ones)</i>
+     * @return the search result
+     * @throws IOException if a file can not be read
+     */
+    @NotNull
+    public SearchResult search(final long from, final long to, @Nullable final String player, final int limit) throws IOException {
+        final SearchResult result = new SearchResult(limit);
+        final List<Map.Entry<Long, File>> files = getFiles();
+        for (int i = 0; i < files.size(); i++) {
+            final long start = files.get(i).getKey();
+            final long end = i + 1 < files.size() ? files.get(i + 1).getKey() : Long.MAX_VALUE;
+            if (start > to + ORDER_TOLERANCE || end < from - ORDER_TOLERANCE) continue; // not covering the range
+            read(files.get(i).getValue(), from, to, player, result);
+        }
+        return result;
+    }
+
+    private static void read(@NotNull final File file, final long from, final long to, @Nullable final String player, @NotNull final SearchResult result) throws IOException {
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final DenialRecord record = DenialRecord.fromJson(line);
+                if (record == null) continue;
+                if (record.getTime() > to + ORDER_TOLERANCE) return; // past the range
+                if (record.getTime() < from || record.getTime() > to) continue;
+                if (player != null && !player.equalsIgnoreCase(record.getPlayerName()) && !player.equalsIgnoreCase(record.getUuid().toString())) continue;
+                result.add(record);
+            }
+        } catch (final EOFException e) {
+            // file currently written, reading up to the last flush
+        }
+    }
+
+    /**
+     * @return the audit files with their start time, sorted by start time
+     */
+    @NotNull
+    private List<Map.Entry<Long, File>> getFiles() {
+        final File[] files = folder.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) return Collections.emptyList();
+        final List<Map.Entry<Long, File>> list = new ArrayList<>();
+        final SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT);
+        for (final File file : files) {
+            final String name = file.getName();
+            try {
+                list.add(new AbstractMap.SimpleImmutableEntry<>(format.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length())).getTime(), file));
+            } catch (final ParseException | IndexOutOfBoundsException e) {
+                // not an audit file
+            }
+        }
+        list.sort(Map.Entry.comparingByKey());
+        return list;
+    }
+
+    /**
+     * Result of a search: the total amount of matching records, and the latest ones
+     */
+    public static final class SearchResult {
+        private final int limit;
+        private final Deque<DenialRecord> records = new ArrayDeque<>();
+        private int total = 0;
+
+        private SearchResult(final int limit) {
+            this.limit = Math.max(0, limit);
+        }
+
+        private void add(@NotNull final DenialRecord record) {
+            total++;
+            if (limit == 0) return;
+            if (records.size() == limit) records.pollFirst();
+            records.addLast(record);
+        }
+
+        /**
+         * @return the latest matching records, oldest first
+         */
+        @NotNull
+        public List<DenialRecord> getRecords() {
+            return new ArrayList<>(records);
+        }
+
+        /**
+         * @return the total amount of matching records
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * Background thread draining the ring buffer into the audit files
+     */
+    private final class AuditWriter extends Thread {
+        private final DenialRing ring;
+        private final long maxBytes;
+        private final long rotateMillis;
+        private final int maxFiles;
+        private volatile boolean running = true;
+        private OutputStream out;
+        private long opened;
+        private long written;
+
+        private AuditWriter(@NotNull final DenialRing ring, final long maxBytes, final long rotateMillis, final int maxFiles) {
+            super("BanItem-Audit");
+            setDaemon(true);
+            this.ring = ring;
+            this.maxBytes = maxBytes;
+            this.rotateMillis = rotateMillis;
+            this.maxFiles = maxFiles;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final int drained = ring.drain(this::write, 4096);
+                    if (out != null) {
+                        if (drained > 0) out.flush(); // sync flush, readable by the searches
+                        if (written >= maxBytes || System.currentTimeMillis() - opened >= rotateMillis) close();
+                    }
+                    if (drained == 0) {
+                        if (!running && ring.isEmpty()) break;
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                    }
+                }
+            } catch (final IOException e) {
+                e.printStackTrace();
+            } finally {
+                try {
+                    close();
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void write(@NotNull final DenialRecord record) {
+            try {
+                if (out == null) open(record.getTime());
+                final byte[] bytes = (record.toJson() + '\n').getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                written += bytes.length;
+            } catch (final IOException e) {
+                e.printStackTrace(); // record lost, the next one will open a new file
+                try {
+                    close();
+                } catch (final IOException ignored) {
+                    out = null;
+                }
+            }
+        }
+
+        private void open(final long time) throws IOException {
+            if (!folder.exists() && !folder.mkdirs()) throw new IOException("Can not create the audit folder " + folder);
+            File file;
+            long name = time;
+            do {
+                file = new File(folder, PREFIX + new SimpleDateFormat(DATE_FORMAT).format(new Date(name++)) + SUFFIX);
+            } while (file.exists());
+            out = new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), 8192, true), 65536);
+            opened = System.currentTimeMillis();
+            written = 0;
+
+            // Removing the oldest files
+            final List<Map.Entry<Long, File>> files = getFiles();
+            for (int i = 0; i < files.size() - maxFiles; i++)
+                if (!files.get(i).getValue().delete()) files.get(i).getValue().deleteOnExit();
+        }
+
+        private void close() throws IOException {
+            if (out == null) return;
+            try {
+                out.close();
+            } finally {
+                out = null;
+            }
+        }
+    }
+}
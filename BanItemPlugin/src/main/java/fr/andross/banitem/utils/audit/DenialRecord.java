@@ -0,0 +1,257 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.audit;
+
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.actions.BanData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * An immutable record of a denied action.
+ * The ban data are only formatted when needed, outside of the main thread.
+ * @version 3.4
+ * @author Andross
+ */
+public final class DenialRecord {
+    private final long time;
+    private final UUID uuid;
+    private final String playerName;
+    private final String world;
+    private final String itemName;
+    private final BanAction action;
+    private final BanData[] banData;
+    private List<String> data;
+
+    /**
+     * Create a record of a denied action
+     * @param time the time of the denial, in milliseconds
+     * @param uuid the player uuid
+     * @param playerName the player name
+     * @param world the world name
+     * @param itemName the item name
+     * @param action the denied action
+     * @param banData the ban data of the check, if any
+     */
+    public DenialRecord(final long time, @NotNull final UUID uuid, @NotNull final String playerName, @NotNull final String world,
+                        @NotNull final String itemName, @NotNull final BanAction action, @Nullable final BanData[] banData) {
+        this.time = time;
+        this.uuid = uuid;
+        this.playerName = playerName;
+        this.world = world;
+        this.itemName = itemName;
+        this.action = action;
+        this.banData = banData;
+    }
+
+    private DenialRecord(final long time, @NotNull final UUID uuid, @NotNull final String playerName, @NotNull final String world,
+                         @NotNull final String itemName, @NotNull final BanAction action, @NotNull final List<String> data) {
+        this(time, uuid, playerName, world, itemName, action, (BanData[]) null);
+        this.data = data;
+    }
+
+    /**
+     * @return the time of the denial, in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the player uuid
+     */
+    @NotNull
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * @return the player name
+     */
+    @NotNull
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * @return the world name
+     */
+    @NotNull
+    public String getWorld() {
+        return world;
+    }
+
+    /**
+     * @return the item name
+     */
+    @NotNull
+    public String getItemName() {
+        return itemName;
+    }
+
+    /**
+     * @return the denied action
+     */
+    @NotNull
+    public BanAction getAction() {
+        return action;
+    }
+
+    /**
+     * @return the ban data of the check, formatted as <i>type=value</i>
+     */
+    @NotNull
+    public List<String> getData() {
+        if (data == null) {
+            if (banData == null || banData.length == 0)
+                data = Collections.emptyList();
+            else {
+                final List<String> list = new ArrayList<>(banData.length);
+                for (final BanData d : banData)
+                    if (d != null) list.add(d.getType().name().toLowerCase(Locale.ROOT) + "=" + d.getObject());
+                data = Collections.unmodifiableList(list);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * @return this record as a single line JSON object
+     */
+    @NotNull
+    public String toJson() {
+        final StringBuilder sb = new StringBuilder(160);
+        sb.append("{\"t\":").append(time);
+        string(sb.append(",\"uuid\":"), uuid.toString());
+        string(sb.append(",\"player\":"), playerName);
+        string(sb.append(",\"world\":"), world);
+        string(sb.append(",\"item\":"), itemName);
+        string(sb.append(",\"action\":"), action.name());
+        sb.append(",\"data\":[");
+        final List<String> list = getData();
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) sb.append(',');
+            string(sb, list.get(i));
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static void string(@NotNull final StringBuilder sb, @NotNull final String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Parse a record written by {@link #toJson()}
+     * @param line the JSON line
+     * @return the record, or null if the line is malformed
+     */
+    @Nullable
+    public static DenialRecord fromJson(@NotNull final String line) {
+        try {
+            final Map<String, Object> values = new HashMap<>();
+            final int[] pos = { skip(line, 0) };
+            expect(line, pos, '{');
+            while (true) {
+                pos[0] = skip(line, pos[0]);
+                if (line.charAt(pos[0]) == '}') break;
+                final String key = parseString(line, pos);
+                pos[0] = skip(line, pos[0]);
+                expect(line, pos, ':');
+                pos[0] = skip(line, pos[0]);
+                final char c = line.charAt(pos[0]);
+                if (c == '"') values.put(key, parseString(line, pos));
+                else if (c == '[') {
+                    pos[0]++;
+                    final List<String> list = new ArrayList<>();
+                    while (true) {
+                        pos[0] = skip(line, pos[0]);
+                        if (line.charAt(pos[0]) == ']') { pos[0]++; break; }
+                        list.add(parseString(line, pos));
+                        pos[0] = skip(line, pos[0]);
+                        if (line.charAt(pos[0]) == ',') pos[0]++;
+                    }
+                    values.put(key, list);
+                } else {
+                    final int start = pos[0];
+                    while (pos[0] < line.length() && "-0123456789".indexOf(line.charAt(pos[0])) >= 0) pos[0]++;
+                    values.put(key, Long.parseLong(line.substring(start, pos[0])));
+                }
+                pos[0] = skip(line, pos[0]);
+                if (line.charAt(pos[0]) == ',') pos[0]++;
+            }
+
+            @SuppressWarnings("unchecked")
+            final List<String> data = values.containsKey("data") ? (List<String>) values.get("data") : Collections.emptyList();
+            return new DenialRecord((Long) values.get("t"), UUID.fromString((String) values.get("uuid")), (String) values.get("player"),
+                    (String) values.get("world"), (String) values.get("item"), BanAction.valueOf((String) values.get("action")), Collections.unmodifiableList(data));
+        } catch (final RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int skip(@NotNull final String line, int i) {
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) i++;
+        return i;
+    }
+
+    private static void expect(@NotNull final String line, @NotNull final int[] pos, final char c) {
+        if (line.charAt(pos[0]) != c) throw new IllegalArgumentException("Expected " + c + " at " + pos[0]);
+        pos[0]++;
+    }
+
+    @NotNull
+    private static String parseString(@NotNull final String line, @NotNull final int[] pos) {
+        expect(line, pos, '"');
+        final StringBuilder sb = new StringBuilder();
+        while (true) {
+            final char c = line.charAt(pos[0]++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            final char e = line.charAt(pos[0]++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(line.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default: sb.append(e);
+            }
+        }
+    }
+}
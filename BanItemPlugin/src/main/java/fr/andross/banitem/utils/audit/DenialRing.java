@@ -0,0 +1,107 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.audit;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A bounded lock-free ring buffer, with multiple producers and a single consumer.
+ * Producers never block: when the buffer is full, the record is dropped and counted.
+ * @version 3.4
+ * @author Andross
+ */
+public final class DenialRing {
+    private final AtomicReferenceArray<DenialRecord> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // next slot to claim
+    private volatile long head = 0; // next slot to consume, only written by the consumer
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Create a ring buffer
+     * @param capacity the minimum capacity, rounded up to a power of two
+     */
+    public DenialRing(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Add a record, without blocking
+     * @param record the record
+     * @return true if added, false if the buffer was full
+     */
+    public boolean offer(@NotNull final DenialRecord record) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head > mask) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        slots.lazySet((int) (t & mask), record);
+        return true;
+    }
+
+    /**
+     * Consume the published records, in order.
+     * Must only be called by a single thread.
+     * @param consumer the records consumer
+     * @param max the maximum amount of records consumed
+     * @return the amount of records consumed
+     */
+    public int drain(@NotNull final Consumer<DenialRecord> consumer, final int max) {
+        long h = head;
+        int n = 0;
+        try {
+            while (n < max) {
+                final int i = (int) (h & mask);
+                final DenialRecord record = slots.get(i);
+                if (record == null) break; // not published yet
+                slots.lazySet(i, null);
+                h++;
+                n++;
+                consumer.accept(record);
+            }
+        } finally {
+            head = h;
+        }
+        return n;
+    }
+
+    /**
+     * @return if no record is waiting to be consumed
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * @return the amount of records dropped because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.audit;
+
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.actions.BanData;
+import fr.andross.banitem.events.BanItemDenialsEvent;
+import fr.andross.banitem.utils.scheduler.TaskExecutor;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the denials into a lock-free ring buffer while {@link BanItemDenialsEvent} has listeners,
+ * and delivers them each tick as a single asynchronous event.
+ * A single batch is delivered at a time: while the listeners handle it, the denials stay in the buffer.
+ * @version 3.4
+ * @author Andross
+ */
+public final class DenialsNotifier {
+    private static final int CAPACITY = 8192;
+    private final TaskExecutor executor;
+    private final DenialRing ring = new DenialRing(CAPACITY);
+    private volatile boolean delivering;
+    private TaskExecutor.Task task;
+
+    /**
+     * Create a denials notifier
+     * @param executor the task executor
+     */
+    public DenialsNotifier(@NotNull final TaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * (re)Start delivering the collected denials each tick
+     */
+    public void start() {
+        stop();
+        delivering = false; // a pending delivery may have been cancelled with the plugin tasks
+        task = executor.runTimer(this::deliver, 1L, 1L);
+    }
+
+    /**
+     * Stop delivering the collected denials.
+     * The denials not yet delivered are kept for the next start.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * @return if the denials are currently collected
+     */
+    public boolean isEnabled() {
+        return BanItemDenialsEvent.hasListeners();
+    }
+
+    /**
+     * Collect a denied action, if {@link BanItemDenialsEvent} has listeners.
+     * This never blocks: if the buffer is full, the denial is dropped.
+     * @param player the player
+     * @param itemName the item name
+     * @param action the denied action
+     * @param banData the ban data of the check, if any
+     */
+    public void record(@NotNull final Player player, @NotNull final String itemName, @NotNull final BanAction action, @Nullable final BanData[] banData) {
+        if (!BanItemDenialsEvent.hasListeners()) return;
+        ring.offer(new DenialRecord(System.currentTimeMillis(), player.getUniqueId(), player.getName(), player.getWorld().getName(), itemName, action, banData));
+    }
+
+    private void deliver() {
+        if (delivering || ring.isEmpty()) return;
+        final List<DenialRecord> denials = new ArrayList<>();
+        ring.drain(denials::add, CAPACITY);
+        delivering = true;
+        executor.runAsync(() -> {
+            try {
+                Bukkit.getPluginManager().callEvent(new BanItemDenialsEvent(Collections.unmodifiableList(denials), ring.getDropped()));
+            } catch (final Exception e) {
+                e.printStackTrace();
+            } finally {
+                delivering = false;
+            }
+        });
+    }
+}
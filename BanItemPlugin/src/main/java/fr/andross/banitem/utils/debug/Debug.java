@@ -41,7 +41,7 @@ import java.util.stream.Collectors;
 /**
  * A debug class, which can handle and display the nodes
  * Mainly used when loading the plugin, to display any error
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public final class Debug implements Cloneable {
@@ -203,7 +203,7 @@ public final class Debug implements Cloneable {
      * Send this debug message to the sender
      */
     public void sendDebug() {
-        if (!banConfig.getConfig().getBoolean("debug.errors"))
+        if (!banConfig.getSettings().isDebugErrors())
             sender.sendMessage(sender instanceof Player ? getSimpleDebug() : Chat.uncolor(getSimpleDebug()));
         else {
             if (sender instanceof Player) getBetterDebug().forEach(sender::sendMessage);
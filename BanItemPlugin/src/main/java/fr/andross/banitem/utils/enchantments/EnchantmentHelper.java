@@ -24,15 +24,19 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * An enchantment helper class to retrieve correct Bukkit enchantments object across versions
- * @version 3.3.1
+ * @version 3.4
  * @author Andross
  */
 public final class EnchantmentHelper {
     private static final Map<String, String> names = new HashMap<>();
+    private static final Map<Object, Integer> indexes = new ConcurrentHashMap<>(); // >=1.13: Enchantment, <1.13 String
+    private static final AtomicInteger nextIndex = new AtomicInteger();
 
     static {
         add("water_worker", "aqua_affinity", "aquaaffinity", "aa");
@@ -67,6 +71,26 @@ public final class EnchantmentHelper {
             names.put(friendlyName, bukkitName);
     }
 
+    /**
+     * Get the dense index of an enchantment, creating it if needed.
+     * Indexes are created while loading the enchantments of the configurations.
+     * @param enchantment the enchantment
+     * @return the dense index of the enchantment
+     */
+    public static int index(@NotNull final Enchantment enchantment) {
+        return indexes.computeIfAbsent(BanVersion.v13OrMore ? enchantment : enchantment.getName(), k -> nextIndex.getAndIncrement());
+    }
+
+    /**
+     * Get the dense index of an enchantment
+     * @param enchantment the enchantment
+     * @return the dense index of the enchantment, -1 if it was never indexed
+     */
+    public static int getIndex(@NotNull final Enchantment enchantment) {
+        final Integer index = indexes.get(BanVersion.v13OrMore ? enchantment : enchantment.getName());
+        return index == null ? -1 : index;
+    }
+
     /**
      * Try to get an {@link Enchantment} object by the name
      * @param name name of the enchantment
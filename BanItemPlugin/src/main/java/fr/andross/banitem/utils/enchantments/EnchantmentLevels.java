@@ -0,0 +1,193 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.enchantments;
+
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * An immutable set of enchantments levels, indexed by the dense enchantment indexes
+ * of {@link EnchantmentHelper#getIndex(Enchantment)}.
+ * Checking an enchantments map against it does not allocate anything, and checking an item meta
+ * reads the level of each contained enchantment without copying the enchantments of the meta.
+ * @version 3.4
+ * @author Andross
+ */
+public final class EnchantmentLevels {
+    private static final int[] NONE = new int[0];
+    private final BitSet anyLevel; // enchantments matching whatever the level is
+    private final int[][] intervals; // per index: [min0, max0, min1, max1...], inclusive
+    private final Enchantment[] enchantments; // contained enchantments
+    private final int[] indexes; // their dense indexes
+
+    private EnchantmentLevels(@NotNull final Builder builder) {
+        enchantments = builder.enchantments.toArray(new Enchantment[0]);
+        indexes = new int[enchantments.length];
+        for (int i = 0; i < enchantments.length; i++)
+            indexes[i] = EnchantmentHelper.getIndex(enchantments[i]);
+        anyLevel = (BitSet) builder.anyLevel.clone();
+        intervals = new int[builder.intervals.size()][];
+        for (int i = 0; i < intervals.length; i++) {
+            final List<int[]> list = builder.intervals.get(i);
+            if (list == null) {
+                intervals[i] = NONE;
+                continue;
+            }
+            intervals[i] = new int[list.size() * 2];
+            for (int j = 0; j < list.size(); j++) {
+                intervals[i][j * 2] = list.get(j)[0];
+                intervals[i][j * 2 + 1] = list.get(j)[1];
+            }
+        }
+    }
+
+    /**
+     * Create an enchantment levels object from a set of enchantment wrappers (specific levels)
+     * @param wrappers the enchantment wrappers
+     * @return the enchantment levels object
+     */
+    @NotNull
+    public static EnchantmentLevels from(@NotNull final Collection<EnchantmentWrapper> wrappers) {
+        final Builder builder = new Builder();
+        for (final EnchantmentWrapper wrapper : wrappers)
+            builder.add(wrapper.getEnchantment(), wrapper.getLevel(), wrapper.getLevel());
+        return builder.build();
+    }
+
+    /**
+     * Check if the enchantment with the level is contained
+     * @param index the dense enchantment index
+     * @param level the level
+     * @return true if contained, otherwise false
+     */
+    public boolean contains(final int index, final int level) {
+        if (index < 0) return false;
+        if (anyLevel.get(index)) return true;
+        if (index >= intervals.length) return false;
+        final int[] interval = intervals[index];
+        for (int i = 0; i < interval.length; i += 2)
+            if (level >= interval[i] && level <= interval[i + 1]) return true;
+        return false;
+    }
+
+    /**
+     * Check if at least one enchantment of the map is contained
+     * @param enchantments the enchantments map, can be null
+     * @return true if at least one enchantment is contained, otherwise false
+     */
+    public boolean containsAny(@Nullable final Map<Enchantment, Integer> enchantments) {
+        if (enchantments == null || enchantments.isEmpty()) return false;
+        for (final Map.Entry<Enchantment, Integer> e : enchantments.entrySet())
+            if (contains(EnchantmentHelper.getIndex(e.getKey()), e.getValue())) return true;
+        return false;
+    }
+
+    /**
+     * Check if at least one enchantment of the item meta is contained
+     * @param itemMeta the item meta, can be null
+     * @return true if at least one enchantment is contained, otherwise false
+     */
+    public boolean containsAny(@Nullable final ItemMeta itemMeta) {
+        if (itemMeta == null || !itemMeta.hasEnchants()) return false;
+        for (int i = 0; i < enchantments.length; i++) {
+            final int level = itemMeta.getEnchantLevel(enchantments[i]);
+            if (level > 0 && contains(indexes[i], level)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check if at least one stored enchantment of the item meta (enchanted books) is contained
+     * @param itemMeta the item meta, can be null
+     * @return true if at least one stored enchantment is contained, otherwise false
+     */
+    public boolean containsAnyStored(@Nullable final ItemMeta itemMeta) {
+        if (!(itemMeta instanceof EnchantmentStorageMeta)) return false;
+        final EnchantmentStorageMeta meta = (EnchantmentStorageMeta) itemMeta;
+        if (!meta.hasStoredEnchants()) return false;
+        for (int i = 0; i < enchantments.length; i++) {
+            final int level = meta.getStoredEnchantLevel(enchantments[i]);
+            if (level > 0 && contains(indexes[i], level)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final EnchantmentLevels that = (EnchantmentLevels) o;
+        return anyLevel.equals(that.anyLevel) && Arrays.deepEquals(intervals, that.intervals);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * anyLevel.hashCode() + Arrays.deepHashCode(intervals);
+    }
+
+    /**
+     * Builder of enchantment levels
+     */
+    public static final class Builder {
+        private final Set<Enchantment> enchantments = new LinkedHashSet<>();
+        private final BitSet anyLevel = new BitSet();
+        private final List<List<int[]>> intervals = new ArrayList<>();
+
+        /**
+         * Add an enchantment, whatever its level
+         * @param enchantment the enchantment
+         * @return this builder
+         */
+        @NotNull
+        public Builder add(@NotNull final Enchantment enchantment) {
+            anyLevel.set(EnchantmentHelper.index(enchantment));
+            enchantments.add(enchantment);
+            return this;
+        }
+
+        /**
+         * Add an enchantment within the levels interval
+         * @param enchantment the enchantment
+         * @param min the minimum level, inclusive
+         * @param max the maximum level, inclusive
+         * @return this builder
+         */
+        @NotNull
+        public Builder add(@NotNull final Enchantment enchantment, final int min, final int max) {
+            final int index = EnchantmentHelper.index(enchantment);
+            while (intervals.size() <= index) intervals.add(null);
+            if (intervals.get(index) == null) intervals.set(index, new ArrayList<>());
+            intervals.get(index).add(new int[]{ min, max });
+            enchantments.add(enchantment);
+            return this;
+        }
+
+        /**
+         * @return a new immutable enchantment levels object
+         */
+        @NotNull
+        public EnchantmentLevels build() {
+            return new EnchantmentLevels(this);
+        }
+    }
+}
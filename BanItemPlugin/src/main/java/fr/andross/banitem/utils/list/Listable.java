@@ -36,22 +36,22 @@ import org.bukkit.event.inventory.InventoryType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * A powerful listable class which will attempt to create List object from gived data.
  * Mainly used to load configurations.
- * @version 3.1
+ * @version 3.4
  * @author Andross
  */
 public final class Listable {
+    private static final Map<String, List<Material>> regexMaterials = new ConcurrentHashMap<>(); // regex -> matching materials
+    private static final Set<String> usedRegexes = ConcurrentHashMap.newKeySet(); // regexes requested since the last load
+
     /**
      * @param string string to split
      * @return a list of splitted string
@@ -201,6 +201,37 @@ public final class Listable {
         return worlds;
     }
 
+    /**
+     * Check if a world is included by a world key, as resolved by {@link #getWorlds(Object, Debug)}.
+     * This is used for the worlds loaded after the plugin.
+     * @param obj world key
+     * @param worldName name of the world
+     * @return true if the world key includes this world, otherwise false
+     */
+    public static boolean matchesWorld(@NotNull final Object obj, @NotNull final String worldName) {
+        boolean matches = false;
+        for (final String key : getSplittedStringList(obj).stream().map(Chat::uncolor).collect(Collectors.toList())) {
+            // Regex?
+            if (key.startsWith("#")) {
+                try {
+                    if (Pattern.compile(key.substring(1)).matcher(worldName).find()) matches = true;
+                } catch (final PatternSyntaxException e) {
+                    // ignored, already debugged when loading
+                }
+                continue;
+            }
+
+            if (key.equals("*")) {
+                matches = true;
+                continue;
+            }
+
+            final boolean remove = key.startsWith("!");
+            if ((remove ? key.substring(1) : key).equalsIgnoreCase(worldName)) matches = !remove;
+        }
+        return matches;
+    }
+
     /**
      * Trying to get a list of materials
      * If there is any error, this will be debugged
@@ -226,7 +257,7 @@ public final class Listable {
                     continue;
                 }
                 // Getting materials
-                Arrays.stream(Material.values()).filter(m -> pattern.matcher(m.name()).find()).forEach(materials::add);
+                materials.addAll(getRegexMaterials(pattern));
                 continue;
             }
 
@@ -252,6 +283,39 @@ public final class Listable {
         return materials;
     }
 
+    /**
+     * Get the materials whose name matches the regex.
+     * The result is computed once per regex, and saved in the database snapshot.
+     * @param pattern the regex
+     * @return an immutable list of the matching materials
+     */
+    @NotNull
+    public static List<Material> getRegexMaterials(@NotNull final Pattern pattern) {
+        usedRegexes.add(pattern.pattern());
+        return regexMaterials.computeIfAbsent(pattern.pattern(), k -> Collections.unmodifiableList(Arrays.stream(Material.values())
+                .filter(m -> pattern.matcher(m.name()).find())
+                .collect(Collectors.toList())));
+    }
+
+    /**
+     * Get the materials regexes already computed
+     * @return the map of the regexes and their matching materials
+     */
+    @NotNull
+    public static Map<String, List<Material>> getRegexMaterials() {
+        return regexMaterials;
+    }
+
+    /**
+     * Get the regexes requested since the last load.
+     * Cleared by the database snapshot when the database is loaded, to forget the regexes no longer used.
+     * @return the mutable set of the used regexes
+     */
+    @NotNull
+    public static Set<String> getUsedRegexes() {
+        return usedRegexes;
+    }
+
     /**
      * Trying to get a list of type
      * If there is any error, this will be debugged
@@ -286,9 +350,7 @@ public final class Listable {
                         .filter(e -> pattern.matcher(e.getKey()).find())
                         .forEach(e -> items.add(e.getValue()));
                 // Getting from materials
-                Stream.of(Material.values())
-                        .filter(m -> pattern.matcher(m.name()).find())
-                        .forEach(m -> items.add(new BannedItem(m)));
+                for (final Material m : getRegexMaterials(pattern)) items.add(new BannedItem(m));
                 continue;
             }
 
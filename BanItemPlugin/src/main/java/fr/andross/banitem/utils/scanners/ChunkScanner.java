@@ -0,0 +1,399 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.scanners;
+
+import fr.andross.banitem.BanDatabase;
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.database.Blacklist;
+import fr.andross.banitem.database.items.Items;
+import fr.andross.banitem.items.BannedItem;
+import fr.andross.banitem.utils.BanVersion;
+import fr.andross.banitem.utils.Utils;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.inventory.EntityEquipment;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scanner of the containers <i>(chests, shulker boxes, hoppers...)</i> and entities <i>(item frames,
+ * armor stands, storage minecarts...)</i> of the loaded chunks, removing the items blacklisted with the delete action.
+ * When a chunk loads, only the items which can be banned in the world are copied, by the thread owning the chunk.
+ * In 1.17+, the entities are loaded separately and scanned when they load.
+ * They are then checked by the scanner worker threads against the world blacklist: only the constant verdicts,
+ * the materials and the meta items. The banned ones, and the ones of a material used by a custom item, are sent back
+ * to the thread owning them through {@link EnforcementScheduler} jobs, run within its time budget: the banned items are
+ * removed if they did not change in the meantime, the others are matched against the custom items there.
+ * The amount of chunks waiting to be checked is bounded: the chunks loaded while it is reached are not scanned.
+ * @version 3.4
+ * @author Andross
+ */
+@SuppressWarnings("deprecation")
+public final class ChunkScanner {
+    private static final int HAND = -1, OFF_HAND = -2; // armor stand hands slots, armor slots being 0-3
+    private final BanItem pl;
+    private final EnforcementScheduler enforcement;
+    private ExecutorService workers; // null if disabled
+    private volatile AtomicInteger pending = new AtomicInteger(); // chunks waiting to be checked, renewed on each load
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private volatile int maxPending;
+
+    public ChunkScanner(@NotNull final BanItem pl, @NotNull final EnforcementScheduler enforcement) {
+        this.pl = pl;
+        this.enforcement = enforcement;
+    }
+
+    /**
+     * (re)Load the scanner.
+     * The tasks of the plugin being cancelled while reloading, the pending chunks are forgotten:
+     * a new counter is used, the checks still running only releasing the previous one.
+     * The worker threads are stopped, and new ones are started if enabled.
+     * @param enabled if the loaded chunks should be scanned
+     * @param maxPending the maximum amount of chunks waiting to be checked
+     * @param threads the amount of worker threads checking the chunks
+     */
+    public synchronized void load(final boolean enabled, final int maxPending, final int threads) {
+        stop();
+        pending = new AtomicInteger();
+        if (!enabled) return;
+        final AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            final Thread thread = new Thread(r, "BanItem-ChunkScanner-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxPending = Math.max(1, maxPending);
+    }
+
+    /**
+     * Stop scanning the chunks, and the worker threads
+     */
+    public synchronized void stop() {
+        maxPending = 0;
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+    }
+
+    /**
+     * @return if the loaded chunks are scanned
+     */
+    public boolean isEnabled() {
+        return maxPending > 0;
+    }
+
+    /**
+     * Scan a loaded chunk: its containers, and its entities before 1.17.
+     * Must be called by the thread owning the chunk.
+     * @param chunk the chunk
+     */
+    public void scan(@NotNull final Chunk chunk) {
+        final World world = chunk.getWorld();
+        final BanDatabase database = pl.getBanDatabase();
+        if (!isScanned(world, database)) return;
+        final List<Target> targets = new ArrayList<>();
+        for (final BlockState state : chunk.getTileEntities())
+            if (state instanceof InventoryHolder)
+                add(targets, new ContainerTarget(state.getLocation()), ((InventoryHolder) state).getInventory().getContents(), world, database);
+        if (!BanVersion.v17OrMore) addEntities(targets, chunk.getEntities(), world, database);
+        submit(world, targets);
+    }
+
+    /**
+     * Scan the entities loaded in a chunk, in 1.17+.
+     * Must be called by the thread owning the chunk.
+     * @param world the world
+     * @param entities the loaded entities
+     */
+    public void scan(@NotNull final World world, @NotNull final List<Entity> entities) {
+        final BanDatabase database = pl.getBanDatabase();
+        if (!isScanned(world, database)) return;
+        final List<Target> targets = new ArrayList<>();
+        addEntities(targets, entities.toArray(new Entity[0]), world, database);
+        submit(world, targets);
+    }
+
+    private boolean isScanned(@NotNull final World world, @NotNull final BanDatabase database) {
+        if (maxPending <= 0 || database.getBlacklist().get(world) == null || !database.hasCandidates(world, BanAction.DELETE)) return false;
+        if (pending.get() >= maxPending) { // full, not copying anything
+            skipped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void addEntities(@NotNull final List<Target> targets, @NotNull final Entity[] entities, @NotNull final World world, @NotNull final BanDatabase database) {
+        for (final Entity entity : entities) {
+            if (entity instanceof ItemFrame)
+                add(targets, new EntityTarget(entity), new ItemStack[] { ((ItemFrame) entity).getItem() }, world, database);
+            else if (entity instanceof ArmorStand) {
+                final EntityTarget target = new EntityTarget(entity);
+                final EntityEquipment equipment = ((ArmorStand) entity).getEquipment();
+                if (equipment == null) continue;
+                add(target, equipment.getArmorContents(), world, database);
+                add(target, HAND, equipment.getItemInHand(), world, database);
+                if (BanVersion.v9OrMore) add(target, OFF_HAND, equipment.getItemInOffHand(), world, database);
+                if (!target.items.isEmpty()) targets.add(target);
+            } else if (entity instanceof InventoryHolder && !(entity instanceof HumanEntity))
+                add(targets, new EntityTarget(entity), ((InventoryHolder) entity).getInventory().getContents(), world, database);
+        }
+    }
+
+    private void submit(@NotNull final World world, @NotNull final List<Target> targets) {
+        scanned.increment();
+        if (targets.isEmpty()) return;
+
+        // Backpressure
+        final AtomicInteger pending = this.pending;
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            skipped.increment();
+            return;
+        }
+
+        // Checking by the worker threads
+        try {
+            final ExecutorService workers;
+            synchronized (this) {
+                workers = this.workers;
+            }
+            if (workers == null) throw new RejectedExecutionException();
+            workers.execute(() -> {
+                try {
+                    check(world, targets);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (final RejectedExecutionException e) { // stopped meanwhile
+            pending.decrementAndGet();
+        }
+    }
+
+    private void add(@NotNull final List<Target> targets, @NotNull final Target target, @NotNull final ItemStack[] contents, @NotNull final World world, @NotNull final BanDatabase database) {
+        add(target, contents, world, database);
+        if (!target.items.isEmpty()) targets.add(target);
+    }
+
+    private void add(@NotNull final Target target, @NotNull final ItemStack[] contents, @NotNull final World world, @NotNull final BanDatabase database) {
+        for (int i = 0; i < contents.length; i++) add(target, i, contents[i], world, database);
+    }
+
+    private void add(@NotNull final Target target, final int slot, @Nullable final ItemStack item, @NotNull final World world, @NotNull final BanDatabase database) {
+        if (!Utils.isNullOrAir(item) && database.isCandidate(world, item.getType(), BanAction.DELETE))
+            target.items.put(slot, item.clone());
+    }
+
+    /**
+     * Check the copied items, by a worker thread.
+     * The items of a material used by a custom item are not matched here, but by the thread owning them.
+     */
+    private void check(@NotNull final World world, @NotNull final List<Target> targets) {
+        final Blacklist blacklist = pl.getBanDatabase().getBlacklist();
+        final Items items = blacklist.get(world);
+        if (items == null) return;
+        for (final Target target : targets) {
+            final Map<Integer, ItemStack> banned = new HashMap<>(), custom = new HashMap<>();
+            for (final Map.Entry<Integer, ItemStack> e : target.items.entrySet()) {
+                final ItemStack item = e.getValue();
+                if (items.isCustomCandidate(item.getType())) custom.put(e.getKey(), item);
+                else if (blacklist.isBlacklisted(world, new BannedItem(item), BanAction.DELETE)) banned.put(e.getKey(), item); // constant verdict, material or meta item
+            }
+            if (!banned.isEmpty() || !custom.isEmpty()) target.submit(enforcement, () -> remove(world, target, banned, custom));
+        }
+    }
+
+    /**
+     * Remove the banned items, by the thread owning the target.
+     * The items of a material used by a custom item are checked here, with all the custom items.
+     */
+    private void remove(@NotNull final World world, @NotNull final Target target, @NotNull final Map<Integer, ItemStack> banned, @NotNull final Map<Integer, ItemStack> custom) {
+        if (!target.prepare()) return;
+        for (final Map.Entry<Integer, ItemStack> e : banned.entrySet())
+            if (e.getValue().equals(target.get(e.getKey()))) { // not changed in the meantime
+                target.clear(e.getKey());
+                removed.increment();
+            }
+        if (custom.isEmpty()) return;
+        final Blacklist blacklist = pl.getBanDatabase().getBlacklist();
+        for (final Map.Entry<Integer, ItemStack> e : custom.entrySet()) {
+            final ItemStack item = target.get(e.getKey());
+            if (e.getValue().equals(item) && blacklist.isBlacklisted(world, new BannedItem(item), BanAction.DELETE)) {
+                target.clear(e.getKey());
+                removed.increment();
+            }
+        }
+    }
+
+    /**
+     * @return the amount of chunks scanned
+     */
+    public long getScanned() {
+        return scanned.sum();
+    }
+
+    /**
+     * @return the amount of chunks not scanned, because too many chunks were waiting to be checked
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * @return the amount of items removed
+     */
+    public long getRemoved() {
+        return removed.sum();
+    }
+
+    /**
+     * The holder of the scanned items, with the copies of its candidate items per slot
+     */
+    private abstract static class Target {
+        final Map<Integer, ItemStack> items = new HashMap<>();
+
+        abstract void submit(@NotNull EnforcementScheduler enforcement, @NotNull Runnable job);
+
+        abstract boolean prepare();
+
+        @Nullable
+        abstract ItemStack get(int slot);
+
+        abstract void clear(int slot);
+    }
+
+    /**
+     * A container block
+     */
+    private static final class ContainerTarget extends Target {
+        private final Location location;
+        private Inventory inventory;
+
+        private ContainerTarget(@NotNull final Location location) {
+            this.location = location;
+        }
+
+        @Override
+        void submit(@NotNull final EnforcementScheduler enforcement, @NotNull final Runnable job) {
+            enforcement.submit(EnforcementScheduler.Priority.LOW, location, job);
+        }
+
+        @Override
+        boolean prepare() {
+            final World world = location.getWorld();
+            if (world == null || !world.isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)) return false;
+            final BlockState state = location.getBlock().getState();
+            if (!(state instanceof InventoryHolder)) return false;
+            inventory = ((InventoryHolder) state).getInventory();
+            return true;
+        }
+
+        @Nullable
+        @Override
+        ItemStack get(final int slot) {
+            return slot < inventory.getSize() ? inventory.getItem(slot) : null;
+        }
+
+        @Override
+        void clear(final int slot) {
+            inventory.clear(slot);
+        }
+    }
+
+    /**
+     * An item frame, an armor stand, or an entity with an inventory
+     */
+    private static final class EntityTarget extends Target {
+        private final Entity entity;
+
+        private EntityTarget(@NotNull final Entity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        void submit(@NotNull final EnforcementScheduler enforcement, @NotNull final Runnable job) {
+            enforcement.submit(EnforcementScheduler.Priority.LOW, entity, job);
+        }
+
+        @Override
+        boolean prepare() {
+            return true; // the job is not run if the entity is removed
+        }
+
+        @Nullable
+        @Override
+        ItemStack get(final int slot) {
+            if (entity instanceof ItemFrame) return ((ItemFrame) entity).getItem();
+            if (entity instanceof ArmorStand) {
+                final EntityEquipment equipment = ((ArmorStand) entity).getEquipment();
+                if (equipment == null) return null;
+                if (slot == HAND) return equipment.getItemInHand();
+                if (slot == OFF_HAND) return equipment.getItemInOffHand();
+                final ItemStack[] armor = equipment.getArmorContents();
+                return slot < armor.length ? armor[slot] : null;
+            }
+            final Inventory inventory = ((InventoryHolder) entity).getInventory();
+            return slot < inventory.getSize() ? inventory.getItem(slot) : null;
+        }
+
+        @Override
+        void clear(final int slot) {
+            if (entity instanceof ItemFrame) {
+                ((ItemFrame) entity).setItem(new ItemStack(Material.AIR));
+                return;
+            }
+            if (entity instanceof ArmorStand) {
+                final EntityEquipment equipment = ((ArmorStand) entity).getEquipment();
+                if (equipment == null) return;
+                if (slot == HAND) equipment.setItemInHand(null);
+                else if (slot == OFF_HAND) equipment.setItemInOffHand(null);
+                else {
+                    final ItemStack[] armor = equipment.getArmorContents();
+                    armor[slot] = null;
+                    equipment.setArmorContents(armor);
+                }
+                return;
+            }
+            ((InventoryHolder) entity).getInventory().clear(slot);
+        }
+    }
+}
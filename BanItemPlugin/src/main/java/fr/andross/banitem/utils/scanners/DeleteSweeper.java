@@ -0,0 +1,237 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.scanners;
+
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.events.DeleteBannedItemEvent;
+import fr.andross.banitem.items.BannedItem;
+import fr.andross.banitem.utils.Chat;
+import fr.andross.banitem.utils.Utils;
+import fr.andross.banitem.utils.scheduler.TaskExecutor;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deferred sweeps of the items with the delete action.
+ * Inventory events only mark the slots they touch as dirty, and the dirty slots of each player
+ * are checked by a single job of the {@link EnforcementScheduler}, at the earliest on the next tick.
+ * Players without dirty slots are not checked.
+ * The slots of a player are only marked and swept by the thread owning the player.
+ * @version 3.4
+ * @author Andross
+ */
+public final class DeleteSweeper {
+    private final BanItem pl;
+    private final TaskExecutor executor;
+    private final EnforcementScheduler enforcement;
+    private final Map<UUID, Map<Inventory, BitSet>> dirty = new ConcurrentHashMap<>();
+
+    public DeleteSweeper(@NotNull final BanItem pl, @NotNull final TaskExecutor executor, @NotNull final EnforcementScheduler enforcement) {
+        this.pl = pl;
+        this.executor = executor;
+        this.enforcement = enforcement;
+    }
+
+    /**
+     * Mark the slots of the player inventory view holding an item of the same type as the checked one,
+     * for an item banned with the delete action while checking another action
+     * @param player the player
+     * @param item the checked item
+     */
+    public void markItem(@NotNull final Player player, @NotNull final BannedItem item) {
+        if (!executor.isOwnedByCurrentThread(player)) {
+            executor.run(player, () -> markItem(player, item));
+            return;
+        }
+        final InventoryView view = player.getOpenInventory();
+        if (isIgnored(view)) return;
+        markType(player, view.getTopInventory(), item.getType());
+        markType(player, view.getBottomInventory(), item.getType());
+    }
+
+    /**
+     * Mark all the slots of an inventory view as dirty, such as a view being opened or closed
+     * @param player the player
+     * @param view the inventory view
+     */
+    public void markView(@NotNull final Player player, @NotNull final InventoryView view) {
+        if (isIgnored(view)) return;
+        markInventory(player, view.getTopInventory());
+        markInventory(player, view.getBottomInventory());
+    }
+
+    /**
+     * Mark all the slots of the player own inventory as dirty, for the items added
+     * without any inventory view <i>(pickup, commands, plugins...)</i>
+     * @param player the player
+     */
+    public void markPlayerInventory(@NotNull final Player player) {
+        if (!executor.isOwnedByCurrentThread(player)) {
+            executor.run(player, () -> markPlayerInventory(player));
+            return;
+        }
+        markInventory(player, player.getInventory());
+    }
+
+    /**
+     * Mark the slots touched by an inventory click as dirty
+     * @param player the player
+     * @param e the inventory click event
+     */
+    public void markClick(@NotNull final Player player, @NotNull final InventoryClickEvent e) {
+        final InventoryView view = e.getView();
+        if (isIgnored(view)) return;
+        markRawSlot(player, view, e.getRawSlot());
+        if (e.getHotbarButton() >= 0) mark(player, view.getBottomInventory(), e.getHotbarButton());
+
+        // Shift click: the destination slot is unknown
+        if (e.getAction() == InventoryAction.MOVE_TO_OTHER_INVENTORY && e.getRawSlot() >= 0)
+            markInventory(player, e.getRawSlot() < view.getTopInventory().getSize() ? view.getBottomInventory() : view.getTopInventory());
+    }
+
+    /**
+     * Mark raw slots of an inventory view as dirty
+     * @param player the player
+     * @param view the inventory view
+     * @param rawSlots the raw slots
+     */
+    public void markRawSlots(@NotNull final Player player, @NotNull final InventoryView view, @NotNull final Collection<Integer> rawSlots) {
+        if (isIgnored(view)) return;
+        for (final int rawSlot : rawSlots) markRawSlot(player, view, rawSlot);
+    }
+
+    private void markRawSlot(@NotNull final Player player, @NotNull final InventoryView view, final int rawSlot) {
+        if (rawSlot < 0) return; // outside
+        final Inventory top = view.getTopInventory();
+        if (rawSlot < top.getSize()) mark(player, top, rawSlot);
+        else mark(player, view.getBottomInventory(), view.convertSlot(rawSlot));
+    }
+
+    private void markInventory(@NotNull final Player player, @NotNull final Inventory inventory) {
+        getSlots(player, inventory).set(0, inventory.getSize());
+    }
+
+    private void markType(@NotNull final Player player, @NotNull final Inventory inventory, @NotNull final Material type) {
+        for (int i = 0; i < inventory.getSize(); i++) {
+            final ItemStack item = inventory.getItem(i);
+            if (item != null && item.getType() == type) getSlots(player, inventory).set(i);
+        }
+    }
+
+    private void mark(@NotNull final Player player, @NotNull final Inventory inventory, final int slot) {
+        if (slot >= 0 && slot < inventory.getSize()) getSlots(player, inventory).set(slot);
+    }
+
+    @NotNull
+    private BitSet getSlots(@NotNull final Player player, @NotNull final Inventory inventory) {
+        final UUID uuid = player.getUniqueId();
+        Map<Inventory, BitSet> slots = dirty.get(uuid);
+        if (slots == null) {
+            // First dirty slot: the sweep job collects all the slots marked until it runs
+            slots = new HashMap<>();
+            dirty.put(uuid, slots);
+            enforcement.submit(EnforcementScheduler.Priority.NORMAL, player, () -> sweepDirty(uuid));
+        }
+        return slots.computeIfAbsent(inventory, k -> new BitSet(inventory.getSize()));
+    }
+
+    private boolean isIgnored(@NotNull final InventoryView view) {
+        final Set<String> titles = pl.getBanConfig().getIgnoredInventoryTitles();
+        return !titles.isEmpty() && titles.contains(Chat.uncolor(view.getTitle()));
+    }
+
+    /**
+     * Sweep the dirty slots of a player
+     * @param uuid the player uuid
+     */
+    private void sweepDirty(@NotNull final UUID uuid) {
+        final Map<Inventory, BitSet> slots = dirty.remove(uuid);
+        if (slots == null) return; // already swept, or cleared
+        final Player player = Bukkit.getPlayer(uuid);
+        if (player != null) sweep(player, slots, pl.getBanConfig().getSettings().isDeleteBannedItemEvent() && DeleteBannedItemEvent.hasListeners());
+    }
+
+    /**
+     * Check and delete the banned items in these slots
+     * @param player the player
+     * @param slots the slots to check, per inventory
+     * @param callEvent if the {@link DeleteBannedItemEvent} should be called
+     */
+    private void sweep(@NotNull final Player player, @NotNull final Map<Inventory, BitSet> slots, final boolean callEvent) {
+        // Op or all permissions?
+        if (player.isOp() || player.hasPermission("banitem.bypass.*")) return;
+
+        // Nothing banned in this world?
+        if (!pl.getBanDatabase().getBlacklist().containsKey(player.getWorld().getUID())) return;
+
+        final Location location = player.getLocation();
+        for (final Map.Entry<Inventory, BitSet> e : slots.entrySet()) {
+            final Inventory inv = e.getKey();
+            final BitSet set = e.getValue();
+            for (int i = set.nextSetBit(0); i >= 0 && i < inv.getSize(); i = set.nextSetBit(i + 1)) {
+                final ItemStack item = inv.getItem(i);
+                if (Utils.isNullOrAir(item)) continue;
+                final BannedItem bannedItem = new BannedItem(item);
+                if (pl.getApi().isBanned(player, location, bannedItem, BanAction.DELETE)) {
+                    if (callEvent) {
+                        final DeleteBannedItemEvent event = new DeleteBannedItemEvent(player, bannedItem);
+                        Bukkit.getPluginManager().callEvent(event);
+                        if (event.isCancelled()) continue;
+                    }
+                    inv.clear(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check and delete the banned items of the player inventory view, now
+     * @param player the player
+     */
+    public void sweepNow(@NotNull final Player player) {
+        final InventoryView view = player.getOpenInventory();
+        if (isIgnored(view)) return;
+        final Map<Inventory, BitSet> slots = new HashMap<>();
+        for (final Inventory inv : new Inventory[] { view.getTopInventory(), view.getBottomInventory() }) {
+            final BitSet set = new BitSet(inv.getSize());
+            set.set(0, inv.getSize());
+            slots.put(inv, set);
+        }
+        dirty.remove(player.getUniqueId());
+        sweep(player, slots, pl.getBanConfig().getSettings().isDeleteBannedItemEvent() && DeleteBannedItemEvent.hasListeners());
+    }
+
+    /**
+     * Forget all the dirty slots
+     */
+    public void clear() {
+        dirty.clear();
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.scanners;
+
+import fr.andross.banitem.utils.scheduler.TaskExecutor;
+import org.bukkit.Location;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Entity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Central scheduler of the enforcement jobs <i>(wear scans, delete sweeps, /bi check, brewing follow-ups...)</i>.
+ * The jobs are run on the main thread, by priority, within a global time budget per tick.
+ * The jobs which do not fit in the budget are carried over to the next tick,
+ * except the {@link Priority#HIGH} jobs, always all run on the tick following their submission.
+ * The drain task is only scheduled while jobs are waiting.
+ * On regionized servers, there is no single main thread: each job is run by the thread owning
+ * its entity or location, regions being ticked in parallel, and the budget does not apply.
+ * @version 3.4
+ * @author Andross
+ */
+public final class EnforcementScheduler {
+    private final TaskExecutor executor;
+    private final Queue<Runnable>[] queues;
+    private final Map<Object, Priority> pending = new ConcurrentHashMap<>(); // keys of the waiting jobs, with their priority
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final LongAdder run = new LongAdder();
+    private final LongAdder carried = new LongAdder();
+    private volatile long budget = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /**
+     * Priority of an enforcement job, the higher priorities being run first
+     */
+    public enum Priority {
+        /**
+         * Follow-ups of an event, which should be applied as soon as possible.
+         * Counted in the budget, but never carried over.
+         */
+        HIGH,
+        /**
+         * Checks triggered by the players actions
+         */
+        NORMAL,
+        /**
+         * Periodic or bulk scans
+         */
+        LOW
+    }
+
+    /**
+     * Create an enforcement scheduler
+     * @param executor the executor of the tasks
+     */
+    @SuppressWarnings("unchecked")
+    public EnforcementScheduler(@NotNull final TaskExecutor executor) {
+        this.executor = executor;
+        queues = new Queue[Priority.values().length];
+        for (int i = 0; i < queues.length; i++) queues[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * (re)Load the scheduler configuration.
+     * The tasks of the plugin being cancelled while reloading, the drain task is rescheduled if needed.
+     * @param section the configuration section, null for the default values
+     */
+    public void load(@Nullable final ConfigurationSection section) {
+        budget = (long) (TimeUnit.MILLISECONDS.toNanos(1) * (section == null ? 2D : Math.max(0D, section.getDouble("budget", 2D))));
+        scheduled.set(false);
+        if (size.get() > 0) schedule();
+    }
+
+    /**
+     * Submit a job, not related to an entity or a location
+     * @param priority the priority of the job
+     * @param job the job
+     */
+    public void submit(@NotNull final Priority priority, @NotNull final Runnable job) {
+        if (executor.isRegionized()) executor.run(track(job));
+        else enqueue(priority, job);
+    }
+
+    /**
+     * Submit a job modifying an entity.
+     * The job is not run if the entity is removed in the meantime.
+     * @param priority the priority of the job
+     * @param owner the entity
+     * @param job the job
+     */
+    public void submit(@NotNull final Priority priority, @NotNull final Entity owner, @NotNull final Runnable job) {
+        submit(priority, owner, job, null);
+    }
+
+    /**
+     * Submit a job modifying an entity
+     * @param priority the priority of the job
+     * @param owner the entity
+     * @param job the job
+     * @param retired run instead of the job if the entity is removed in the meantime
+     */
+    public void submit(@NotNull final Priority priority, @NotNull final Entity owner, @NotNull final Runnable job, @Nullable final Runnable retired) {
+        if (executor.isRegionized()) {
+            size.incrementAndGet();
+            executor.run(owner, () -> {
+                size.decrementAndGet();
+                runJob(job);
+            }, () -> {
+                size.decrementAndGet();
+                if (retired != null) retired.run();
+            });
+        } else
+            enqueue(priority, () -> {
+                if (TaskExecutor.isAlive(owner)) job.run();
+                else if (retired != null) retired.run();
+            });
+    }
+
+    /**
+     * Submit a job modifying an entity, only if no job with the same key is already waiting.
+     * If the waiting job has a lower priority, it is promoted: the job is submitted again
+     * with the higher priority, and the waiting one is dropped when reached.
+     * The job is not run if the entity is removed in the meantime.
+     * @param priority the priority of the job
+     * @param key the key of the job
+     * @param owner the entity
+     * @param job the job
+     * @return true if submitted, false if a job with the same key is already waiting with the same or a higher priority
+     */
+    public boolean submit(@NotNull final Priority priority, @NotNull final Object key, @NotNull final Entity owner, @NotNull final Runnable job) {
+        Priority waiting;
+        while ((waiting = pending.putIfAbsent(key, priority)) != null) {
+            // No priorities on regionized servers
+            if (executor.isRegionized() || waiting.compareTo(priority) <= 0) return false;
+            if (pending.replace(key, waiting, priority)) break; // promoted
+        }
+        submit(priority, owner, () -> {
+            if (pending.remove(key, priority)) job.run(); // otherwise, promoted or already run
+        }, () -> pending.remove(key, priority));
+        return true;
+    }
+
+    /**
+     * Submit a job modifying the world at a location
+     * @param priority the priority of the job
+     * @param owner the location
+     * @param job the job
+     */
+    public void submit(@NotNull final Priority priority, @NotNull final Location owner, @NotNull final Runnable job) {
+        if (executor.isRegionized()) executor.run(owner, track(job));
+        else enqueue(priority, job);
+    }
+
+    @NotNull
+    private Runnable track(@NotNull final Runnable job) {
+        size.incrementAndGet();
+        return () -> {
+            size.decrementAndGet();
+            runJob(job);
+        };
+    }
+
+    private void enqueue(@NotNull final Priority priority, @NotNull final Runnable job) {
+        size.incrementAndGet();
+        queues[priority.ordinal()].add(job);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) executor.run(this::drain);
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        final long start = System.nanoTime();
+        final long budget = this.budget;
+        for (int i = 0; i < queues.length; i++) {
+            final boolean exempt = i == Priority.HIGH.ordinal(); // follow-ups not delayed by the budget
+            Runnable job;
+            while ((job = queues[i].poll()) != null) {
+                size.decrementAndGet();
+                runJob(job);
+                if (!exempt && budget > 0 && System.nanoTime() - start >= budget) { // at least one job per tick
+                    if (size.get() > 0) {
+                        carried.increment();
+                        schedule();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private void runJob(@NotNull final Runnable job) {
+        try {
+            job.run();
+        } catch (final Exception e) {
+            e.printStackTrace();
+        }
+        run.increment();
+    }
+
+    /**
+     * Forget all the waiting jobs.
+     * Used when the plugin is disabled.
+     */
+    public void clear() {
+        for (final Queue<Runnable> queue : queues) queue.clear();
+        pending.clear();
+        size.set(0);
+        scheduled.set(false);
+    }
+
+    /**
+     * @return the amount of jobs waiting
+     */
+    public int getDepth() {
+        return Math.max(0, size.get());
+    }
+
+    /**
+     * @return the amount of jobs run
+     */
+    public long getRun() {
+        return run.sum();
+    }
+
+    /**
+     * @return the amount of ticks which ran out of budget, carrying jobs over to the next tick
+     */
+    public long getCarried() {
+        return carried.sum();
+    }
+
+    /**
+     * Reset the counters
+     */
+    public void resetStats() {
+        run.reset();
+        carried.reset();
+    }
+}
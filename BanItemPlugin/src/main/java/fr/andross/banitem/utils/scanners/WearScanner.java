@@ -19,19 +19,22 @@ package fr.andross.banitem.utils.scanners;
 
 import fr.andross.banitem.BanItem;
 import fr.andross.banitem.BanUtils;
+import fr.andross.banitem.utils.scheduler.TaskExecutor;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
 /**
- * A simple async scanner to check if players wears a banned item
- * @version 3.1.1
+ * A simple scanner to check if players wears a banned item.
+ * Every 16 ticks, a check per player is submitted to the {@link EnforcementScheduler}.
+ * @version 3.4
  * @author Andross
  */
 public final class WearScanner {
     private final BanItem pl;
     private final BanUtils utils;
     private boolean enabled;
-    private int taskId = -1;
+    private TaskExecutor.Task task;
 
     public WearScanner(@NotNull final BanItem pl, @NotNull final BanUtils utils) {
         this.pl = pl;
@@ -45,12 +48,14 @@ public final class WearScanner {
     public void setEnabled(final boolean enabled) {
         this.enabled = enabled;
         if (enabled) {
-            if (taskId < 0)
-                taskId = pl.getServer().getScheduler().runTaskTimerAsynchronously(pl, () -> Bukkit.getOnlinePlayers().forEach(utils::checkPlayerArmors), 16L, 16L).getTaskId();
+            if (task == null)
+                task = utils.getExecutor().runTimer(() -> {
+                    for (final Player p : Bukkit.getOnlinePlayers()) utils.checkPlayerArmorsLater(p, EnforcementScheduler.Priority.LOW);
+                }, 16L, 16L);
         } else {
-            if (taskId > -1) {
-                pl.getServer().getScheduler().cancelTask(taskId);
-                taskId = -1;
+            if (task != null) {
+                task.cancel();
+                task = null;
             }
         }
     }
@@ -0,0 +1,101 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Task executor of the servers running all the worlds on the main thread
+ * @version 3.4
+ * @author Andross
+ */
+public final class BukkitTaskExecutor implements TaskExecutor {
+    private final Plugin plugin;
+
+    public BukkitTaskExecutor(@NotNull final Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public void run(@NotNull final Runnable task) {
+        Bukkit.getScheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public void runLater(@NotNull final Runnable task, final long delay) {
+        Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+    }
+
+    @NotNull
+    @Override
+    public Task runTimer(@NotNull final Runnable task, final long delay, final long period) {
+        final BukkitTask bukkitTask = Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period);
+        return bukkitTask::cancel;
+    }
+
+    @Override
+    public void run(@NotNull final Entity entity, @NotNull final Runnable task, @Nullable final Runnable retired) {
+        run(() -> {
+            if (TaskExecutor.isAlive(entity)) task.run();
+            else if (retired != null) retired.run();
+        });
+    }
+
+    @Override
+    public void runLater(@NotNull final Entity entity, @NotNull final Runnable task, final long delay) {
+        runLater(() -> {
+            if (TaskExecutor.isAlive(entity)) task.run();
+        }, delay);
+    }
+
+    @Override
+    public void run(@NotNull final Location location, @NotNull final Runnable task) {
+        run(task);
+    }
+
+    @Override
+    public void runAsync(@NotNull final Runnable task) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(@NotNull final Entity entity) {
+        return Bukkit.isPrimaryThread();
+    }
+
+    @Override
+    public boolean isGlobalThread() {
+        return Bukkit.isPrimaryThread();
+    }
+
+    @Override
+    public void cancelAll() {
+        Bukkit.getScheduler().cancelTasks(plugin);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Consumer;
+
+/**
+ * Task executor of the regionized servers <i>(Folia)</i>.
+ * The region schedulers are not part of the Bukkit api this plugin is compiled against:
+ * their methods are resolved once by reflection, then cached as method handles.
+ * @version 3.4
+ * @author Andross
+ */
+public final class FoliaTaskExecutor implements TaskExecutor {
+    private static final String PACKAGE = "io.papermc.paper.threadedregions.scheduler.";
+    private final Plugin plugin;
+    private final Object globalScheduler;
+    private final Object regionScheduler;
+    private final Object asyncScheduler;
+    private final MethodHandle globalRun; // (Plugin, Consumer)
+    private final MethodHandle globalRunDelayed; // (Plugin, Consumer, long)
+    private final MethodHandle globalRunAtFixedRate; // (Plugin, Consumer, long, long)
+    private final MethodHandle globalCancelTasks; // (Plugin)
+    private final MethodHandle regionRun; // (Plugin, Location, Consumer)
+    private final MethodHandle asyncRunNow; // (Plugin, Consumer)
+    private final MethodHandle asyncCancelTasks; // (Plugin)
+    private final MethodHandle entityGetScheduler; // Entity#getScheduler()
+    private final MethodHandle entityRun; // (Plugin, Consumer, Runnable retired)
+    private final MethodHandle entityRunDelayed; // (Plugin, Consumer, Runnable retired, long)
+    private final MethodHandle taskCancel;
+    private final MethodHandle isOwnedByCurrentRegion; // Bukkit#isOwnedByCurrentRegion(Entity)
+    private final MethodHandle isGlobalTickThread; // Bukkit#isGlobalTickThread()
+
+    /**
+     * @return true if the server is regionized
+     */
+    static boolean isRegionizedServer() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    FoliaTaskExecutor(@NotNull final Plugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+        final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        final Class<?> global = Class.forName(PACKAGE + "GlobalRegionScheduler");
+        final Class<?> region = Class.forName(PACKAGE + "RegionScheduler");
+        final Class<?> async = Class.forName(PACKAGE + "AsyncScheduler");
+        final Class<?> entity = Class.forName(PACKAGE + "EntityScheduler");
+        final Class<?> task = Class.forName(PACKAGE + "ScheduledTask");
+
+        try {
+            globalScheduler = lookup.findStatic(Bukkit.class, "getGlobalRegionScheduler", MethodType.methodType(global)).invoke();
+            regionScheduler = lookup.findStatic(Bukkit.class, "getRegionScheduler", MethodType.methodType(region)).invoke();
+            asyncScheduler = lookup.findStatic(Bukkit.class, "getAsyncScheduler", MethodType.methodType(async)).invoke();
+        } catch (final ReflectiveOperationException | RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new ReflectiveOperationException(e);
+        }
+
+        globalRun = lookup.findVirtual(global, "run", MethodType.methodType(task, Plugin.class, Consumer.class));
+        globalRunDelayed = lookup.findVirtual(global, "runDelayed", MethodType.methodType(task, Plugin.class, Consumer.class, long.class));
+        globalRunAtFixedRate = lookup.findVirtual(global, "runAtFixedRate", MethodType.methodType(task, Plugin.class, Consumer.class, long.class, long.class));
+        globalCancelTasks = lookup.findVirtual(global, "cancelTasks", MethodType.methodType(void.class, Plugin.class));
+        regionRun = lookup.findVirtual(region, "run", MethodType.methodType(task, Plugin.class, Location.class, Consumer.class));
+        asyncRunNow = lookup.findVirtual(async, "runNow", MethodType.methodType(task, Plugin.class, Consumer.class));
+        asyncCancelTasks = lookup.findVirtual(async, "cancelTasks", MethodType.methodType(void.class, Plugin.class));
+        entityGetScheduler = lookup.findVirtual(Entity.class, "getScheduler", MethodType.methodType(entity));
+        entityRun = lookup.findVirtual(entity, "run", MethodType.methodType(task, Plugin.class, Consumer.class, Runnable.class));
+        entityRunDelayed = lookup.findVirtual(entity, "runDelayed", MethodType.methodType(task, Plugin.class, Consumer.class, Runnable.class, long.class));
+        taskCancel = lookup.findVirtual(task, "cancel", MethodType.methodType(Class.forName(task.getName() + "$CancelledState")));
+        isOwnedByCurrentRegion = lookup.findStatic(Bukkit.class, "isOwnedByCurrentRegion", MethodType.methodType(boolean.class, Entity.class));
+        isGlobalTickThread = lookup.findStatic(Bukkit.class, "isGlobalTickThread", MethodType.methodType(boolean.class));
+    }
+
+    @NotNull
+    private static Consumer<Object> consumer(@NotNull final Runnable task) {
+        return scheduledTask -> task.run();
+    }
+
+    @NotNull
+    private static RuntimeException rethrow(@NotNull final Throwable e) {
+        if (e instanceof RuntimeException) return (RuntimeException) e;
+        if (e instanceof Error) throw (Error) e;
+        return new IllegalStateException(e);
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public void run(@NotNull final Runnable task) {
+        try {
+            globalRun.invoke(globalScheduler, plugin, consumer(task));
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void runLater(@NotNull final Runnable task, final long delay) {
+        try {
+            globalRunDelayed.invoke(globalScheduler, plugin, consumer(task), Math.max(1L, delay));
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Task runTimer(@NotNull final Runnable task, final long delay, final long period) {
+        try {
+            final Object scheduledTask = globalRunAtFixedRate.invoke(globalScheduler, plugin, consumer(task), Math.max(1L, delay), Math.max(1L, period));
+            return () -> {
+                try {
+                    taskCancel.invoke(scheduledTask);
+                } catch (final Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void run(@NotNull final Entity entity, @NotNull final Runnable task, @Nullable final Runnable retired) {
+        try {
+            // Not scheduled if the entity is already removed
+            if (entityRun.invoke(entityGetScheduler.invoke(entity), plugin, consumer(task), retired) == null && retired != null) retired.run();
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void runLater(@NotNull final Entity entity, @NotNull final Runnable task, final long delay) {
+        try {
+            entityRunDelayed.invoke(entityGetScheduler.invoke(entity), plugin, consumer(task), null, Math.max(1L, delay));
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void run(@NotNull final Location location, @NotNull final Runnable task) {
+        try {
+            regionRun.invoke(regionScheduler, plugin, location, consumer(task));
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void runAsync(@NotNull final Runnable task) {
+        try {
+            asyncRunNow.invoke(asyncScheduler, plugin, consumer(task));
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(@NotNull final Entity entity) {
+        try {
+            return (boolean) isOwnedByCurrentRegion.invoke(entity);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public boolean isGlobalThread() {
+        try {
+            return (boolean) isGlobalTickThread.invoke();
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void cancelAll() {
+        try {
+            globalCancelTasks.invoke(globalScheduler, plugin);
+            asyncCancelTasks.invoke(asyncScheduler, plugin);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Execution of the tasks of the plugin.
+ * On regionized servers <i>(Folia)</i>, the tasks related to an entity or a location are run by the thread
+ * owning it, and the other tasks by the global region thread. On the other servers, every task except the
+ * asynchronous ones is run by the main thread, through the Bukkit scheduler.
+ * @version 3.4
+ * @author Andross
+ */
+public interface TaskExecutor {
+
+    /**
+     * A scheduled task
+     */
+    interface Task {
+        /**
+         * Cancel the task
+         */
+        void cancel();
+    }
+
+    /**
+     * Create the executor suited to the server
+     * @param plugin the plugin owning the tasks
+     * @return the Folia executor on regionized servers, else the Bukkit executor
+     */
+    @NotNull
+    static TaskExecutor create(@NotNull final Plugin plugin) {
+        if (FoliaTaskExecutor.isRegionizedServer()) {
+            try {
+                return new FoliaTaskExecutor(plugin);
+            } catch (final ReflectiveOperationException e) {
+                e.printStackTrace();
+            }
+        }
+        return new BukkitTaskExecutor(plugin);
+    }
+
+    /**
+     * Check if the tasks of an entity can still be run.
+     * A dead player is not valid, but still keeps its tasks until disconnected.
+     * @param entity the entity
+     * @return true if the entity is not removed
+     */
+    static boolean isAlive(@NotNull final Entity entity) {
+        return entity instanceof Player ? ((Player) entity).isOnline() : entity.isValid();
+    }
+
+    /**
+     * @return true if the server runs several regions in parallel
+     */
+    boolean isRegionized();
+
+    /**
+     * Run a task on the next tick, not related to an entity or a location
+     * @param task the task
+     */
+    void run(@NotNull Runnable task);
+
+    /**
+     * Run a task after a delay, not related to an entity or a location
+     * @param task the task
+     * @param delay the delay, in ticks
+     */
+    void runLater(@NotNull Runnable task, long delay);
+
+    /**
+     * Run a repeating task, not related to an entity or a location
+     * @param task the task
+     * @param delay the delay before the first run, in ticks
+     * @param period the period, in ticks
+     * @return the scheduled task
+     */
+    @NotNull
+    Task runTimer(@NotNull Runnable task, long delay, long period);
+
+    /**
+     * Run a task on the next tick, by the thread owning the entity.
+     * The task is not run if the entity is removed in the meantime.
+     * @param entity the entity
+     * @param task the task
+     */
+    default void run(@NotNull final Entity entity, @NotNull final Runnable task) {
+        run(entity, task, null);
+    }
+
+    /**
+     * Run a task on the next tick, by the thread owning the entity
+     * @param entity the entity
+     * @param task the task
+     * @param retired run instead of the task if the entity is removed in the meantime
+     */
+    void run(@NotNull Entity entity, @NotNull Runnable task, @Nullable Runnable retired);
+
+    /**
+     * Run a task after a delay, by the thread owning the entity.
+     * The task is not run if the entity is removed in the meantime.
+     * @param entity the entity
+     * @param task the task
+     * @param delay the delay, in ticks
+     */
+    void runLater(@NotNull Entity entity, @NotNull Runnable task, long delay);
+
+    /**
+     * Run a task on the next tick, by the thread owning the location
+     * @param location the location
+     * @param task the task
+     */
+    void run(@NotNull Location location, @NotNull Runnable task);
+
+    /**
+     * Run a task asynchronously
+     * @param task the task
+     */
+    void runAsync(@NotNull Runnable task);
+
+    /**
+     * @param entity the entity
+     * @return true if the current thread owns the entity, and can modify it
+     */
+    boolean isOwnedByCurrentThread(@NotNull Entity entity);
+
+    /**
+     * @return true if the current thread can run the tasks not related to an entity or a location <i>(console commands...)</i>
+     */
+    boolean isGlobalThread();
+
+    /**
+     * Cancel all the tasks of the plugin which can be cancelled.
+     * On regionized servers, the tasks already scheduled on an entity are not cancelled.
+     */
+    void cancelAll();
+}
@@ -0,0 +1,203 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.stats;
+
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.items.meta.MetaType;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime statistics of the ban checks, when enabled in the config.
+ * Checks done with {@link fr.andross.banitem.BanItemAPI#isBanned} are recorded per action, per world
+ * and per list (blacklist/whitelist). The time spent into each meta type of the custom items is also recorded.
+ * The lists counters are always recorded, and the listeners execution time is recorded when the statistics
+ * or the metrics exporter are enabled.
+ * @version 3.4
+ * @author Andross
+ */
+public final class BanStats {
+    private volatile boolean enabled = false;
+    private volatile long since = System.currentTimeMillis();
+    private final CheckStats[] actions = new CheckStats[BanAction.values().length];
+    private final Map<String, CheckStats> worlds = new ConcurrentHashMap<>();
+    private final CheckStats blacklist = new CheckStats();
+    private final CheckStats whitelist = new CheckStats();
+    private final LongAdder[] metaChecks = new LongAdder[MetaType.values().length];
+    private final LongAdder[] metaTime = new LongAdder[MetaType.values().length];
+    private final ListCounters blacklistCounters = new ListCounters();
+    private final ListCounters whitelistCounters = new ListCounters();
+    private final Map<String, LatencyHistogram> listeners = new ConcurrentHashMap<>();
+
+    public BanStats() {
+        for (int i = 0; i < actions.length; i++) actions[i] = new CheckStats();
+        for (int i = 0; i < metaChecks.length; i++) {
+            metaChecks[i] = new LongAdder();
+            metaTime[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a complete ban check
+     * @param world the world where the check occurs
+     * @param action the action checked
+     * @param denied if the item is banned
+     * @param nanos the duration of the check, in nanoseconds
+     */
+    public void record(@NotNull final World world, @NotNull final BanAction action, final boolean denied, final long nanos) {
+        actions[action.ordinal()].record(denied, nanos);
+        worlds.computeIfAbsent(world.getName(), k -> new CheckStats()).record(denied, nanos);
+    }
+
+    /**
+     * Record the time spent into a meta type comparator
+     * @param type the meta type
+     * @param nanos the duration of the check, in nanoseconds
+     */
+    public void recordMeta(@NotNull final MetaType type, final long nanos) {
+        metaChecks[type.ordinal()].increment();
+        metaTime[type.ordinal()].add(nanos);
+    }
+
+    /**
+     * @return if the statistics are recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled if the statistics should be recorded
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the time of the last reset, in milliseconds
+     */
+    public long getSince() {
+        return since;
+    }
+
+    /**
+     * @param action the action
+     * @return the statistics of the checks for this action
+     */
+    @NotNull
+    public CheckStats getAction(@NotNull final BanAction action) {
+        return actions[action.ordinal()];
+    }
+
+    /**
+     * @return an unmodifiable view of the statistics per world name
+     */
+    @NotNull
+    public Map<String, CheckStats> getWorlds() {
+        return Collections.unmodifiableMap(worlds);
+    }
+
+    /**
+     * @return the statistics of the blacklist checks
+     */
+    @NotNull
+    public CheckStats getBlacklist() {
+        return blacklist;
+    }
+
+    /**
+     * @return the statistics of the whitelist checks
+     */
+    @NotNull
+    public CheckStats getWhitelist() {
+        return whitelist;
+    }
+
+    /**
+     * @param type the meta type
+     * @return the amount of checks done by this meta type comparators
+     */
+    public long getMetaChecks(@NotNull final MetaType type) {
+        return metaChecks[type.ordinal()].sum();
+    }
+
+    /**
+     * @param type the meta type
+     * @return the total time spent into this meta type comparators, in nanoseconds
+     */
+    public long getMetaTime(@NotNull final MetaType type) {
+        return metaTime[type.ordinal()].sum();
+    }
+
+    /**
+     * @return the counters of the blacklist entries, per action
+     */
+    @NotNull
+    public ListCounters getBlacklistCounters() {
+        return blacklistCounters;
+    }
+
+    /**
+     * @return the counters of the whitelist entries, per action
+     */
+    @NotNull
+    public ListCounters getWhitelistCounters() {
+        return whitelistCounters;
+    }
+
+    /**
+     * Get (or create) the execution time histogram of a listener
+     * @param event the event name
+     * @return the execution time histogram
+     */
+    @NotNull
+    public LatencyHistogram getListener(@NotNull final String event) {
+        return listeners.computeIfAbsent(event, k -> new LatencyHistogram());
+    }
+
+    /**
+     * @return an unmodifiable view of the execution time of the listeners, per event name
+     */
+    @NotNull
+    public Map<String, LatencyHistogram> getListeners() {
+        return Collections.unmodifiableMap(listeners);
+    }
+
+    /**
+     * Reset all the statistics
+     */
+    public void reset() {
+        for (final CheckStats stats : actions) stats.reset();
+        worlds.clear();
+        blacklist.reset();
+        whitelist.reset();
+        for (int i = 0; i < metaChecks.length; i++) {
+            metaChecks[i].reset();
+            metaTime[i].reset();
+        }
+        blacklistCounters.reset();
+        whitelistCounters.reset();
+        listeners.values().forEach(LatencyHistogram::reset); // still referenced by the registered executors
+        since = System.currentTimeMillis();
+    }
+}
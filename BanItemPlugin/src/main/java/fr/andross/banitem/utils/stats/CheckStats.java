@@ -0,0 +1,75 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.stats;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latencies of ban checks
+ * @version 3.4
+ * @author Andross
+ */
+public final class CheckStats {
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder denials = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Record a check
+     * @param denied if the item was denied
+     * @param nanos the duration of the check, in nanoseconds
+     */
+    public void record(final boolean denied, final long nanos) {
+        checks.increment();
+        if (denied) denials.increment();
+        latency.record(nanos);
+    }
+
+    /**
+     * @return the amount of checks
+     */
+    public long getChecks() {
+        return checks.sum();
+    }
+
+    /**
+     * @return the amount of checks which denied the item
+     */
+    public long getDenials() {
+        return denials.sum();
+    }
+
+    /**
+     * @return the latency histogram of the checks
+     */
+    @NotNull
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Reset the counters
+     */
+    public void reset() {
+        checks.reset();
+        denials.reset();
+        latency.reset();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free log-linear latency histogram, in nanoseconds.
+ * Like HdrHistogram, each power of two is split into linear sub-buckets,
+ * giving values with a relative error lower than 12.5%, up to ~1 second.
+ * @version 3.4
+ * @author Andross
+ */
+public final class LatencyHistogram {
+    private static final int LINEAR = 16; // values lower than this have their own bucket
+    private static final int SUB_BUCKETS = 8;
+    private static final int MAX_EXPONENT = 30; // ~1.07s
+    private static final int SIZE = LINEAR + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+    private final AtomicLongArray buckets = new AtomicLongArray(SIZE);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a latency
+     * @param nanos the latency, in nanoseconds
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    private static int index(final long value) {
+        if (value < LINEAR) return (int) value;
+        final int exponent = 63 - Long.numberOfLeadingZeros(value); // >= 4
+        if (exponent > MAX_EXPONENT) return SIZE - 1;
+        final int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return Math.min(SIZE - 1, LINEAR + (exponent - 4) * SUB_BUCKETS + sub);
+    }
+
+    private static long value(final int index) {
+        if (index < LINEAR) return index;
+        final int exponent = (index - LINEAR) / SUB_BUCKETS + 4;
+        final int sub = (index - LINEAR) % SUB_BUCKETS;
+        final long lower = (long) (SUB_BUCKETS + sub) << (exponent - 3);
+        final long upper = ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+        return (lower + upper) / 2;
+    }
+
+    /**
+     * Get the latency at the percentile
+     * @param percentile the percentile, between 0 and 100
+     * @return the approximate latency at this percentile, in nanoseconds
+     */
+    public long getPercentile(final double percentile) {
+        final long count = getCount();
+        if (count == 0) return 0;
+        final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100D));
+        long seen = 0;
+        for (int i = 0; i < SIZE; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min(value(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * @return the amount of recorded latencies
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of the recorded latencies, in nanoseconds
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * @return the mean of the recorded latencies, in nanoseconds
+     */
+    public long getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : getTotal() / count;
+    }
+
+    /**
+     * @return the highest recorded latency, in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Reset the histogram
+     */
+    public void reset() {
+        for (int i = 0; i < SIZE; i++) buckets.set(i, 0);
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+}
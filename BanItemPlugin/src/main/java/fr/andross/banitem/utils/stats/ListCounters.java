@@ -0,0 +1,102 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.stats;
+
+import fr.andross.banitem.actions.BanAction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counters of a list (blacklist or whitelist), per action.
+ * These are always recorded: an uncontended {@link LongAdder} increment is a single CAS,
+ * and the counters can be read from any thread <i>(/bi stats, metrics exporter)</i>.
+ * @version 3.4
+ * @author Andross
+ */
+public final class ListCounters {
+    private final LongAdder[] evaluations = create();
+    private final LongAdder[] denials = create();
+    private final LongAdder[] cooldownHits = create();
+
+    @NotNull
+    private static LongAdder[] create() {
+        final LongAdder[] adders = new LongAdder[BanAction.values().length];
+        for (int i = 0; i < adders.length; i++) adders[i] = new LongAdder();
+        return adders;
+    }
+
+    /**
+     * Record an evaluation of the list entries for this action
+     * @param action the action
+     */
+    public void evaluated(@NotNull final BanAction action) {
+        evaluations[action.ordinal()].increment();
+    }
+
+    /**
+     * Record a denial of this action
+     * @param action the action
+     */
+    public void denied(@NotNull final BanAction action) {
+        denials[action.ordinal()].increment();
+    }
+
+    /**
+     * Record a player still in cooldown for this action
+     * @param action the action
+     */
+    public void cooldownHit(@NotNull final BanAction action) {
+        cooldownHits[action.ordinal()].increment();
+    }
+
+    /**
+     * @param action the action
+     * @return the amount of evaluations for this action
+     */
+    public long getEvaluations(@NotNull final BanAction action) {
+        return evaluations[action.ordinal()].sum();
+    }
+
+    /**
+     * @param action the action
+     * @return the amount of denials for this action
+     */
+    public long getDenials(@NotNull final BanAction action) {
+        return denials[action.ordinal()].sum();
+    }
+
+    /**
+     * @param action the action
+     * @return the amount of cooldown hits for this action
+     */
+    public long getCooldownHits(@NotNull final BanAction action) {
+        return cooldownHits[action.ordinal()].sum();
+    }
+
+    /**
+     * Reset the counters
+     */
+    public void reset() {
+        for (int i = 0; i < evaluations.length; i++) {
+            evaluations[i].reset();
+            denials[i].reset();
+            cooldownHits[i].reset();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.stats;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.items.meta.LookupCache;
+import fr.andross.banitem.items.meta.MetaType;
+import fr.andross.banitem.utils.CommandQueue;
+import fr.andross.banitem.utils.scanners.EnforcementScheduler;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in exporter of the plugin statistics, in the Prometheus text format.
+ * The metrics are served on <i>http://host:port/metrics</i> by the JDK http server, on its own daemon thread:
+ * a scrape only reads the striped counters of {@link BanStats}, and never touches the main thread.
+ * @version 3.4
+ * @author Andross
+ */
+public final class PrometheusExporter {
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+    private final BanStats stats;
+    private final CommandQueue commandQueue;
+    private final EnforcementScheduler enforcement;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Create an exporter of these statistics
+     * @param stats the statistics
+     * @param commandQueue the queue of the commands run by the bans
+     * @param enforcement the scheduler of the enforcement jobs
+     */
+    public PrometheusExporter(@NotNull final BanStats stats, @NotNull final CommandQueue commandQueue, @NotNull final EnforcementScheduler enforcement) {
+        this.stats = stats;
+        this.commandQueue = commandQueue;
+        this.enforcement = enforcement;
+    }
+
+    /**
+     * Start serving the metrics, stopping the previous server if running
+     * @param host the host to bind to
+     * @param port the port to bind to
+     * @throws IOException if the server can not be bound
+     */
+    public synchronized void start(@NotNull final String host, final int port) throws IOException {
+        stop();
+        final HttpServer httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        httpServer.createContext("/metrics", this::handle);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            final Thread thread = new Thread(r, "BanItem-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        server = httpServer;
+    }
+
+    /**
+     * Stop serving the metrics, if running
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * @return if the metrics are served
+     */
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * @return the port the metrics are served on <i>(the bound one if started on port 0)</i>, -1 if not running
+     */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    private void handle(@NotNull final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Build the current metrics, in the Prometheus text format.
+     * Labelled series without any recorded value are omitted.
+     * This is the exact body served on <i>/metrics</i>, so it can be checked without the http server.
+     * @return the metrics
+     */
+    @NotNull
+    public String scrape() {
+        final StringBuilder sb = new StringBuilder(4096);
+
+        // Lists
+        final ListCounters blacklist = stats.getBlacklistCounters();
+        final ListCounters whitelist = stats.getWhitelistCounters();
+        header(sb, "banitem_list_evaluations_total", "counter", "Evaluations of the list entries, per list and action.");
+        for (final BanAction action : BanAction.values()) {
+            sample(sb, "banitem_list_evaluations_total", blacklist.getEvaluations(action), "list", "blacklist", "action", action.getName());
+            sample(sb, "banitem_list_evaluations_total", whitelist.getEvaluations(action), "list", "whitelist", "action", action.getName());
+        }
+        header(sb, "banitem_list_denials_total", "counter", "Denied actions, per list and action.");
+        for (final BanAction action : BanAction.values()) {
+            sample(sb, "banitem_list_denials_total", blacklist.getDenials(action), "list", "blacklist", "action", action.getName());
+            sample(sb, "banitem_list_denials_total", whitelist.getDenials(action), "list", "whitelist", "action", action.getName());
+        }
+        header(sb, "banitem_list_cooldown_hits_total", "counter", "Players still in cooldown, per list and action.");
+        for (final BanAction action : BanAction.values()) {
+            sample(sb, "banitem_list_cooldown_hits_total", blacklist.getCooldownHits(action), "list", "blacklist", "action", action.getName());
+            sample(sb, "banitem_list_cooldown_hits_total", whitelist.getCooldownHits(action), "list", "whitelist", "action", action.getName());
+        }
+
+        // Api checks (recorded if the statistics are enabled)
+        header(sb, "banitem_check_seconds", "summary", "Duration of the complete ban checks, per action.");
+        for (final BanAction action : BanAction.values())
+            summary(sb, "banitem_check_seconds", stats.getAction(action).getLatency(), "action", action.getName());
+        header(sb, "banitem_check_denials_total", "counter", "Denied complete ban checks, per action.");
+        for (final BanAction action : BanAction.values())
+            sample(sb, "banitem_check_denials_total", stats.getAction(action).getDenials(), "action", action.getName());
+        header(sb, "banitem_meta_checks_total", "counter", "Checks done by the custom items meta comparators, per meta type.");
+        for (final MetaType type : MetaType.values())
+            sample(sb, "banitem_meta_checks_total", stats.getMetaChecks(type), "type", type.name().toLowerCase(Locale.ROOT));
+        header(sb, "banitem_meta_seconds_total", "counter", "Time spent into the custom items meta comparators, per meta type.");
+        for (final MetaType type : MetaType.values())
+            sample(sb, "banitem_meta_seconds_total", stats.getMetaTime(type) / 1e9, "type", type.name().toLowerCase(Locale.ROOT));
+
+        // Listeners
+        header(sb, "banitem_listener_seconds", "summary", "Execution time of the listeners, per event.");
+        for (final Map.Entry<String, LatencyHistogram> e : new TreeMap<>(stats.getListeners()).entrySet())
+            summary(sb, "banitem_listener_seconds", e.getValue(), "event", e.getKey());
+
+        // Commands queue
+        header(sb, "banitem_commands_queue_depth", "gauge", "Commands of the run data waiting to be run.");
+        sample(sb, "banitem_commands_queue_depth", commandQueue.getDepth());
+        header(sb, "banitem_commands_total", "counter", "Commands of the run data, per result.");
+        sample(sb, "banitem_commands_total", commandQueue.getRun(), "result", "run");
+        sample(sb, "banitem_commands_total", commandQueue.getDeduplicated(), "result", "deduplicated");
+        sample(sb, "banitem_commands_total", commandQueue.getDropped(), "result", "dropped");
+
+        // Enforcement scheduler
+        header(sb, "banitem_enforcement_queue_depth", "gauge", "Enforcement jobs waiting to be run.");
+        sample(sb, "banitem_enforcement_queue_depth", enforcement.getDepth());
+        header(sb, "banitem_enforcement_jobs_total", "counter", "Enforcement jobs run.");
+        sample(sb, "banitem_enforcement_jobs_total", enforcement.getRun());
+        header(sb, "banitem_enforcement_carried_ticks_total", "counter", "Ticks which ran out of enforcement budget, carrying jobs over.");
+        sample(sb, "banitem_enforcement_carried_ticks_total", enforcement.getCarried());
+
+        // Caches
+        header(sb, "banitem_cache_entries", "gauge", "Entries of the lookup caches.");
+        for (final LookupCache<?> cache : LookupCache.getCaches().values())
+            sample(sb, "banitem_cache_entries", cache.size(), "cache", cache.getName());
+        header(sb, "banitem_cache_hits_total", "counter", "Hits of the lookup caches.");
+        for (final LookupCache<?> cache : LookupCache.getCaches().values())
+            sample(sb, "banitem_cache_hits_total", cache.getHits(), "cache", cache.getName());
+        header(sb, "banitem_cache_misses_total", "counter", "Misses of the lookup caches.");
+        for (final LookupCache<?> cache : LookupCache.getCaches().values())
+            sample(sb, "banitem_cache_misses_total", cache.getMisses(), "cache", cache.getName());
+        return sb.toString();
+    }
+
+    private static void header(@NotNull final StringBuilder sb, @NotNull final String name, @NotNull final String type, @NotNull final String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(@NotNull final StringBuilder sb, @NotNull final String name, @NotNull final LatencyHistogram histogram, @NotNull final String label, @NotNull final String value) {
+        final long count = histogram.getCount();
+        if (count == 0) return;
+        for (final double quantile : QUANTILES)
+            sample(sb, name, histogram.getPercentile(quantile * 100) / 1e9, label, value, "quantile", String.valueOf(quantile));
+        sample(sb, name + "_sum", histogram.getTotal() / 1e9, label, value);
+        sample(sb, name + "_count", count, label, value);
+    }
+
+    private static void sample(@NotNull final StringBuilder sb, @NotNull final String name, final double value, @NotNull final String... labels) {
+        if (labels.length == 0) sb.append(name).append(' '); // always written
+        else {
+            if (value == 0) return;
+            sb.append(name).append('{');
+            for (int i = 0; i < labels.length; i += 2) {
+                if (i > 0) sb.append(',');
+                sb.append(labels[i]).append("=\"");
+                escape(sb, labels[i + 1]);
+                sb.append('"');
+            }
+            sb.append("} ");
+        }
+        if (value == (long) value) sb.append((long) value);
+        else sb.append(value);
+        sb.append('\n');
+    }
+
+    private static void escape(@NotNull final StringBuilder sb, @NotNull final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\') sb.append("\\\\");
+            else if (c == '"') sb.append("\\\"");
+            else if (c == '\n') sb.append("\\n");
+            else sb.append(c);
+        }
+    }
+}
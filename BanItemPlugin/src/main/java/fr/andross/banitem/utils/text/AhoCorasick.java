@@ -0,0 +1,155 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.text;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * An immutable Aho-Corasick automaton, finding all the literals contained
+ * in a text with a single pass over its characters.
+ * Each literal is linked to an identifier, several literals can share the same identifier.
+ * @version 3.4
+ * @author Andross
+ */
+public final class AhoCorasick {
+    private static final int[] NONE = new int[0];
+    private final char[][] keys; // sorted transitions characters, per node
+    private final int[][] targets; // transitions targets, per node
+    private final int[] fail;
+    private final int[][] outputs; // identifiers found when reaching the node (including its suffixes)
+
+    private AhoCorasick(@NotNull final Builder builder) {
+        final int size = builder.nodes.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        fail = new int[size];
+        outputs = new int[size][];
+
+        // Transitions
+        for (int i = 0; i < size; i++) {
+            final TreeMap<Character, Integer> node = builder.nodes.get(i);
+            keys[i] = new char[node.size()];
+            targets[i] = new int[node.size()];
+            int j = 0;
+            for (final Map.Entry<Character, Integer> e : node.entrySet()) {
+                keys[i][j] = e.getKey();
+                targets[i][j++] = e.getValue();
+            }
+        }
+
+        // Failure links & outputs, breadth first
+        final List<Set<Integer>> out = new ArrayList<>(builder.outputs);
+        final Deque<Integer> queue = new ArrayDeque<>();
+        for (final int child : targets[0]) queue.add(child);
+        while (!queue.isEmpty()) {
+            final int node = queue.poll();
+            for (int j = 0; j < keys[node].length; j++) {
+                final char c = keys[node][j];
+                final int child = targets[node][j];
+                int f = fail[node];
+                int next;
+                while ((next = child(f, c)) < 0 && f != 0) f = fail[f];
+                fail[child] = next < 0 || next == child ? 0 : next;
+                out.get(child).addAll(out.get(fail[child]));
+                queue.add(child);
+            }
+        }
+
+        for (int i = 0; i < size; i++)
+            outputs[i] = out.get(i).isEmpty() ? NONE : out.get(i).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int child(final int node, final char c) {
+        final int index = Arrays.binarySearch(keys[node], c);
+        return index < 0 ? -1 : targets[node][index];
+    }
+
+    /**
+     * Search all the literals contained in the text
+     * @param text the text to scan
+     * @param found the bitset in which the identifiers of the literals found are set
+     */
+    public void search(@NotNull final String text, @NotNull final BitSet found) {
+        for (final int id : outputs[0]) found.set(id); // empty literals
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            int next;
+            while ((next = child(state, c)) < 0 && state != 0) state = fail[state];
+            state = next < 0 ? 0 : next;
+            for (final int id : outputs[state]) found.set(id);
+        }
+    }
+
+    /**
+     * Builder of an automaton
+     */
+    public static final class Builder {
+        private final List<TreeMap<Character, Integer>> nodes = new ArrayList<>();
+        private final List<Set<Integer>> outputs = new ArrayList<>();
+
+        public Builder() {
+            newNode();
+        }
+
+        private int newNode() {
+            nodes.add(new TreeMap<>());
+            outputs.add(new HashSet<>());
+            return nodes.size() - 1;
+        }
+
+        /**
+         * Add a literal to search
+         * @param literal the literal
+         * @param id the identifier set when the literal is found
+         * @return this builder
+         */
+        @NotNull
+        public Builder add(@NotNull final String literal, final int id) {
+            int node = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                final Integer next = nodes.get(node).get(literal.charAt(i));
+                if (next == null) {
+                    final int created = newNode();
+                    nodes.get(node).put(literal.charAt(i), created);
+                    node = created;
+                } else
+                    node = next;
+            }
+            outputs.get(node).add(id);
+            return this;
+        }
+
+        /**
+         * @return if no literal was added
+         */
+        public boolean isEmpty() {
+            return nodes.size() == 1 && outputs.get(0).isEmpty();
+        }
+
+        /**
+         * @return a new immutable automaton
+         */
+        @NotNull
+        public AhoCorasick build() {
+            return new AhoCorasick(this);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.text;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A message or command, parsed once into literal parts and placeholder slots.
+ * The colors have to be translated before compiling, so rendering only concatenates the parts.
+ * @version 3.4
+ * @author Andross
+ */
+public final class MessageTemplate {
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+    private final String raw;
+    private final String[] literals; // literals.length == slots.length + 1
+    private final Placeholder[] slots;
+
+    /**
+     * The available placeholders
+     */
+    public enum Placeholder {
+        TIME("{time}"),
+        PLAYER("{player}"),
+        WORLD("{world}"),
+        ITEMNAME("{itemname}"),
+        ACTION("{action}");
+
+        private final String token;
+
+        Placeholder(@NotNull final String token) {
+            this.token = token;
+        }
+
+        /**
+         * @return the placeholder, as written in the messages
+         */
+        @NotNull
+        public String getToken() {
+            return token;
+        }
+    }
+
+    private MessageTemplate(@NotNull final String raw, @NotNull final String[] literals, @NotNull final Placeholder[] slots) {
+        this.raw = raw;
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * Parse a text into a template
+     * @param text the text, colors already translated if needed
+     * @return the template
+     */
+    @NotNull
+    public static MessageTemplate compile(@NotNull final String text) {
+        final List<String> literals = new ArrayList<>();
+        final List<Placeholder> slots = new ArrayList<>();
+        int start = 0;
+        int i = text.indexOf('{');
+        while (i >= 0) {
+            Placeholder found = null;
+            for (final Placeholder p : Placeholder.values())
+                if (text.startsWith(p.token, i)) {
+                    found = p;
+                    break;
+                }
+            if (found == null) {
+                i = text.indexOf('{', i + 1);
+                continue;
+            }
+            literals.add(text.substring(start, i));
+            slots.add(found);
+            start = i + found.token.length();
+            i = text.indexOf('{', start);
+        }
+        literals.add(text.substring(start));
+        return new MessageTemplate(text, literals.toArray(new String[0]), slots.toArray(new Placeholder[0]));
+    }
+
+    /**
+     * Parse texts into templates
+     * @param texts the texts, colors already translated if needed
+     * @return an unmodifiable list of templates
+     */
+    @NotNull
+    public static List<MessageTemplate> compile(@NotNull final Collection<String> texts) {
+        final List<MessageTemplate> templates = new ArrayList<>(texts.size());
+        for (final String text : texts) templates.add(compile(text));
+        return Collections.unmodifiableList(templates);
+    }
+
+    /**
+     * Check if the templates were compiled from these texts, to detect a modification of the texts
+     * @param templates the templates
+     * @param texts the texts
+     * @return true if each template was compiled from the text at the same index
+     */
+    public static boolean isCompiledFrom(@Nullable final List<MessageTemplate> templates, @NotNull final List<String> texts) {
+        if (templates == null || templates.size() != texts.size()) return false;
+        for (int i = 0; i < texts.size(); i++)
+            if (templates.get(i).raw != texts.get(i)) return false; // same instance, not only equal
+        return true;
+    }
+
+    /**
+     * Render the templates
+     * @param templates the templates
+     * @param context the placeholders values
+     * @return the rendered texts
+     */
+    @NotNull
+    public static List<String> render(@NotNull final List<MessageTemplate> templates, @NotNull final Context context) {
+        final List<String> rendered = new ArrayList<>(templates.size());
+        for (final MessageTemplate template : templates) rendered.add(template.render(context));
+        return rendered;
+    }
+
+    /**
+     * Render this template. Placeholders without value are kept as they are.
+     * @param context the placeholders values
+     * @return the rendered text
+     */
+    @NotNull
+    public String render(@NotNull final Context context) {
+        if (slots.length == 0) return literals[0];
+        final StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        sb.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            final String value = context.values[slots[i].ordinal()];
+            sb.append(value == null ? slots[i].token : value).append(literals[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return if this template contains placeholders
+     */
+    public boolean hasPlaceholders() {
+        return slots.length > 0;
+    }
+
+    /**
+     * @return the text this template was compiled from
+     */
+    @NotNull
+    public String getRaw() {
+        return raw;
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+
+    /**
+     * The values of the placeholders used to render templates
+     */
+    public static final class Context {
+        private final String[] values = new String[Placeholder.values().length];
+
+        /**
+         * Create a context with the common values
+         * @param player the player name
+         * @param world the world name
+         * @param itemName the item name
+         */
+        public Context(@Nullable final String player, @Nullable final String world, @Nullable final String itemName) {
+            values[Placeholder.PLAYER.ordinal()] = player;
+            values[Placeholder.WORLD.ordinal()] = world;
+            values[Placeholder.ITEMNAME.ordinal()] = itemName;
+        }
+
+        /**
+         * Set the value of a placeholder
+         * @param placeholder the placeholder
+         * @param value the value, null to keep the placeholder as it is
+         * @return this context
+         */
+        @NotNull
+        public Context set(@NotNull final Placeholder placeholder, @Nullable final String value) {
+            values[placeholder.ordinal()] = value;
+            return this;
+        }
+    }
+}
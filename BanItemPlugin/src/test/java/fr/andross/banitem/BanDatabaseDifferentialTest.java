@@ -0,0 +1,178 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem;
+
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.actions.BanActionData;
+import fr.andross.banitem.actions.BanData;
+import fr.andross.banitem.actions.BanDataType;
+import fr.andross.banitem.database.Blacklist;
+import fr.andross.banitem.items.BannedItem;
+import org.bukkit.GameMode;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.EntityType;
+import org.bukkit.event.inventory.InventoryType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The blacklist checks not involving a player, using the contexts & constant verdicts,
+ * compared to the previous evaluator looking up the item and checking all the data
+ * @version 3.4
+ * @author Andross
+ */
+class BanDatabaseDifferentialTest {
+    private static final BanAction[] ACTIONS = { BanAction.PLACE, BanAction.BREAK, BanAction.DROP, BanAction.TRANSFER, BanAction.DISPENSE };
+    private static final BanData[][] QUERIES = {
+            null,
+            {},
+            { new BanData(BanDataType.ENTITY, EntityType.ZOMBIE) },
+            { new BanData(BanDataType.ENTITY, EntityType.SKELETON) },
+            { new BanData(BanDataType.MATERIAL, Material.STONE) },
+            { new BanData(BanDataType.ENTITY, EntityType.ZOMBIE), new BanData(BanDataType.INVENTORY_FROM, InventoryType.CHEST) },
+            { new BanData(BanDataType.INVENTORY_FROM, InventoryType.HOPPER) }
+    };
+    @TempDir
+    File dataFolder;
+    private BanDatabase database;
+    private Blacklist blacklist;
+    private World world;
+    private final List<BanActionData> rules = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = TestPlugin.database(TestPlugin.create(dataFolder), new YamlConfiguration());
+        blacklist = database.getBlacklist();
+        world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        when(world.getName()).thenReturn("world");
+
+        // Random rules, with data of all the contexts
+        final Random random = new Random(44);
+        for (final Material m : Material.values()) {
+            if (random.nextInt(3) == 0) continue;
+            final Map<BanAction, BanActionData> actions = new EnumMap<>(BanAction.class);
+            for (final BanAction action : ACTIONS) {
+                if (random.nextBoolean()) continue;
+                final BanActionData data = randomData(random);
+                actions.put(action, data);
+                rules.add(data);
+            }
+            if (!actions.isEmpty()) blacklist.addNewBan(world, new BannedItem(m), actions);
+        }
+        assertFalse(rules.isEmpty());
+    }
+
+    private static BanActionData randomData(final Random random) {
+        final BanActionData data = new BanActionData();
+        final Map<BanDataType, Object> map = data.getMap();
+        switch (random.nextInt(6)) {
+            case 0:
+                break;
+            case 1:
+                map.put(BanDataType.ENTITY, EnumSet.of(EntityType.ZOMBIE));
+                break;
+            case 2:
+                map.put(BanDataType.ENTITY, EnumSet.of(EntityType.ZOMBIE, EntityType.HORSE));
+                map.put(BanDataType.INVENTORY_FROM, EnumSet.of(InventoryType.CHEST));
+                break;
+            case 3:
+                map.put(BanDataType.MATERIAL, new HashSet<>(Collections.singleton(Material.STONE)));
+                break;
+            case 4:
+                map.put(BanDataType.GAMEMODE, EnumSet.of(GameMode.SURVIVAL));
+                map.put(BanDataType.COOLDOWN, 1000L);
+                break;
+            default:
+                map.put(BanDataType.PERMISSION, "banitem.test");
+                map.put(BanDataType.MESSAGE, Collections.singletonList("denied"));
+        }
+        return data;
+    }
+
+    /**
+     * The evaluator before the contexts & constant verdicts
+     */
+    private boolean previous(final BannedItem item, final BanAction action, final BanData... data) {
+        final BanActionData blacklistData = blacklist.getBanData(world, item, action);
+        return blacklistData != null && (data == null || Arrays.stream(data).allMatch(d -> {
+            final Set<?> s = blacklistData.getData(d.getType());
+            return s == null || s.contains(d.getObject());
+        }));
+    }
+
+    private void assertSameVerdicts(final String step) {
+        for (final Material m : Material.values()) {
+            final BannedItem item = new BannedItem(m);
+            for (final BanAction action : ACTIONS) {
+                for (final BanData[] query : QUERIES)
+                    assertEquals(previous(item, action, query), blacklist.isBlacklisted(world, item, action, query),
+                            step + ": " + m + " " + action + " " + Arrays.toString(query));
+                // Constant verdicts must hold for any data
+                if (database.getBannedMaterials(world, action).contains(m))
+                    for (final BanData[] query : QUERIES)
+                        assertTrue(previous(item, action, query), step + ": constant " + m + " " + action);
+            }
+        }
+    }
+
+    @Test
+    void sameVerdictsAsThePreviousEvaluator() {
+        assertSameVerdicts("loaded");
+    }
+
+    @Test
+    void sameVerdictsOnceTheDataAreModified() {
+        assertSameVerdicts("loaded");
+        final Random random = new Random(4444);
+        for (int i = 0; i < 40; i++) {
+            final BanActionData data = rules.get(random.nextInt(rules.size()));
+            final Map<BanDataType, Object> map = data.getMap();
+            switch (i % 5) {
+                case 0: // through the map
+                    map.put(BanDataType.ENTITY, EnumSet.of(EntityType.SKELETON));
+                    break;
+                case 1: // through the key set
+                    map.keySet().removeIf(type -> type.getContext() != null);
+                    break;
+                case 2: // through the entries
+                    for (final Map.Entry<BanDataType, Object> e : map.entrySet())
+                        if (e.getKey() == BanDataType.ENTITY) e.setValue(EnumSet.of(EntityType.ZOMBIE));
+                    break;
+                case 3: // through the entries iterator
+                    final Iterator<Map.Entry<BanDataType, Object>> iterator = map.entrySet().iterator();
+                    while (iterator.hasNext()) if (iterator.next().getKey() == BanDataType.MESSAGE) iterator.remove();
+                    map.put(BanDataType.MATERIAL, new HashSet<>(Collections.singleton(Material.STONE)));
+                    break;
+                default: // through the values
+                    map.values().clear();
+            }
+            assertSameVerdicts("modification " + i);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * A mocked plugin instance, with its data folder, and the databases loaded from it
+ * @version 3.4
+ * @author Andross
+ */
+public final class TestPlugin {
+
+    private TestPlugin() {
+    }
+
+    /**
+     * Create a mocked plugin instance, using the data folder.
+     * Empty custom items & meta items files are created if missing.
+     * @param dataFolder the data folder
+     * @return the mocked plugin instance
+     * @throws IOException if the files can not be created
+     */
+    @NotNull
+    public static BanItem create(@NotNull final File dataFolder) throws IOException {
+        TestServer.install();
+        Files.createDirectories(dataFolder.toPath());
+        for (final String name : new String[]{ "customitems.yml", "metaitems.yml" }) {
+            final File file = new File(dataFolder, name);
+            if (!file.exists()) Files.createFile(file.toPath());
+        }
+        final BanItem pl = mock(BanItem.class, RETURNS_DEEP_STUBS);
+        when(pl.getDataFolder()).thenReturn(dataFolder);
+        return pl;
+    }
+
+    /**
+     * Load a database
+     * @param pl the mocked plugin instance
+     * @param config the configuration, containing the blacklist, the whitelist and the storage sections
+     * @return the loaded database
+     */
+    @NotNull
+    public static BanDatabase database(@NotNull final BanItem pl, @NotNull final YamlConfiguration config) {
+        return new BanDatabase(pl, mock(CommandSender.class), config);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.UnsafeValues;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A mocked server, installed once as the Bukkit server for the tests needing it
+ * <i>(versions checks, items serialization...)</i>
+ * @version 3.4
+ * @author Andross
+ */
+public final class TestServer {
+    private static Server server;
+
+    private TestServer() {
+    }
+
+    /**
+     * Install the mocked server, if not already installed
+     * @return the mocked server, to stub more methods
+     */
+    @NotNull
+    public static synchronized Server install() {
+        if (server == null) {
+            final Server s = mock(Server.class);
+            when(s.getLogger()).thenReturn(Logger.getLogger("BanItemTest"));
+            when(s.getName()).thenReturn("BanItemTest");
+            when(s.getVersion()).thenReturn("test");
+            when(s.getBukkitVersion()).thenReturn("1.17-R0.1-SNAPSHOT");
+            final UnsafeValues unsafe = mock(UnsafeValues.class);
+            when(unsafe.getDataVersion()).thenReturn(2730);
+            when(unsafe.getMaterial(anyString(), anyInt())).thenAnswer(i -> Material.getMaterial(i.getArgument(0)));
+            when(s.getUnsafe()).thenReturn(unsafe);
+            Bukkit.setServer(s);
+            server = s;
+        }
+        return server;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.database;
+
+import fr.andross.banitem.BanDatabase;
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.TestServer;
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.actions.BanActionData;
+import fr.andross.banitem.items.BannedItem;
+import fr.andross.banitem.utils.scheduler.RegionTaskExecutor;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The blacklist read by the region threads while the global region thread adds rules to it,
+ * on a simulated regionized server
+ * @version 3.4
+ * @author Andross
+ */
+class BlacklistConcurrencyTest {
+    private static final int REGIONS = 4;
+    private RegionTaskExecutor executor;
+    private Blacklist blacklist;
+    private World world;
+
+    @BeforeEach
+    void setUp() {
+        TestServer.install();
+        executor = new RegionTaskExecutor(REGIONS);
+        final BanItem pl = mock(BanItem.class, RETURNS_DEEP_STUBS);
+        blacklist = new Blacklist(pl, mock(BanDatabase.class), mock(CommandSender.class), null);
+        world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        when(world.getName()).thenReturn("world");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private static Map<BanAction, BanActionData> actions(final BanAction action) {
+        final Map<BanAction, BanActionData> map = new EnumMap<>(BanAction.class);
+        map.put(action, new BanActionData());
+        return map;
+    }
+
+    @Test
+    void readersSeeEveryRuleAdded() throws Exception {
+        final List<BannedItem> items = new ArrayList<>();
+        for (final Material m : Material.values())
+            if (items.size() < 300) items.add(new BannedItem(m));
+        final AtomicInteger published = new AtomicInteger(); // items with both actions added
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicInteger reads = new AtomicInteger();
+
+        // Readers, one per region
+        final CountDownLatch readers = new CountDownLatch(REGIONS);
+        for (int region = 0; region < REGIONS; region++) {
+            executor.run(new Location(null, region * 16, 64, 0), () -> {
+                try {
+                    while (failure.get() == null && (!done.get() || reads.get() < 10_000)) {
+                        final int bound = published.get();
+                        if (bound == 0) continue;
+                        final BannedItem item = items.get(ThreadLocalRandom.current().nextInt(bound));
+                        assertTrue(blacklist.containsKey(world));
+                        assertNotNull(blacklist.getBanData(world, item, BanAction.PLACE), "place");
+                        assertNotNull(blacklist.getBanData(world, item, BanAction.BREAK), "break");
+                        reads.incrementAndGet();
+                    }
+                } catch (final Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    readers.countDown();
+                }
+            });
+        }
+
+        // Writer, adding the actions of each item one by one
+        executor.run(() -> {
+            try {
+                for (final BannedItem item : items) {
+                    blacklist.addNewBan(world, item, actions(BanAction.PLACE));
+                    blacklist.addNewBan(world, item, actions(BanAction.BREAK));
+                    published.incrementAndGet();
+                }
+            } catch (final Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                done.set(true);
+            }
+        });
+
+        assertTrue(readers.await(30, TimeUnit.SECONDS));
+        if (failure.get() != null) fail(failure.get());
+        assertEquals(items.size(), blacklist.get(world).getTotal());
+    }
+
+    @Test
+    void worldsAreAcceptedAsKeys() {
+        blacklist.addNewBan(world, new BannedItem(Material.STONE), actions(BanAction.PLACE));
+        assertTrue(blacklist.containsKey(world));
+        assertTrue(blacklist.containsKey(world.getUID()));
+        assertSame(blacklist.get(world.getUID()), blacklist.get((Object) world));
+        assertNull(blacklist.get((Object) null));
+        assertNotNull(blacklist.remove(world));
+        assertFalse(blacklist.containsKey(world.getUID()));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.database.storage;
+
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.TestPlugin;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Contract of the meta items storages, run against each storage type
+ * @version 3.4
+ * @author Andross
+ */
+abstract class MetaItemStorageContractTest {
+    @TempDir
+    File dataFolder;
+    BanItem pl;
+    MetaItemStorage storage;
+
+    /**
+     * @return the storage type, as in the <i>storage.type</i> setting
+     */
+    @NotNull
+    abstract String getType();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pl = TestPlugin.create(dataFolder);
+        storage = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @NotNull
+    MetaItemStorage open() {
+        final YamlConfiguration config = new YamlConfiguration();
+        config.set("type", getType());
+        return MetaItemStorage.create(pl, config, null);
+    }
+
+    @NotNull
+    MetaItemStorage reopen() {
+        storage.close();
+        storage = open();
+        return storage;
+    }
+
+    @NotNull
+    static Map<String, ItemStack> load(@NotNull final MetaItemStorage storage) {
+        final Map<String, ItemStack> items = new LinkedHashMap<>();
+        final List<String> invalid = new ArrayList<>();
+        storage.load(items::put, invalid::add);
+        assertEquals(Collections.emptyList(), invalid);
+        return items;
+    }
+
+    @Test
+    void emptyStorage() {
+        assertEquals(0, storage.count());
+        assertTrue(load(storage).isEmpty());
+        assertTrue(storage.getNames(0, 10).isEmpty());
+        assertNull(storage.get("missing"));
+    }
+
+    @Test
+    void saveAndGet() {
+        storage.save("sword", new ItemStack(Material.DIAMOND_SWORD));
+        storage.save("apples", new ItemStack(Material.APPLE, 16));
+        assertEquals(new ItemStack(Material.DIAMOND_SWORD), storage.get("sword"));
+        assertEquals(new ItemStack(Material.APPLE, 16), storage.get("apples"));
+        assertNull(storage.get("missing"));
+        assertEquals(2, storage.count());
+
+        // Replaced
+        storage.save("sword", new ItemStack(Material.BOW));
+        assertEquals(new ItemStack(Material.BOW), storage.get("sword"));
+        assertEquals(2, storage.count());
+    }
+
+    @Test
+    void loadAfterReopening() {
+        final Map<String, ItemStack> expected = new HashMap<>();
+        for (int i = 0; i < 300; i++) { // more than a page of the sqlite storage
+            final ItemStack item = new ItemStack(Material.values()[1 + i % 20], 1 + i % 64);
+            storage.save("item" + i, item);
+            expected.put("item" + i, item);
+        }
+        assertEquals(expected, load(reopen()));
+        assertEquals(300, storage.count());
+    }
+
+    @Test
+    void namesPaging() {
+        final List<String> names = Arrays.asList("delta", "alpha", "echo", "charlie", "bravo", "foxtrot", "golf");
+        names.forEach(name -> storage.save(name, new ItemStack(Material.STONE)));
+        final List<String> sorted = new ArrayList<>(names);
+        Collections.sort(sorted);
+
+        assertEquals(sorted.subList(0, 3), storage.getNames(0, 3));
+        assertEquals(sorted.subList(3, 6), storage.getNames(3, 3));
+        assertEquals(sorted.subList(6, 7), storage.getNames(6, 3));
+        assertTrue(storage.getNames(7, 3).isEmpty());
+        assertEquals(sorted.subList(0, 2), storage.getNames(-5, 2));
+        assertTrue(storage.getNames(0, 0).isEmpty());
+        assertEquals(sorted, storage.getNames(0, 100));
+    }
+
+    @Test
+    void remove() {
+        storage.save("sword", new ItemStack(Material.DIAMOND_SWORD));
+        storage.save("apple", new ItemStack(Material.APPLE));
+        storage.remove("sword");
+        storage.remove("missing");
+        assertNull(storage.get("sword"));
+        assertEquals(1, storage.count());
+        assertEquals(Collections.singleton("apple"), load(reopen()).keySet());
+    }
+
+    @Test
+    void importedOnlyOnce() throws Exception {
+        storage.close();
+        Files.deleteIfExists(new File(dataFolder, "metaitems.db").toPath()); // first use
+
+        // Existing metaitems.yml
+        final File yaml = new File(dataFolder, "metaitems.yml");
+        final YamlConfiguration config = new YamlConfiguration();
+        config.set("sword", new ItemStack(Material.DIAMOND_SWORD));
+        config.set("apple", new ItemStack(Material.APPLE));
+        config.save(yaml);
+        storage = open();
+        assertEquals(new HashSet<>(Arrays.asList("sword", "apple")), load(storage).keySet());
+
+        // Removed, and metaitems.yml not changed: not imported again
+        storage.remove("sword");
+        assertEquals(Collections.singleton("apple"), load(reopen()).keySet());
+        assertEquals(1, storage.count());
+    }
+}
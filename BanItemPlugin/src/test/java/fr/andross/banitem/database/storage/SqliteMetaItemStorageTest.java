@@ -0,0 +1,42 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.database.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * The contract of the meta items storages, for the <i>sqlite</i> storage
+ * @version 3.4
+ * @author Andross
+ */
+class SqliteMetaItemStorageTest extends MetaItemStorageContractTest {
+
+    @NotNull
+    @Override
+    String getType() {
+        return "sqlite";
+    }
+
+    @Test
+    void created() {
+        assertInstanceOf(SqliteMetaItemStorage.class, storage);
+    }
+}
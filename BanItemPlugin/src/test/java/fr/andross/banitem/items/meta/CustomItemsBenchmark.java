@@ -0,0 +1,136 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.items.meta;
+
+import fr.andross.banitem.TestServer;
+import fr.andross.banitem.items.CustomBannedItem;
+import fr.andross.banitem.utils.debug.Debug;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmark of the custom items matching: the decision diagram, compared to the loop checking
+ * the custom items one by one <i>(with the shared predicates computed once per item)</i>.
+ * Not run by default: {@code mvn test -Dbenchmark=true -Dtest=CustomItemsBenchmark}
+ * @version 3.4
+ * @author Andross
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomItemsBenchmark {
+    private static final Material[] MATERIALS = Arrays.copyOfRange(Material.values(), 1, 5);
+    private static final int CUSTOM_ITEMS = 64, ITEMS = 4096, WARMUP = 20, ROUNDS = 20;
+
+    /**
+     * An item meta answering its fields from a map, cheap to call compared to a mock
+     */
+    private static ItemMeta meta(final Map<String, Object> fields) {
+        return (ItemMeta) Proxy.newProxyInstance(CustomItemsBenchmark.class.getClassLoader(), new Class<?>[]{ Damageable.class },
+                (proxy, method, args) -> {
+                    final Object value = fields.get(method.getName());
+                    if (value != null) return value;
+                    return method.getReturnType() == boolean.class ? Boolean.FALSE : method.getReturnType() == int.class ? 0 : null;
+                });
+    }
+
+    @Test
+    void diagramFasterThanTheCustomItemsLoop() {
+        TestServer.install();
+        final Random random = new Random(45);
+
+        // Custom items, reusing a few conditions like a real configuration
+        final List<CustomBannedItem> customItems = new ArrayList<>();
+        for (int i = 0; i < CUSTOM_ITEMS; i++) {
+            final YamlConfiguration section = new YamlConfiguration();
+            section.set("material", MATERIALS[random.nextInt(MATERIALS.length)].name());
+            section.set("durability", random.nextInt(4) + "-" + (random.nextInt(4) + 4));
+            section.set("modeldata-equals", random.nextInt(8));
+            if (random.nextBoolean()) section.set("unbreakable", true);
+            final CustomBannedItem item = new CustomBannedItem("item" + i, section, mock(Debug.class, RETURNS_DEEP_STUBS));
+            assertTrue(item.isValid());
+            customItems.add(item);
+        }
+
+        // Sharing the predicates like the custom items loading, for the loop
+        final Map<MetaTypeComparator, Integer> uses = new HashMap<>(), predicates = new HashMap<>();
+        customItems.forEach(item -> item.getMeta().values().forEach(c -> uses.merge(c, 1, Integer::sum)));
+        customItems.forEach(item -> item.getMeta().values().forEach(c -> c.setPredicate(uses.get(c) > 1 ? predicates.computeIfAbsent(c, k -> predicates.size()) : -1)));
+        final DecisionDiagram diagram = DecisionDiagram.build(customItems, null);
+        assertTrue(diagram.isCompiled());
+
+        // Items
+        final ItemStack[] items = new ItemStack[ITEMS];
+        final ItemMeta[] metas = new ItemMeta[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            items[i] = new ItemStack(MATERIALS[random.nextInt(MATERIALS.length)]);
+            final Map<String, Object> fields = new HashMap<>();
+            fields.put("getDamage", random.nextInt(10));
+            fields.put("hasCustomModelData", Boolean.TRUE);
+            fields.put("getCustomModelData", random.nextInt(8));
+            fields.put("isUnbreakable", random.nextBoolean());
+            metas[i] = meta(fields);
+        }
+
+        long loop = Long.MAX_VALUE, walk = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            int loopMatches = 0, walkMatches = 0;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITEMS; i++) {
+                final Material type = items[i].getType();
+                final ItemSnapshot snapshot = new ItemSnapshot(items[i], metas[i]);
+                for (final CustomBannedItem customItem : customItems) {
+                    if (customItem.getMaterials().contains(type) && customItem.matches(snapshot)) {
+                        loopMatches += customItem.getName().length();
+                        break;
+                    }
+                }
+            }
+            final long loopTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITEMS; i++) {
+                final Material type = items[i].getType();
+                final CustomBannedItem customItem = diagram.match(new ItemSnapshot(items[i], metas[i]), type);
+                if (customItem != null) walkMatches += customItem.getName().length();
+            }
+            final long walkTime = System.nanoTime() - start;
+
+            assertEquals(loopMatches, walkMatches);
+            if (round >= WARMUP) {
+                loop = Math.min(loop, loopTime);
+                walk = Math.min(walk, walkTime);
+            }
+        }
+
+        System.out.printf("Custom items matching, %d custom items (%d distinct predicates, %d nodes): loop %d ns/item, decision diagram %d ns/item%n",
+                CUSTOM_ITEMS, diagram.getPredicates(), diagram.getNodes(), loop / ITEMS, walk / ITEMS);
+        assertTrue(walk < loop, "decision diagram " + walk + " ns, loop " + loop + " ns");
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.items.meta;
+
+import fr.andross.banitem.TestServer;
+import fr.andross.banitem.items.CustomBannedItem;
+import fr.andross.banitem.utils.debug.Debug;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The decision diagram answers, for random items, the same first custom item as checking the custom items one by one
+ * @version 3.4
+ * @author Andross
+ */
+class DecisionDiagramTest {
+    private static final Material[] MATERIALS = Arrays.copyOf(Material.values(), 4);
+
+    @BeforeAll
+    static void setUp() {
+        TestServer.install();
+    }
+
+    private static CustomBannedItem item(final String name, final Map<String, Object> values) {
+        final YamlConfiguration section = new YamlConfiguration();
+        values.forEach(section::set);
+        final CustomBannedItem item = new CustomBannedItem(name, section, mock(Debug.class, RETURNS_DEEP_STUBS));
+        assertTrue(item.isValid(), name + " " + values);
+        return item;
+    }
+
+    private static CustomBannedItem randomItem(final Random random, final int i) {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        final List<String> materials = new ArrayList<>();
+        for (final Material m : MATERIALS) if (random.nextBoolean()) materials.add(m.name());
+        if (materials.isEmpty()) materials.add(MATERIALS[0].name());
+        values.put("material", materials);
+        if (random.nextInt(3) == 0) values.put("unbreakable", random.nextBoolean());
+        if (random.nextInt(2) == 0) values.put("modeldata-equals", random.nextInt(3));
+        if (random.nextInt(2) == 0) values.put("durability", random.nextBoolean() ? random.nextInt(3) + "-" + (random.nextInt(3) + 2) : (Object) random.nextInt(4));
+        if (random.nextInt(5) == 0) values.put("reverted", true);
+        return item("item" + i, values);
+    }
+
+    private static ItemSnapshot randomSnapshot(final Random random, final Material type) {
+        final ItemMeta meta = mock(ItemMeta.class, withSettings().extraInterfaces(Damageable.class));
+        when(meta.isUnbreakable()).thenReturn(random.nextBoolean());
+        when(meta.hasCustomModelData()).thenReturn(random.nextInt(4) != 0);
+        when(meta.getCustomModelData()).thenReturn(random.nextInt(3));
+        when(((Damageable) meta).getDamage()).thenReturn(random.nextInt(5));
+        return new ItemSnapshot(new ItemStack(type), meta);
+    }
+
+    @Test
+    void sameFirstMatchAsTheCustomItemsLoop() {
+        final Random random = new Random(46);
+        for (int round = 0; round < 20; round++) {
+            final List<CustomBannedItem> items = new ArrayList<>();
+            for (int i = 0; i < 2 + random.nextInt(12); i++) items.add(randomItem(random, i));
+            final DecisionDiagram diagram = DecisionDiagram.build(items, null);
+            assertTrue(diagram.isCompiled());
+
+            for (int i = 0; i < 50; i++) {
+                final Material type = MATERIALS[random.nextInt(MATERIALS.length)];
+                final ItemSnapshot snapshot = randomSnapshot(random, type);
+                CustomBannedItem expected = null;
+                for (final CustomBannedItem item : items) {
+                    if (item.getMaterials().contains(type) && item.matches(new ItemSnapshot(snapshot.getItem(), snapshot.getItemMeta()))) {
+                        expected = item;
+                        break;
+                    }
+                }
+                assertSame(expected, diagram.hasCandidates(type) ? diagram.match(snapshot, type) : null, "round " + round + ", " + type);
+            }
+        }
+    }
+
+    @Test
+    void identicalComparatorsAreCheckedOnce() {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        values.put("material", MATERIALS[0].name());
+        values.put("durability", "0-2");
+        values.put("modeldata-equals", 1);
+        final CustomBannedItem first = item("first", values);
+        values.put("modeldata-equals", 2);
+        final CustomBannedItem second = item("second", values);
+        final DecisionDiagram diagram = DecisionDiagram.build(Arrays.asList(first, second), null);
+        assertEquals(3, diagram.getPredicates());
+
+        // Not matching the durability: both custom items are rejected with a single check
+        final ItemMeta meta = mock(ItemMeta.class, withSettings().extraInterfaces(Damageable.class));
+        when(((Damageable) meta).getDamage()).thenReturn(5);
+        assertNull(diagram.match(new ItemSnapshot(new ItemStack(MATERIALS[0]), meta), MATERIALS[0]));
+        verify((Damageable) meta, atMostOnce()).getDamage();
+        assertFalse(diagram.hasCandidates(MATERIALS[1]));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.scanners;
+
+import fr.andross.banitem.BanDatabase;
+import fr.andross.banitem.BanItem;
+import fr.andross.banitem.TestPlugin;
+import fr.andross.banitem.TestServer;
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.actions.BanActionData;
+import fr.andross.banitem.items.BannedItem;
+import fr.andross.banitem.items.CustomBannedItem;
+import fr.andross.banitem.utils.debug.Debug;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * The chunk scanner worker threads only check the materials & meta items,
+ * the custom items being matched by the thread owning the items
+ * @version 3.4
+ * @author Andross
+ */
+class ChunkScannerTest {
+    @TempDir
+    File dataFolder;
+    private final List<String> matchingThreads = Collections.synchronizedList(new ArrayList<>());
+    private World world;
+    private EnforcementScheduler enforcement;
+    private ChunkScanner scanner;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Items meta, recording the threads matching the custom item
+        final ItemFactory factory = mock(ItemFactory.class);
+        when(factory.getItemMeta(any(Material.class))).thenAnswer(i -> {
+            final ItemMeta meta = mock(ItemMeta.class);
+            when(meta.isUnbreakable()).thenAnswer(u -> matchingThreads.add(Thread.currentThread().getName()));
+            return meta;
+        });
+        when(TestServer.install().getItemFactory()).thenReturn(factory);
+
+        final BanItem pl = TestPlugin.create(dataFolder);
+        final BanDatabase database = TestPlugin.database(pl, new YamlConfiguration());
+        when(pl.getBanDatabase()).thenReturn(database);
+        world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        when(world.getName()).thenReturn("world");
+
+        // Stone banned, and unbreakable dirt as a custom item
+        database.getBlacklist().addNewBan(world, new BannedItem(Material.STONE), Collections.singletonMap(BanAction.DELETE, new BanActionData()));
+        final YamlConfiguration section = new YamlConfiguration();
+        section.set("material", Material.DIRT.name());
+        section.set("unbreakable", true);
+        final CustomBannedItem custom = new CustomBannedItem("dirt", section, mock(Debug.class, RETURNS_DEEP_STUBS));
+        database.getBlacklist().addNewBan(world, custom, Collections.singletonMap(BanAction.DELETE, new BanActionData()));
+
+        enforcement = mock(EnforcementScheduler.class);
+        scanner = new ChunkScanner(pl, enforcement);
+        scanner.load(true, 8, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scanner.stop();
+    }
+
+    private static ItemFrame frame(final Material type) {
+        final ItemFrame frame = mock(ItemFrame.class);
+        final ItemStack item = new ItemStack(type);
+        when(frame.getItem()).thenReturn(item);
+        return frame;
+    }
+
+    @Test
+    void customItemsMatchedByTheOwningThread() {
+        final ItemFrame stone = frame(Material.STONE), dirt = frame(Material.DIRT), cobblestone = frame(Material.COBBLESTONE);
+        scanner.scan(world, Arrays.<Entity>asList(stone, dirt, cobblestone));
+
+        // Checked by the workers: the banned stone & the dirt to match are sent back, not the cobblestone
+        final ArgumentCaptor<Runnable> jobs = ArgumentCaptor.forClass(Runnable.class);
+        verify(enforcement, timeout(5000).times(2)).submit(eq(EnforcementScheduler.Priority.LOW), any(Entity.class), jobs.capture());
+        verify(enforcement, after(100).times(2)).submit(eq(EnforcementScheduler.Priority.LOW), any(Entity.class), any(Runnable.class));
+        assertTrue(matchingThreads.isEmpty(), "custom item matched by " + matchingThreads);
+
+        // Owning thread
+        jobs.getAllValues().forEach(Runnable::run);
+        assertEquals(Collections.singletonList(Thread.currentThread().getName()), matchingThreads);
+        verify(stone).setItem(any(ItemStack.class));
+        verify(dirt).setItem(any(ItemStack.class));
+        verify(cobblestone, never()).setItem(any(ItemStack.class));
+        assertEquals(2, scanner.getRemoved());
+    }
+
+    @Test
+    void stoppedScannerSkipsTheChunks() {
+        scanner.stop();
+        assertFalse(scanner.isEnabled());
+        scanner.scan(world, Collections.singletonList(frame(Material.STONE)));
+        verifyNoInteractions(enforcement);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.scanners;
+
+import fr.andross.banitem.utils.scheduler.RegionTaskExecutor;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Enforcement jobs submitted from several threads on a simulated regionized server
+ * @version 3.4
+ * @author Andross
+ */
+class EnforcementSchedulerTest {
+    private static final int REGIONS = 4;
+    private RegionTaskExecutor executor;
+    private EnforcementScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        executor = new RegionTaskExecutor(REGIONS);
+        scheduler = new EnforcementScheduler(executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private Entity entity(final int region, final boolean alive) {
+        final Entity entity = mock(Entity.class);
+        when(entity.isValid()).thenReturn(alive);
+        executor.assign(entity, region);
+        return entity;
+    }
+
+    @Test
+    void entityJobsRunOnTheOwningRegion() throws Exception {
+        final List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 40; i++) entities.add(entity(i % REGIONS, true));
+        final AtomicInteger run = new AtomicInteger(), misplaced = new AtomicInteger();
+
+        // Submitted concurrently by the region threads & others
+        final ExecutorService submitters = Executors.newFixedThreadPool(REGIONS);
+        for (int i = 0; i < 1000; i++) {
+            final Entity entity = entities.get(i % entities.size());
+            final EnforcementScheduler.Priority priority = EnforcementScheduler.Priority.values()[i % 3];
+            submitters.execute(() -> scheduler.submit(priority, entity, () -> {
+                if (!executor.isOwnedByCurrentThread(entity)) misplaced.incrementAndGet();
+                run.incrementAndGet();
+            }));
+        }
+        submitters.shutdown();
+        assertTrue(submitters.awaitTermination(10, TimeUnit.SECONDS));
+        executor.await();
+
+        assertEquals(1000, run.get());
+        assertEquals(0, misplaced.get());
+        assertEquals(0, scheduler.getDepth());
+        assertEquals(1000, scheduler.getRun());
+    }
+
+    @Test
+    void locationJobsRunOnTheOwningRegion() throws Exception {
+        final AtomicInteger misplaced = new AtomicInteger();
+        for (int x = -256; x < 256; x += 8) {
+            final Location location = new Location(null, x, 64, 0);
+            scheduler.submit(EnforcementScheduler.Priority.LOW, location, () -> {
+                final Integer region = RegionTaskExecutor.getCurrentRegion();
+                if (region == null || region != executor.getRegion(location)) misplaced.incrementAndGet();
+            });
+        }
+        executor.await();
+        assertEquals(0, misplaced.get());
+        assertEquals(0, scheduler.getDepth());
+    }
+
+    @Test
+    void removedEntityRunsRetired() throws Exception {
+        final Entity removed = entity(1, false);
+        final AtomicInteger run = new AtomicInteger(), retired = new AtomicInteger();
+        scheduler.submit(EnforcementScheduler.Priority.NORMAL, removed, run::incrementAndGet, retired::incrementAndGet);
+        executor.await();
+        assertEquals(0, run.get());
+        assertEquals(1, retired.get());
+        assertEquals(0, scheduler.getDepth());
+    }
+
+    @Test
+    void keyedJobsAreDeduplicatedUntilRun() throws Exception {
+        final Entity entity = entity(2, true);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        scheduler.submit(EnforcementScheduler.Priority.HIGH, entity, () -> {
+            try {
+                blocked.await(10, TimeUnit.SECONDS); // the region is busy
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        final AtomicInteger run = new AtomicInteger();
+        assertTrue(scheduler.submit(EnforcementScheduler.Priority.LOW, "sweep", entity, run::incrementAndGet));
+        assertFalse(scheduler.submit(EnforcementScheduler.Priority.LOW, "sweep", entity, run::incrementAndGet));
+        assertFalse(scheduler.submit(EnforcementScheduler.Priority.HIGH, "sweep", entity, run::incrementAndGet)); // no priorities between regions
+        blocked.countDown();
+        executor.await();
+        assertEquals(1, run.get());
+
+        // Submitted again once run
+        assertTrue(scheduler.submit(EnforcementScheduler.Priority.LOW, "sweep", entity, run::incrementAndGet));
+        executor.await();
+        assertEquals(2, run.get());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fake regionized task executor, simulating Folia: each region is ticked by its own thread,
+ * and the tasks not related to an entity or a location are run by a global region thread.
+ * The entities are assigned to a region by the tests, and the locations by their chunk x coordinate.
+ * @version 3.4
+ * @author Andross
+ */
+public final class RegionTaskExecutor implements TaskExecutor {
+    private static final ThreadLocal<Integer> currentRegion = new ThreadLocal<>();
+    private static final int GLOBAL = -1;
+    private final ScheduledExecutorService global;
+    private final ScheduledExecutorService[] regions;
+    private final Map<Entity, Integer> owners = new ConcurrentHashMap<>();
+
+    /**
+     * @param regions the amount of regions ticked in parallel
+     */
+    public RegionTaskExecutor(final int regions) {
+        this.global = thread(GLOBAL);
+        this.regions = new ScheduledExecutorService[regions];
+        for (int i = 0; i < regions; i++) this.regions[i] = thread(i);
+    }
+
+    @NotNull
+    private static ScheduledExecutorService thread(final int region) {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(() -> {
+                currentRegion.set(region);
+                r.run();
+            }, region == GLOBAL ? "global-region" : "region-" + region);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Assign an entity to a region
+     * @param entity the entity
+     * @param region the region index
+     */
+    public void assign(@NotNull final Entity entity, final int region) {
+        owners.put(entity, region);
+    }
+
+    /**
+     * @param location the location
+     * @return the region owning the location
+     */
+    public int getRegion(@NotNull final Location location) {
+        return Math.floorMod(location.getBlockX() >> 4, regions.length);
+    }
+
+    /**
+     * @return the region of the current thread, -1 for the global region, or null if not a region thread
+     */
+    @Nullable
+    public static Integer getCurrentRegion() {
+        return currentRegion.get();
+    }
+
+    private int getRegion(@NotNull final Entity entity) {
+        final Integer region = owners.get(entity);
+        if (region == null) throw new IllegalStateException("Entity not assigned to a region");
+        return region;
+    }
+
+    /**
+     * Wait for all the tasks submitted until now to be run, by all the regions
+     * @throws Exception if interrupted or timed out
+     */
+    public void await() throws Exception {
+        global.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        for (final ScheduledExecutorService region : regions) region.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop all the region threads
+     */
+    public void shutdown() {
+        global.shutdownNow();
+        for (final ScheduledExecutorService region : regions) region.shutdownNow();
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public void run(@NotNull final Runnable task) {
+        global.execute(task);
+    }
+
+    @Override
+    public void runLater(@NotNull final Runnable task, final long delay) {
+        global.schedule(task, delay * 50L, TimeUnit.MILLISECONDS);
+    }
+
+    @NotNull
+    @Override
+    public Task runTimer(@NotNull final Runnable task, final long delay, final long period) {
+        final ScheduledFuture<?> future = global.scheduleAtFixedRate(task, delay * 50L, period * 50L, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+
+    @Override
+    public void run(@NotNull final Entity entity, @NotNull final Runnable task, @Nullable final Runnable retired) {
+        regions[getRegion(entity)].execute(() -> {
+            if (TaskExecutor.isAlive(entity)) task.run();
+            else if (retired != null) retired.run();
+        });
+    }
+
+    @Override
+    public void runLater(@NotNull final Entity entity, @NotNull final Runnable task, final long delay) {
+        regions[getRegion(entity)].schedule(() -> {
+            if (TaskExecutor.isAlive(entity)) task.run();
+        }, delay * 50L, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run(@NotNull final Location location, @NotNull final Runnable task) {
+        regions[getRegion(location)].execute(task);
+    }
+
+    @Override
+    public void runAsync(@NotNull final Runnable task) {
+        new Thread(task, "async").start();
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(@NotNull final Entity entity) {
+        final Integer region = currentRegion.get();
+        return region != null && region == getRegion(entity);
+    }
+
+    @Override
+    public boolean isGlobalThread() {
+        final Integer region = currentRegion.get();
+        return region != null && region == GLOBAL;
+    }
+
+    @Override
+    public void cancelAll() {
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * BanItem - Lightweight, powerful & configurable per world ban item plugin
+ * Copyright (C) 2021 André Sustac
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your action) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.andross.banitem.utils.stats;
+
+import fr.andross.banitem.actions.BanAction;
+import fr.andross.banitem.items.meta.MetaType;
+import fr.andross.banitem.utils.CommandQueue;
+import fr.andross.banitem.utils.scanners.EnforcementScheduler;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The exporter serves the statistics in the Prometheus text exposition format
+ * @version 3.4
+ * @author Andross
+ */
+class PrometheusExporterTest {
+    // name{label="value",...} value
+    private static final Pattern SAMPLE = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*(\\{[a-zA-Z_][a-zA-Z0-9_]*=\"(\\\\.|[^\"\\\\])*\"(,[a-zA-Z_][a-zA-Z0-9_]*=\"(\\\\.|[^\"\\\\])*\")*})? -?[0-9.eE+-]+");
+    private final BanStats stats = new BanStats();
+    private PrometheusExporter exporter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        final CommandQueue commandQueue = mock(CommandQueue.class);
+        when(commandQueue.getDepth()).thenReturn(3);
+        final EnforcementScheduler enforcement = mock(EnforcementScheduler.class);
+        when(enforcement.getRun()).thenReturn(42L);
+        exporter = new PrometheusExporter(stats, commandQueue, enforcement);
+        exporter.start("127.0.0.1", 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        exporter.stop();
+    }
+
+    private HttpURLConnection connect(final String method) throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + exporter.getPort() + "/metrics").openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        return connection;
+    }
+
+    private String scrape() throws Exception {
+        final HttpURLConnection connection = connect("GET");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/plain; version=0.0.4; charset=utf-8", connection.getContentType());
+        try (final InputStream in = connection.getInputStream()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void servedOnAnEphemeralPort() throws Exception {
+        assertTrue(exporter.isRunning());
+        assertTrue(exporter.getPort() > 0);
+        assertEquals(405, connect("POST").getResponseCode());
+        exporter.stop();
+        assertFalse(exporter.isRunning());
+        assertEquals(-1, exporter.getPort());
+    }
+
+    @Test
+    void expositionFormat() throws Exception {
+        final World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        stats.getBlacklistCounters().evaluated(BanAction.PLACE);
+        stats.getBlacklistCounters().evaluated(BanAction.PLACE);
+        stats.getBlacklistCounters().denied(BanAction.PLACE);
+        stats.record(world, BanAction.PLACE, true, 2_000_000L);
+        stats.recordMeta(MetaType.DURABILITY, 1_500L);
+        stats.getListener("Player\"Interact\\Event").record(1_000_000L);
+
+        final String body = scrape();
+        assertTrue(body.endsWith("\n"));
+
+        // Each family declared once by HELP & TYPE, before its samples
+        final Map<String, String> types = new HashMap<>();
+        final Set<String> helps = new HashSet<>();
+        for (final String line : body.split("\n")) {
+            if (line.startsWith("# HELP ")) {
+                assertTrue(helps.add(line.split(" ")[2]), line);
+                continue;
+            }
+            if (line.startsWith("# TYPE ")) {
+                final String[] s = line.split(" ");
+                assertEquals(4, s.length, line);
+                assertTrue(Arrays.asList("counter", "gauge", "summary").contains(s[3]), line);
+                assertNull(types.put(s[2], s[3]), line);
+                assertTrue(helps.contains(s[2]), "TYPE before HELP: " + line);
+                continue;
+            }
+            assertTrue(SAMPLE.matcher(line).matches(), line);
+            final String name = line.split("[{ ]")[0];
+            final String family = types.containsKey(name) ? name : name.replaceAll("_(sum|count)$", "");
+            assertTrue(types.containsKey(family), "sample without TYPE: " + line);
+            if (types.get(family).equals("counter")) assertTrue(name.endsWith("_total"), line);
+        }
+
+        // Values
+        final List<String> lines = Arrays.asList(body.split("\n"));
+        assertTrue(lines.contains("banitem_list_evaluations_total{list=\"blacklist\",action=\"place\"} 2"), body);
+        assertTrue(lines.contains("banitem_list_denials_total{list=\"blacklist\",action=\"place\"} 1"), body);
+        assertTrue(lines.contains("banitem_check_denials_total{action=\"place\"} 1"), body);
+        assertTrue(lines.contains("banitem_check_seconds_count{action=\"place\"} 1"), body);
+        assertTrue(lines.contains("banitem_meta_checks_total{type=\"durability\"} 1"), body);
+        assertTrue(lines.contains("banitem_listener_seconds_count{event=\"Player\\\"Interact\\\\Event\"} 1"), body);
+        assertTrue(lines.contains("banitem_commands_queue_depth 3"), body);
+        assertTrue(lines.contains("banitem_enforcement_jobs_total 42"), body);
+        assertTrue(lines.contains("banitem_enforcement_queue_depth 0"), body); // unlabelled, always written
+        assertFalse(body.contains("action=\"break\""), body); // labelled series without value are omitted
+        assertEquals(exporter.scrape(), body);
+    }
+}